@@ -2,6 +2,7 @@
 package com.omnibus.backend.config;
 
 import com.omnibus.backend.security.JwtRequestFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -54,6 +55,7 @@ public class SecurityConfig {
         ));
         configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS", "PATCH"));
         configuration.setAllowedHeaders(List.of("*"));
+        configuration.setExposedHeaders(List.of("ETag", "Retry-After", "X-Turno-Sala-Espera", "Idempotent-Replayed"));
         configuration.setAllowCredentials(true);
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
@@ -68,13 +70,17 @@ public class SecurityConfig {
                 .authorizeHttpRequests(authz -> authz
                         // --- PÚBLICO Y OPCIONES ---
                         .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll() // Preflight CORS
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll() // Respuestas asíncronas (SSE) ya autorizadas en la petición original
                         .requestMatchers("/api/auth/register", "/api/auth/login").permitAll()
                         .requestMatchers("/actuator/**").permitAll()
                         .requestMatchers("/api/auth/forgot-password").permitAll()
                         .requestMatchers("/api/auth/reset-password").permitAll()
                         .requestMatchers("/api/paypal/**").permitAll() //PARA PAYPAL
                         .requestMatchers(HttpMethod.GET, "/api/vendedor/localidades-disponibles").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/vendedor/localidades/autocompletar").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/vendedor/viajes/buscar-disponibles").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/vendedor/viajes/buscar-combinaciones").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/vendedor/viajes/calendario-precios").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/vendedor/viajes/listado-precios").permitAll()
 
                         .requestMatchers("/api/vendedor/notificaciones/**").authenticated()
@@ -84,12 +90,16 @@ public class SecurityConfig {
                         .hasAnyRole("CLIENTE", "VENDEDOR", "ADMINISTRADOR")
                         .requestMatchers(HttpMethod.GET, "/api/vendedor/viajes/*/asientos-ocupados")
                         .hasAnyRole("CLIENTE", "VENDEDOR", "ADMINISTRADOR")
+                        .requestMatchers(HttpMethod.GET, "/api/vendedor/viajes/*/asientos/stream")
+                        .hasAnyRole("CLIENTE", "VENDEDOR", "ADMINISTRADOR")
                         .requestMatchers(HttpMethod.POST, "/api/vendedor/pasajes/comprar")
                         .hasAnyRole("CLIENTE", "VENDEDOR", "ADMINISTRADOR")
                         .requestMatchers(HttpMethod.POST, "/api/vendedor/pasajes/comprar-multiple")
                         .hasAnyRole("CLIENTE", "VENDEDOR", "ADMINISTRADOR")
                         .requestMatchers(HttpMethod.POST, "/api/vendedor/pasajes/reservar-temporalmente")
                         .hasAnyRole("CLIENTE", "VENDEDOR", "ADMINISTRADOR")
+                        .requestMatchers("/api/vendedor/viajes/*/sala-espera", "/api/vendedor/viajes/*/sala-espera/*")
+                        .hasAnyRole("CLIENTE", "VENDEDOR", "ADMINISTRADOR")
 
                         // --- ENDPOINTS DE ADMINISTRADOR ---
                         .requestMatchers("/api/admin/**").hasRole("ADMINISTRADOR")
@@ -13,6 +13,7 @@ import com.omnibus.backend.model.Vendedor;
 import com.omnibus.backend.repository.UsuarioRepository;
 // --- IMPORTACIONES PARA ESTADÍSTICAS ---
 import com.omnibus.backend.repository.specification.UsuarioSpecification;
+import com.omnibus.backend.service.DisponibilidadRutaDiaService;
 import com.omnibus.backend.service.UserService;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
@@ -68,6 +69,9 @@ public class AdminController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private DisponibilidadRutaDiaService disponibilidadRutaDiaService;
+
     @PostMapping("/create-privileged")
     @PreAuthorize("hasRole('ADMINISTRADOR')")
     public ResponseEntity<?> createPrivilegedUser(@Valid @RequestBody CreatePrivilegedUserDTO dto) {
@@ -321,4 +325,19 @@ public class AdminController {
         }
     }
 
-}
\ No newline at end of file
+    // Recuperación: recalcula el modelo de lectura de la búsqueda de viajes desde viaje y pasajes.
+    @PostMapping("/disponibilidad/reconstruir")
+    @PreAuthorize("hasRole('ADMINISTRADOR')")
+    public ResponseEntity<?> reconstruirDisponibilidad() {
+        try {
+            logger.info("Solicitud para reconstruir el modelo de lectura de disponibilidad.");
+            int viajes = disponibilidadRutaDiaService.reconstruir();
+            return ResponseEntity.ok(Map.of("message", "Modelo de lectura de disponibilidad reconstruido.", "viajes", viajes));
+        } catch (Exception e) {
+            logger.error("Error interno al reconstruir el modelo de lectura de disponibilidad: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Error interno al reconstruir el modelo de lectura de disponibilidad."));
+        }
+    }
+
+}
@@ -18,9 +18,23 @@ import com.omnibus.backend.service.ViajeService;
 
 // Imports para Pasaje
 import com.omnibus.backend.service.pasajeService;
+import com.omnibus.backend.service.ReservasCleanupService;
+import com.omnibus.backend.service.AsientosStreamService;
+import com.omnibus.backend.service.IdempotencyService;
+import com.omnibus.backend.service.SalaEsperaService;
+import com.omnibus.backend.service.PlanificadorItinerariosService;
+import com.omnibus.backend.service.DisponibilidadRutaDiaService;
+import com.omnibus.backend.service.ExportacionViajesService;
+import com.omnibus.backend.service.ExportacionViajesService.FormatoExportacion;
+import com.omnibus.backend.service.SnapshotReferenciaService;
+import com.omnibus.backend.service.HorarioRecurrenteService;
+import com.omnibus.backend.service.OptimizadorAsignacionService;
+import com.omnibus.backend.exception.SalaEsperaLlenaException;
 
 
 // Imports comunes y de validación/CSV
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
@@ -31,11 +45,19 @@ import org.apache.commons.csv.CSVRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.MediaType;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.omnibus.backend.service.AsyncService;
 
@@ -51,9 +73,11 @@ import com.omnibus.backend.repository.NotificacionRepository;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @RestController
@@ -61,6 +85,8 @@ import java.util.stream.Collectors;
 public class VendedorController {
 
     private static final Logger logger = LoggerFactory.getLogger(VendedorController.class);
+    private static final String MEDIA_TYPE_ASIENTOS_BITMAP = "application/vnd.omnibus.asientos-bitmap+json";
+    private static final String HEADER_TURNO_SALA_ESPERA = "X-Turno-Sala-Espera";
 
     private final LocalidadService localidadService;
     private final OmnibusService omnibusService;
@@ -69,6 +95,17 @@ public class VendedorController {
     private final pasajeService pasajeService;
     private final AsyncService asyncService;
     private final NotificacionRepository notificacionRepository;
+    private final AsientosStreamService asientosStreamService;
+    private final IdempotencyService idempotencyService;
+    private final SalaEsperaService salaEsperaService;
+    private final PlanificadorItinerariosService planificadorItinerariosService;
+    private final DisponibilidadRutaDiaService disponibilidadRutaDiaService;
+    private final ExportacionViajesService exportacionViajesService;
+    private final SnapshotReferenciaService snapshotReferenciaService;
+    private final HorarioRecurrenteService horarioRecurrenteService;
+    private final OptimizadorAsignacionService optimizadorAsignacionService;
+    private final ObjectMapper objectMapper;
+    private final long referenciaMaxAgeSegundos;
 
     @Autowired
     public VendedorController(LocalidadService localidadService,
@@ -77,7 +114,18 @@ public class VendedorController {
                               Validator validator,
                               pasajeService pasajeService,
                               AsyncService asyncService,
-                              NotificacionRepository notificacionRepository) {
+                              NotificacionRepository notificacionRepository,
+                              AsientosStreamService asientosStreamService,
+                              IdempotencyService idempotencyService,
+                              SalaEsperaService salaEsperaService,
+                              PlanificadorItinerariosService planificadorItinerariosService,
+                              DisponibilidadRutaDiaService disponibilidadRutaDiaService,
+                              ExportacionViajesService exportacionViajesService,
+                              SnapshotReferenciaService snapshotReferenciaService,
+                              HorarioRecurrenteService horarioRecurrenteService,
+                              OptimizadorAsignacionService optimizadorAsignacionService,
+                              ObjectMapper objectMapper,
+                              @Value("${app.referencia.max-age-segundos:60}") long referenciaMaxAgeSegundos) {
         this.localidadService = localidadService;
         this.omnibusService = omnibusService;
         this.viajeService = viajeService;
@@ -85,6 +133,17 @@ public class VendedorController {
         this.pasajeService = pasajeService;
         this.asyncService = asyncService;
         this.notificacionRepository = notificacionRepository;
+        this.asientosStreamService = asientosStreamService;
+        this.idempotencyService = idempotencyService;
+        this.salaEsperaService = salaEsperaService;
+        this.planificadorItinerariosService = planificadorItinerariosService;
+        this.disponibilidadRutaDiaService = disponibilidadRutaDiaService;
+        this.exportacionViajesService = exportacionViajesService;
+        this.snapshotReferenciaService = snapshotReferenciaService;
+        this.horarioRecurrenteService = horarioRecurrenteService;
+        this.optimizadorAsignacionService = optimizadorAsignacionService;
+        this.objectMapper = objectMapper;
+        this.referenciaMaxAgeSegundos = referenciaMaxAgeSegundos;
     }
 
     // --- Endpoints de Localidad ---
@@ -175,16 +234,36 @@ public class VendedorController {
     }
     @GetMapping("/localidades-disponibles")
    // @PreAuthorize("hasRole('VENDEDOR') or hasRole('CLIENTE')") // MODIFICADO
-    public ResponseEntity<List<Localidad>> listarTodasLasLocalidadesParaSeleccion() {
+    public ResponseEntity<byte[]> listarTodasLasLocalidadesParaSeleccion(WebRequest webRequest) {
         try {
-            List<Localidad> localidades = localidadService.obtenerTodasLasLocalidades();
-            return ResponseEntity.ok(localidades);
+            // JSON ya serializado; con el mismo ETag se responde 304 sin consultar ni serializar
+            SnapshotReferenciaService.Snapshot snapshot = snapshotReferenciaService.obtenerLocalidades();
+            if (webRequest.checkNotModified(snapshot.etag())) {
+                return null;
+            }
+            return ResponseEntity.ok().eTag(snapshot.etag())
+                    .cacheControl(CacheControl.maxAge(referenciaMaxAgeSegundos, TimeUnit.SECONDS).cachePublic())
+                    .contentType(MediaType.APPLICATION_JSON).body(snapshot.cuerpo());
         } catch (Exception e) {
             logger.error("Error al listar localidades disponibles: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    // Autocompletado para los buscadores de origen/destino: coincidencias por prefijo, sin tildes ni mayúsculas.
+    @GetMapping("/localidades/autocompletar")
+    public ResponseEntity<?> autocompletarLocalidades(@RequestParam("q") String texto,
+                                                      @RequestParam(defaultValue = "10") int limite) {
+        try {
+            return ResponseEntity.ok(localidadService.autocompletar(texto, limite));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error al autocompletar localidades: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "Error interno al buscar localidades."));
+        }
+    }
+
     // --- Endpoints de Ómnibus ---
     @PostMapping("/omnibus")
     @PreAuthorize("hasRole('VENDEDOR')")
@@ -293,10 +372,16 @@ public class VendedorController {
     }
     @GetMapping("/omnibusListar")
     @PreAuthorize("hasRole('VENDEDOR')")
-    public ResponseEntity<List<Omnibus>> listarTodosLosOmnibus() {
+    public ResponseEntity<byte[]> listarTodosLosOmnibus(WebRequest webRequest) {
         try {
-            List<Omnibus> omnibusLista = omnibusService.obtenerTodosLosOmnibus();
-            return ResponseEntity.ok(omnibusLista);
+            // El estado de los ómnibus cambia seguido: siempre se revalida, pero un 304 evita consulta y serialización
+            SnapshotReferenciaService.Snapshot snapshot = snapshotReferenciaService.obtenerOmnibus();
+            if (webRequest.checkNotModified(snapshot.etag())) {
+                return null;
+            }
+            return ResponseEntity.ok().eTag(snapshot.etag())
+                    .cacheControl(CacheControl.noCache().cachePrivate())
+                    .contentType(MediaType.APPLICATION_JSON).body(snapshot.cuerpo());
         } catch (Exception e) {
             logger.error("Error al listar todos los ómnibus: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
@@ -310,6 +395,18 @@ public class VendedorController {
         try {
             logger.info("Solicitud para marcar ómnibus {} inactivo desde {} hasta {} como {}",
                     id, request.getInicioInactividad(), request.getFinInactividad(), request.getNuevoEstado());
+            if (request.isReasignarViajes()) {
+                InactividadConReasignacionDTO resultado = omnibusService.marcarOmnibusInactivoConReasignacion(
+                        id,
+                        request.getInicioInactividad(),
+                        request.getFinInactividad(),
+                        request.getNuevoEstado()
+                );
+                // Todo o nada: con algún viaje sin reemplazo no se aplicó ningún cambio
+                return resultado.isInactividadProgramada()
+                        ? ResponseEntity.ok(resultado)
+                        : ResponseEntity.status(HttpStatus.CONFLICT).body(resultado);
+            }
             Omnibus omnibusActualizado = omnibusService.marcarOmnibusInactivo(
                     id,
                     request.getInicioInactividad(),
@@ -330,6 +427,9 @@ public class VendedorController {
         } catch (IllegalArgumentException e) {
             logger.warn("Argumento inválido al marcar ómnibus {} inactivo: {}", id, e.getMessage());
             return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            logger.warn("No se pudieron reasignar los viajes del ómnibus {}: {}", id, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             logger.error("Error interno al marcar ómnibus {} inactivo: {}", id, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "Error interno al procesar la solicitud."));
@@ -355,6 +455,26 @@ public class VendedorController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "Error interno al procesar la solicitud."));
         }
     }
+    /**
+     * Ómnibus OPERATIVO libres en la ventana (candidatos para reasignar un viaje), con su ubicación al inicio
+     * y el margen hasta su próximo viaje.
+     */
+    @GetMapping("/omnibus/disponibles")
+    @PreAuthorize("hasRole('VENDEDOR')")
+    public ResponseEntity<?> buscarOmnibusDisponibles(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(required = false) Long localidadId) {
+        try {
+            return ResponseEntity.ok(omnibusService.buscarDisponibles(desde, hasta, localidadId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error interno al buscar ómnibus disponibles: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "Error interno al buscar ómnibus disponibles."));
+        }
+    }
+
     @GetMapping("/omnibus/por-estado")
     @PreAuthorize("hasRole('VENDEDOR')")
     public ResponseEntity<?> obtenerOmnibusPorEstado(@RequestParam("estado") String estadoStr) {
@@ -412,6 +532,48 @@ public class VendedorController {
         }
     }
 
+    /**
+     * Crea todos los viajes de un horario recurrente en una sola operación. Las franjas que no se pudieron
+     * cubrir con ningún ómnibus se devuelven en el resultado, con el motivo.
+     */
+    @PostMapping("/viajes/horario-recurrente")
+    @PreAuthorize("hasRole('VENDEDOR')")
+    public ResponseEntity<?> altaHorarioRecurrente(@Valid @RequestBody HorarioRecurrenteRequestDTO solicitud) {
+        try {
+            HorarioRecurrenteResultadoDTO resultado = horarioRecurrenteService.generar(solicitud);
+            logger.info("Horario recurrente: {} viajes creados de {} franjas.", resultado.getViajesCreados(), resultado.getFranjasSolicitadas());
+            return ResponseEntity.status(resultado.getViajesCreados() > 0 ? HttpStatus.CREATED : HttpStatus.OK).body(resultado);
+        } catch (EntityNotFoundException e) {
+            logger.warn("No se pudo generar el horario recurrente. Entidad no encontrada: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            logger.warn("No se pudo generar el horario recurrente. Argumento inválido: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error interno al generar el horario recurrente: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "Error interno al generar el horario recurrente."));
+        }
+    }
+
+    /**
+     * Propuesta de reasignación de ómnibus para los viajes PROGRAMADO del horizonte: menos ómnibus y menos
+     * tiempo ocioso entre viajes. Solo calcula la diferencia con la asignación actual, no aplica cambios.
+     */
+    @GetMapping("/viajes/optimizacion-asignaciones")
+    @PreAuthorize("hasRole('VENDEDOR')")
+    public ResponseEntity<?> proponerOptimizacionAsignaciones(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+        try {
+            return ResponseEntity.ok(optimizadorAsignacionService.proponer(desde, hasta));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error interno al optimizar las asignaciones de ómnibus: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "Error interno al optimizar las asignaciones."));
+        }
+    }
+
     @PostMapping("/viajes/{viajeId}/finalizar")
     @PreAuthorize("hasRole('VENDEDOR')")
     public ResponseEntity<?> finalizarViaje(@PathVariable Integer viajeId) {
@@ -517,15 +679,9 @@ public class VendedorController {
             @Valid @ModelAttribute BusquedaViajesGeneralDTO criteriosBusqueda) {
         try {
             logger.info("Iniciando búsqueda de viajes con disponibilidad. Criterios: {}", criteriosBusqueda);
-            List<ViajeConDisponibilidadDTO> viajes = viajeService.buscarViajesConDisponibilidad(criteriosBusqueda);
-
-            if (viajes.isEmpty()) {
-                logger.info("No se encontraron viajes con los criterios especificados.");
-                return ResponseEntity.ok(new ArrayList<>());
-            }
-
-            logger.info("Encontrados {} viajes con disponibilidad.", viajes.size());
-            return ResponseEntity.ok(viajes);
+            PaginaCursorDTO<ViajeConDisponibilidadDTO> pagina = viajeService.buscarViajesConDisponibilidad(criteriosBusqueda);
+            logger.info("Encontrados {} viajes con disponibilidad en la página.", pagina.getContent().size());
+            return ResponseEntity.ok(pagina);
         } catch (IllegalArgumentException e) {
             logger.warn("Argumentos inválidos para la búsqueda de viajes: {}", e.getMessage());
             return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
@@ -537,13 +693,71 @@ public class VendedorController {
     }
 
 
+    // Calendario de precios: para cada día del rango, precio mínimo, cantidad de viajes y asientos libres de la ruta.
+    @GetMapping("/viajes/calendario-precios")
+    public ResponseEntity<?> obtenerCalendarioPrecios(
+            @RequestParam Long origenId,
+            @RequestParam Long destinoId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        try {
+            List<DisponibilidadDiaDTO> dias = disponibilidadRutaDiaService.calendario(origenId, destinoId, desde, hasta);
+            return ResponseEntity.ok(dias);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error interno al obtener el calendario de precios: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Error interno del servidor al obtener el calendario de precios."));
+        }
+    }
+
+    // Itinerarios con combinaciones (transbordos) entre dos localidades, resueltos en memoria.
+    @GetMapping("/viajes/buscar-combinaciones")
+    public ResponseEntity<?> buscarCombinaciones(
+            @RequestParam Long origenId,
+            @RequestParam Long destinoId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fecha,
+            @RequestParam(defaultValue = "2") int maxTransbordos,
+            @RequestParam(defaultValue = "30") int minConexionMinutos,
+            @RequestParam(defaultValue = "1") int pasajeros) {
+        try {
+            LocalDateTime ahora = LocalDateTime.now();
+            LocalDateTime desde = fecha == null || !fecha.atStartOfDay().isAfter(ahora) ? ahora : fecha.atStartOfDay();
+            List<ItinerarioDTO> itinerarios = planificadorItinerariosService.buscar(
+                    origenId, destinoId, desde, maxTransbordos, minConexionMinutos, pasajeros);
+            logger.info("Búsqueda de combinaciones {} -> {} desde {}: {} itinerarios.", origenId, destinoId, desde, itinerarios.size());
+            return ResponseEntity.ok(itinerarios);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error interno al buscar combinaciones: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("message", "Error interno del servidor al buscar combinaciones."));
+        }
+    }
+
+
     @GetMapping("/viajes/{viajeId}/detalles-asientos")
     @PreAuthorize("hasRole('VENDEDOR') or hasRole('CLIENTE')") // MODIFICADO
-    public ResponseEntity<?> obtenerDetallesViajeConAsientos(@PathVariable Integer viajeId) {
+    public ResponseEntity<?> obtenerDetallesViajeConAsientos(
+            @PathVariable Integer viajeId,
+            @RequestParam(required = false) String formato, // "bitmap" para el mapa compacto en base64
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest webRequest) {
         try {
-            logger.info("Solicitud de detalles y asientos para el viaje ID: {}", viajeId);
-            ViajeDetalleConAsientosDTO detalles = viajeService.obtenerDetallesViajeParaSeleccionAsientos(viajeId);
-            return ResponseEntity.ok(detalles);
+            boolean formatoBitmap = "bitmap".equalsIgnoreCase(formato)
+                    || (accept != null && accept.contains(MEDIA_TYPE_ASIENTOS_BITMAP));
+            // Si el mapa de asientos no cambió desde la última consulta, respondemos 304 sin leer pasajes.
+            // Cada representación tiene su propio ETag para que un caché no entregue una por la otra.
+            String etag = formatoBitmap ? etagMapaAsientos(viajeId, "-bitmap") : etagMapaAsientos(viajeId);
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
+            logger.info("Solicitud de detalles y asientos para el viaje ID: {} (formato bitmap: {})", viajeId, formatoBitmap);
+            ViajeDetalleConAsientosDTO detalles = viajeService.obtenerDetallesViajeParaSeleccionAsientos(viajeId, formatoBitmap);
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache())
+                    .varyBy(HttpHeaders.ACCEPT).body(detalles);
         } catch (EntityNotFoundException e) {
             logger.warn("Viaje no encontrado al obtener detalles y asientos: {}", e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
@@ -596,7 +810,24 @@ public class VendedorController {
 
     @PostMapping("/pasajes/comprar-multiple")
     @PreAuthorize("hasRole('VENDEDOR') or hasRole('CLIENTE')")
-    public ResponseEntity<?> comprarMultiplesPasajes(@Valid @RequestBody CompraMultiplePasajesRequestDTO compraRequestDTO) {
+    public ResponseEntity<?> comprarMultiplesPasajes(
+            @Valid @RequestBody CompraMultiplePasajesRequestDTO compraRequestDTO,
+            @RequestHeader(value = IdempotencyService.HEADER_CLAVE, required = false) String claveIdempotencia,
+            @AuthenticationPrincipal Usuario usuario) {
+        // Sin clave explícita usamos la transacción de PayPal: un mismo pago no puede confirmar dos compras.
+        String clave = claveIdempotencia;
+        if (clave == null && compraRequestDTO.getPaypalTransactionId() != null) {
+            clave = "paypal-" + compraRequestDTO.getPaypalTransactionId();
+        }
+        try {
+            return idempotencyService.ejecutar("comprar-multiple", usuario.getId(), clave, compraRequestDTO,
+                    () -> procesarCompraMultiple(compraRequestDTO));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> procesarCompraMultiple(CompraMultiplePasajesRequestDTO compraRequestDTO) {
         try {
             logger.info("API: Solicitud de compra múltiple: Viaje ID {}, Cliente ID {}, Asientos {}",
                     compraRequestDTO.getViajeId(), compraRequestDTO.getClienteId(), compraRequestDTO.getNumerosAsiento());
@@ -630,11 +861,15 @@ public class VendedorController {
 
     @GetMapping("/viajes/{viajeId}/asientos-ocupados")
     @PreAuthorize("hasRole('VENDEDOR') or hasRole('CLIENTE')") // MODIFICADO
-    public ResponseEntity<?> obtenerAsientosOcupados(@PathVariable Integer viajeId) {
+    public ResponseEntity<?> obtenerAsientosOcupados(@PathVariable Integer viajeId, WebRequest webRequest) {
         try {
+            String etag = etagMapaAsientos(viajeId);
+            if (webRequest.checkNotModified(etag)) {
+                return null;
+            }
             logger.info("API: Solicitud para obtener asientos ocupados del viaje ID: {}", viajeId);
             List<Integer> asientosOcupados = this.pasajeService.obtenerAsientosOcupados(viajeId);
-            return ResponseEntity.ok(asientosOcupados);
+            return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(asientosOcupados);
         } catch (EntityNotFoundException e) {
             logger.warn("API: Viaje no encontrado al obtener asientos ocupados (ID {}): {}", viajeId, e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
@@ -645,6 +880,34 @@ public class VendedorController {
         }
     }
 
+    private String etagMapaAsientos(Integer viajeId) {
+        return etagMapaAsientos(viajeId, "");
+    }
+
+    private String etagMapaAsientos(Integer viajeId, String sufijo) {
+        return "\"asientos-" + viajeId + "-" + viajeService.obtenerVersionAsientos(viajeId) + sufijo + "\"";
+    }
+
+    @GetMapping("/viajes/{viajeId}/asientos/stream")
+    @PreAuthorize("hasRole('VENDEDOR') or hasRole('CLIENTE')")
+    // El cuerpo tiene que ser SseEmitter (no ?) para que Spring abra el stream; los errores van solo con el status.
+    public ResponseEntity<SseEmitter> streamAsientos(@PathVariable Integer viajeId) {
+        try {
+            logger.info("API: Nueva suscripción SSE al mapa de asientos del viaje ID: {}", viajeId);
+            SseEmitter emitter = asientosStreamService.suscribir(viajeId);
+            return ResponseEntity.ok(emitter);
+        } catch (EntityNotFoundException e) {
+            logger.warn("API: Viaje no encontrado al suscribirse al mapa de asientos (ID {}): {}", viajeId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (IllegalStateException e) {
+            logger.warn("API: No se pudo abrir el stream de asientos del viaje {}: {}", viajeId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (Exception e) {
+            logger.error("API: Error interno al abrir el stream de asientos del viaje {}: {}", viajeId, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
     @GetMapping("/viajes/{viajeId}/pasajes")
     @PreAuthorize("hasAnyRole('VENDEDOR', 'ADMINISTRADOR')")
     public ResponseEntity<?> listarPasajesDeViaje(
@@ -690,21 +953,16 @@ public class VendedorController {
 
     @GetMapping("/viajes/listado-precios")
     //@PreAuthorize("hasAnyRole('VENDEDOR', 'ADMINISTRADOR')") // Accesible para Vendedores y Admins
-    public ResponseEntity<?> listarViajesConPrecio() {
+    public ResponseEntity<?> listarViajesConPrecio(
+            @RequestParam(required = false) Integer tamanoPagina,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam(required = false) EstadoViaje estado) {
         try {
-            logger.info("Solicitud para obtener el listado de todos los viajes con sus precios.");
-
-            List<ViajePrecioDTO> viajesConPrecio = viajeService.listarTodosLosViajesConPrecio();
-
-            if (viajesConPrecio.isEmpty()) {
-                logger.info("No se encontraron viajes para listar.");
-                // Devuelve una lista vacía con estado 200 OK, lo cual es correcto.
-                return ResponseEntity.ok(Collections.emptyList());
-            }
-
-            logger.info("Encontrados {} viajes en el listado.", viajesConPrecio.size());
-            return ResponseEntity.ok(viajesConPrecio);
-
+            // Siempre de a una página (la primera si no hay cursor, desde hoy); el listado completo está en /exportar.
+            return ResponseEntity.ok(viajeService.listarViajesConPrecioPaginado(tamanoPagina, cursor, desde, estado));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
         } catch (Exception e) {
             logger.error("Error interno al listar los viajes con precios: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -713,6 +971,30 @@ public class VendedorController {
     }
 
 
+    // Exportación completa del listado de precios (csv o ndjson), escrita a la respuesta a medida que se lee.
+    @GetMapping("/viajes/listado-precios/exportar")
+    public ResponseEntity<StreamingResponseBody> exportarListadoPrecios(@RequestParam(defaultValue = "csv") String formato) {
+        FormatoExportacion formatoExportacion;
+        try {
+            formatoExportacion = FormatoExportacion.desde(formato);
+        } catch (IllegalArgumentException e) {
+            // El cuerpo es StreamingResponseBody, así que el mensaje se serializa acá (incluye el formato recibido)
+            byte[] error;
+            try {
+                error = objectMapper.writeValueAsBytes(Map.of("message", e.getMessage()));
+            } catch (JsonProcessingException ex) {
+                return ResponseEntity.badRequest().build();
+            }
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(salida -> salida.write(error));
+        }
+        String archivo = "listado-precios-" + LocalDate.now() + "." + formatoExportacion.getExtension();
+        logger.info("Iniciando exportación del listado de precios en formato {}.", formatoExportacion);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(formatoExportacion.getTipoContenido() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archivo + "\"")
+                .body(salida -> exportacionViajesService.exportarListadoPrecios(formatoExportacion, salida));
+    }
+
     @GetMapping("/omnibus/estadisticas")
     @PreAuthorize("hasAnyRole('VENDEDOR', 'ADMINISTRADOR')")
     public ResponseEntity<?> obtenerEstadisticasDeOmnibus() {
@@ -743,12 +1025,35 @@ public class VendedorController {
 
     @PostMapping("/pasajes/reservar-temporalmente")
     @PreAuthorize("hasAnyRole('CLIENTE', 'VENDEDOR', 'ADMINISTRADOR')")
-    public ResponseEntity<?> reservarAsientosTemporalmente(@Valid @RequestBody CompraMultiplePasajesRequestDTO reservaRequestDTO) {
+    public ResponseEntity<?> reservarAsientosTemporalmente(
+            @Valid @RequestBody CompraMultiplePasajesRequestDTO reservaRequestDTO,
+            @RequestHeader(value = HEADER_TURNO_SALA_ESPERA, required = false) String tokenTurno) {
+        Integer viajeId = reservaRequestDTO.getViajeId();
+        // Control de admisión: solo N checkouts simultáneos por viaje, el resto queda en la sala de espera.
+        TurnoSalaEsperaDTO turno;
+        try {
+            turno = salaEsperaService.ocuparLugar(viajeId, tokenTurno);
+        } catch (SalaEsperaLlenaException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getReintentarEnSegundos()))
+                    .body(Map.of("message", e.getMessage()));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        } catch (IllegalStateException e) {
+            // El turno ya está en checkout: no se libera su lugar, sigue siendo de la otra solicitud
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
+        }
+        if (turno.getEstado() != TurnoSalaEsperaDTO.EstadoTurno.EN_CHECKOUT) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(turno.getConsultarEnSegundos()))
+                    .header(HEADER_TURNO_SALA_ESPERA, turno.getToken())
+                    .body(Map.of("message", "Hay mucha demanda para este viaje. Está en la sala de espera.", "turno", turno));
+        }
         try {
             List<PasajeResponseDTO> pasajesReservados = pasajeService.reservarAsientosTemporalmente(reservaRequestDTO);
 
             // --- CÁLCULO DE EXPIRACIÓN CORREGIDO ---
-            LocalDateTime expiracionLocal = pasajesReservados.get(0).getFechaReserva().plusMinutes(10);
+            LocalDateTime expiracionLocal = pasajesReservados.get(0).getFechaReserva().plusMinutes(ReservasCleanupService.MINUTOS_EXPIRACION);
 
             // Convertimos a UTC y luego a un string con formato ISO 8601 (con la 'Z')
             String expiracionUTCString = expiracionLocal.atOffset(ZoneOffset.UTC).toString();
@@ -760,8 +1065,44 @@ public class VendedorController {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage()));
         } catch (EntityNotFoundException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        } finally {
+            salaEsperaService.liberarLugar(viajeId, turno.getToken());
+        }
+    }
+
+    // --- SALA DE ESPERA (control de admisión por viaje) ---
+
+    @PostMapping("/viajes/{viajeId}/sala-espera")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'VENDEDOR', 'ADMINISTRADOR')")
+    public ResponseEntity<?> solicitarTurnoSalaEspera(@PathVariable Integer viajeId) {
+        try {
+            return ResponseEntity.ok(salaEsperaService.solicitarTurno(viajeId));
+        } catch (SalaEsperaLlenaException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getReintentarEnSegundos()))
+                    .body(Map.of("message", e.getMessage()));
+        } catch (EntityNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
         }
     }
+
+    @GetMapping("/viajes/{viajeId}/sala-espera/{token}")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'VENDEDOR', 'ADMINISTRADOR')")
+    public ResponseEntity<?> consultarTurnoSalaEspera(@PathVariable Integer viajeId, @PathVariable String token) {
+        try {
+            return ResponseEntity.ok(salaEsperaService.consultarTurno(viajeId, token));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/viajes/{viajeId}/sala-espera/{token}")
+    @PreAuthorize("hasAnyRole('CLIENTE', 'VENDEDOR', 'ADMINISTRADOR')")
+    public ResponseEntity<?> abandonarTurnoSalaEspera(@PathVariable Integer viajeId, @PathVariable String token) {
+        salaEsperaService.abandonarTurno(viajeId, token);
+        return ResponseEntity.noContent().build();
+    }
+
     // --- NUEVO ENDPOINT PARA OBTENER DETALLES DE UN PASAJE ---
     @GetMapping("/pasajes/{pasajeId}")
     @PreAuthorize("hasAnyRole('VENDEDOR', 'ADMINISTRADOR')")
@@ -779,7 +1120,21 @@ public class VendedorController {
 
     @PostMapping("/pasajes/{pasajeId}/devolucion")
     @PreAuthorize("hasAnyRole('VENDEDOR', 'ADMINISTRADOR')")
-    public ResponseEntity<?> devolverPasaje(@PathVariable Integer pasajeId) {
+    public ResponseEntity<?> devolverPasaje(
+            @PathVariable Integer pasajeId,
+            @RequestHeader(value = IdempotencyService.HEADER_CLAVE, required = false) String claveIdempotencia,
+            @AuthenticationPrincipal Usuario usuario) {
+        // Un pasaje solo puede reembolsarse una vez, así que su ID ya sirve como clave por defecto.
+        String clave = claveIdempotencia != null ? pasajeId + "-" + claveIdempotencia : String.valueOf(pasajeId);
+        try {
+            return idempotencyService.ejecutar("devolucion", usuario.getId(), clave, pasajeId,
+                    () -> procesarDevolucion(pasajeId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private ResponseEntity<?> procesarDevolucion(Integer pasajeId) {
         try {
             String mensaje = pasajeService.procesarDevolucionPasaje(pasajeId);
             return ResponseEntity.ok(Map.of("message", mensaje));
@@ -0,0 +1,24 @@
+// src/main/java/com/omnibus/backend/dto/AsientosCambioDTO.java
+package com.omnibus.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AsientosCambioDTO {
+
+    public enum TipoCambio {
+        RESERVADO,  // Asientos retenidos temporalmente
+        VENDIDO,    // Asientos vendidos (compra directa o confirmación de reserva)
+        LIBERADO    // Asientos libres otra vez (devolución o reserva expirada)
+    }
+
+    private Integer viajeId;
+    private TipoCambio tipo;
+    private List<Integer> numerosAsiento;
+}
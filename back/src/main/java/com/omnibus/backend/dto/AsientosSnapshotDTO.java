@@ -0,0 +1,17 @@
+// src/main/java/com/omnibus/backend/dto/AsientosSnapshotDTO.java
+package com.omnibus.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AsientosSnapshotDTO {
+    private Integer viajeId;
+    private int capacidadOmnibus;
+    private Set<Integer> numerosAsientoOcupados; // Vendidos o reservados al momento de suscribirse
+}
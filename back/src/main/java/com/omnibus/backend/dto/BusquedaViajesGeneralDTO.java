@@ -25,6 +25,11 @@ public class BusquedaViajesGeneralDTO {
     private String sortBy; // Campo por el cual ordenar (ej: "fechaSalida", "origen.nombre", "asientosDisponibles")
     private String sortDir; // Dirección del ordenamiento ("asc" o "desc")
 
+    @Min(value = 1, message = "El tamaño de página debe ser al menos 1")
+    private Integer tamanoPagina; // Tamaño de la página (por defecto 50, máximo 200)
+
+    private String cursor; // Token opaco "siguienteCursor" de la página anterior; vale solo para el mismo sortBy
+
     // Getters y Setters
 
     public Long getOrigenId() {
@@ -91,6 +96,22 @@ public class BusquedaViajesGeneralDTO {
         this.sortDir = sortDir;
     }
 
+    public Integer getTamanoPagina() {
+        return tamanoPagina;
+    }
+
+    public void setTamanoPagina(Integer tamanoPagina) {
+        this.tamanoPagina = tamanoPagina;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+
     @Override
     public String toString() {
         return "BusquedaViajesGeneralDTO{" +
@@ -102,6 +123,8 @@ public class BusquedaViajesGeneralDTO {
                 ", minAsientosDisponibles=" + minAsientosDisponibles +
                 ", sortBy='" + sortBy + '\'' +
                 ", sortDir='" + sortDir + '\'' +
+                ", tamanoPagina=" + tamanoPagina +
+                ", cursor='" + cursor + '\'' +
                 '}';
     }
 }
\ No newline at end of file
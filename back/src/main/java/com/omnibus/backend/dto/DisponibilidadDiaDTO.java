@@ -0,0 +1,26 @@
+package com.omnibus.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Resumen de un día del calendario de precios de una ruta. Los días sin viajes con lugar
+ * se devuelven con cantidadViajes = 0 y precioMinimo = null.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DisponibilidadDiaDTO {
+    private LocalDate fecha;
+    private Double precioMinimo;
+    private long cantidadViajes;
+    private long asientosLibres;
+
+    // Usado por la proyección JPQL agrupada (COUNT y SUM devuelven Long)
+    public DisponibilidadDiaDTO(LocalDate fecha, Double precioMinimo, Long cantidadViajes, Long asientosLibres) {
+        this(fecha, precioMinimo, cantidadViajes.longValue(), asientosLibres.longValue());
+    }
+}
@@ -0,0 +1,17 @@
+package com.omnibus.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FranjaNoCubiertaDTO {
+    private LocalDate fecha;
+    private LocalTime horaSalida;
+    private String motivo;
+}
@@ -0,0 +1,52 @@
+package com.omnibus.backend.dto;
+
+import jakarta.validation.constraints.FutureOrPresent;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Horario recurrente de una ruta: un viaje por cada hora de salida, en cada día de la semana indicado,
+ * entre fechaDesde y fechaHasta inclusive.
+ */
+@Getter
+@Setter
+@ToString
+public class HorarioRecurrenteRequestDTO {
+
+    @NotNull(message = "El ID de la localidad de origen es obligatorio")
+    private Long origenId;
+
+    @NotNull(message = "El ID de la localidad de destino es obligatorio")
+    private Long destinoId;
+
+    @NotEmpty(message = "Debe indicar al menos una hora de salida")
+    private List<LocalTime> horasSalida;
+
+    @NotNull(message = "La duración del viaje es obligatoria")
+    @Positive(message = "La duración del viaje debe ser positiva")
+    private Integer duracionMinutos; // La llegada puede caer al día siguiente
+
+    @NotEmpty(message = "Debe indicar al menos un día de la semana")
+    private Set<DayOfWeek> diasSemana; // MONDAY, TUESDAY, ...
+
+    @NotNull(message = "La fecha de inicio es obligatoria")
+    @FutureOrPresent(message = "La fecha de inicio no puede ser en el pasado")
+    private LocalDate fechaDesde;
+
+    @NotNull(message = "La fecha de fin es obligatoria")
+    private LocalDate fechaHasta;
+
+    @NotNull(message = "El precio del viaje es obligatorio.")
+    @Positive(message = "El precio del viaje debe ser un valor positivo.")
+    private Double precio;
+}
@@ -0,0 +1,17 @@
+package com.omnibus.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HorarioRecurrenteResultadoDTO {
+    private int franjasSolicitadas;
+    private int viajesCreados;
+    private List<Integer> viajeIds;
+    private List<FranjaNoCubiertaDTO> franjasNoCubiertas;
+}
@@ -0,0 +1,19 @@
+package com.omnibus.backend.dto;
+
+import com.omnibus.backend.model.Omnibus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InactividadConReasignacionDTO {
+    private Omnibus omnibus;
+    // Solo se programa si todos los viajes conflictivos se pudieron reasignar
+    private boolean inactividadProgramada;
+    private List<ReasignacionPropuestaDTO> reasignados; // Si no se programó, son los reemplazos encontrados, sin aplicar
+    private List<ViajeNoReasignadoDTO> noReasignados;
+}
@@ -0,0 +1,23 @@
+package com.omnibus.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Itinerario de una búsqueda con combinaciones: uno o más viajes encadenados en localidades intermedias.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ItinerarioDTO {
+    private List<TramoItinerarioDTO> tramos;
+    private int transbordos;        // tramos.size() - 1
+    private LocalDateTime fechaSalida;
+    private LocalDateTime fechaLlegada;
+    private long duracionMinutos;
+    private double precioTotal;
+}
@@ -0,0 +1,63 @@
+package com.omnibus.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Base64;
+import java.util.Collection;
+
+/**
+ * Mapa de asientos compacto para clientes móviles: un bitmap en base64 por estado.
+ * El asiento n corresponde al bit (n - 1) % 8 del byte (n - 1) / 8, empezando por el bit menos significativo.
+ * Para un ómnibus de 60 asientos cada bitmap ocupa 8 bytes (12 caracteres en base64).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MapaAsientosBitmapDTO {
+
+    public static final String CODIFICACION = "bitmap-lsb0-base64";
+
+    private String codificacion;
+    private int capacidad;
+    private String vendidos;   // Asientos con pasaje VENDIDO
+    private String reservados; // Asientos retenidos temporalmente (RESERVADO)
+    private String libres;     // Complemento de los dos anteriores dentro de la capacidad
+
+    /**
+     * Arma los bitmaps a partir de los números de asiento; los que están fuera de la capacidad se ignoran.
+     *
+     * @param vendidos   Números de asiento con pasaje VENDIDO.
+     * @param reservados Números de asiento con pasaje RESERVADO.
+     */
+    public static MapaAsientosBitmapDTO desde(int capacidad, Collection<Integer> vendidos, Collection<Integer> reservados) {
+        int largo = (capacidad + 7) >>> 3;
+        byte[] libres = new byte[largo];
+        for (int idx = 0; idx < capacidad; idx++) {
+            libres[idx >>> 3] |= (byte) (1 << (idx & 7));
+        }
+        byte[] bitsVendidos = marcar(capacidad, vendidos, libres);
+        byte[] bitsReservados = marcar(capacidad, reservados, libres);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return new MapaAsientosBitmapDTO(CODIFICACION, capacidad,
+                encoder.encodeToString(bitsVendidos),
+                encoder.encodeToString(bitsReservados),
+                encoder.encodeToString(libres));
+    }
+
+    // Bitmap con los asientos indicados; a la vez los quita de libres
+    private static byte[] marcar(int capacidad, Collection<Integer> numeros, byte[] libres) {
+        byte[] bits = new byte[libres.length];
+        for (Integer numero : numeros) {
+            if (numero == null || numero < 1 || numero > capacidad) {
+                continue;
+            }
+            int idx = numero - 1;
+            byte mascara = (byte) (1 << (idx & 7));
+            bits[idx >>> 3] |= mascara;
+            libres[idx >>> 3] &= (byte) ~mascara;
+        }
+        return bits;
+    }
+}
@@ -24,4 +24,7 @@ public class MarcarInactivoRequest {
 
     @NotNull(message = "El nuevo estado del bus no puede ser nulo.")
     private EstadoBus nuevoEstado;
-}
\ No newline at end of file
+
+    // Si es true, los viajes que se solapan con la inactividad se pasan a otros ómnibus en lugar de rechazar el pedido
+    private boolean reasignarViajes;
+}
@@ -0,0 +1,23 @@
+package com.omnibus.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OmnibusDisponibleDTO {
+    private Long omnibusId;
+    private String matricula;
+    private Integer capacidadAsientos;
+    private Long localidadId; // Dónde estará el ómnibus al inicio de la ventana
+    private String localidadNombre;
+    private LocalDateTime libreDesde; // Llegada de su último viaje anterior a la ventana; null si no tiene
+    private Integer proximoViajeId;
+    private LocalDateTime proximoViajeSalida;
+    private String proximoViajeOrigenNombre;
+    private Long minutosHolgura; // Entre el fin de la ventana y la salida del próximo viaje; null si no tiene
+}
@@ -0,0 +1,20 @@
+package com.omnibus.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página de resultados con paginación por cursor. Para pedir la siguiente página se envía
+ * siguienteCursor en el parámetro "cursor"; si es null no hay más resultados.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaginaCursorDTO<T> {
+    private List<T> content;
+    private int tamanoPagina;
+    private String siguienteCursor;
+}
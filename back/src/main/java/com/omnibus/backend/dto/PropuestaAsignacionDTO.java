@@ -0,0 +1,24 @@
+package com.omnibus.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PropuestaAsignacionDTO {
+    private LocalDateTime desde;
+    private LocalDateTime hasta;
+    private int viajesAnalizados;
+    private int viajesFijos; // Se mantienen en su ómnibus: no hay otra asignación que respete ubicación y tiempos
+    private int omnibusUsadosActual;
+    private int omnibusUsadosPropuesto;
+    private long minutosOciososActual; // Tiempo del horizonte en que los ómnibus en uso no están viajando
+    private long minutosOciososPropuesto;
+    private long duracionMs;
+    private List<ReasignacionPropuestaDTO> cambios;
+}
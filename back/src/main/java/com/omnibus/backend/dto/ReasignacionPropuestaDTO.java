@@ -0,0 +1,21 @@
+package com.omnibus.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReasignacionPropuestaDTO {
+    private Integer viajeId;
+    private LocalDateTime fechaHoraSalida;
+    private String origenNombre;
+    private String destinoNombre;
+    private Long omnibusActualId;
+    private String omnibusActualMatricula;
+    private Long omnibusPropuestoId;
+    private String omnibusPropuestoMatricula;
+}
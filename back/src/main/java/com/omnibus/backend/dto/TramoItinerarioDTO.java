@@ -0,0 +1,22 @@
+package com.omnibus.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TramoItinerarioDTO {
+    private Integer viajeId;
+    private Long origenId;
+    private String origenNombre;
+    private Long destinoId;
+    private String destinoNombre;
+    private LocalDateTime fechaSalida;
+    private LocalDateTime fechaLlegada;
+    private Double precio;
+    private int asientosDisponibles;
+}
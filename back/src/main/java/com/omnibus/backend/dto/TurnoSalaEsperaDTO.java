@@ -0,0 +1,24 @@
+package com.omnibus.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TurnoSalaEsperaDTO {
+
+    public enum EstadoTurno {
+        EN_ESPERA,   // En la cola; el cliente debe seguir consultando
+        ADMITIDO,    // Tiene un lugar reservado y puede iniciar el checkout con su token
+        EN_CHECKOUT  // Está usando su lugar (reserva de asientos en curso)
+    }
+
+    private String token;
+    private Integer viajeId;
+    private EstadoTurno estado;
+    private int posicion;               // 0 si ya fue admitido
+    private long esperaEstimadaSegundos;
+    private long consultarEnSegundos;   // Intervalo sugerido para la próxima consulta
+}
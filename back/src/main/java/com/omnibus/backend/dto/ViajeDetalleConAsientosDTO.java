@@ -1,6 +1,7 @@
 // src/main/java/com/omnibus/backend/dto/ViajeDetalleConAsientosDTO.java
 package com.omnibus.backend.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.omnibus.backend.model.EstadoViaje;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -38,5 +39,10 @@ public class ViajeDetalleConAsientosDTO {
 
     // Información de Asientos
     private int asientosDisponibles; // <--- CAMPO AÑADIDO
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Set<Integer> numerosAsientoOcupados; // Números de los asientos ya vendidos/reservados/utilizados
+
+    // Representación compacta alternativa (formato=bitmap). Solo uno de los dos campos viene informado.
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private MapaAsientosBitmapDTO mapaAsientos;
 }
\ No newline at end of file
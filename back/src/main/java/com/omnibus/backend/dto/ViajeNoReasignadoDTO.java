@@ -0,0 +1,18 @@
+package com.omnibus.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ViajeNoReasignadoDTO {
+    private Integer viajeId;
+    private LocalDateTime fechaHoraSalida;
+    private String origenNombre;
+    private String destinoNombre;
+    private String motivo;
+}
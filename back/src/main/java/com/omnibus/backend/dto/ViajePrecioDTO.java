@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 
 @Data // Incluye @Getter, @Setter, @ToString, @EqualsAndHashCode
@@ -25,4 +26,10 @@ public class ViajePrecioDTO {
     private EstadoViaje estado;
     private Double precio;
 
+    // Usado por la proyección JPQL del listado (las fechas se guardan como LocalDateTime)
+    public ViajePrecioDTO(Integer id, LocalDateTime fechaHoraSalida, LocalDateTime fechaHoraLlegada, String origenNombre,
+                          String destinoNombre, String matriculaBus, Integer asientosDisponibles, EstadoViaje estado, Double precio) {
+        this(id, fechaHoraSalida.toLocalDate(), fechaHoraSalida.toLocalTime(), fechaHoraLlegada.toLocalTime(),
+                origenNombre, destinoNombre, matriculaBus, asientosDisponibles, estado, precio);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.omnibus.backend.exception;
+
+import lombok.Getter;
+
+/**
+ * La sala de espera de un viaje alcanzó su máximo de personas en cola.
+ */
+@Getter
+public class SalaEsperaLlenaException extends RuntimeException {
+    private final long reintentarEnSegundos;
+
+    public SalaEsperaLlenaException(String message, long reintentarEnSegundos) {
+        super(message);
+        this.reintentarEnSegundos = reintentarEnSegundos;
+    }
+}
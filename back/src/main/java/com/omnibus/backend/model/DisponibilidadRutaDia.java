@@ -0,0 +1,73 @@
+package com.omnibus.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Modelo de lectura de la búsqueda de viajes: una fila por viaje, desnormalizada por ruta y día de salida,
+ * con los asientos libres ya calculados. La búsqueda es un recorrido por rango del índice
+ * (origen, destino, fecha) sin unir localidades, ómnibus ni pasajes.
+ *
+ * Se mantiene desde {@link com.omnibus.backend.service.DisponibilidadRutaDiaService} en la misma transacción
+ * que cada cambio de asientos o de ciclo de vida del viaje, y puede reconstruirse desde viaje/pasajes.
+ */
+@Entity
+@Table(name = "disponibilidad_ruta_dia", indexes = {
+        @Index(name = "idx_disponibilidad_ruta_fecha", columnList = "origen_id, destino_id, fecha, fecha_hora_salida"),
+        @Index(name = "idx_disponibilidad_salida", columnList = "fecha_hora_salida, viaje_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DisponibilidadRutaDia {
+
+    @Id
+    @Column(name = "viaje_id")
+    private Integer viajeId;
+
+    @Column(name = "origen_id", nullable = false)
+    private Long origenId;
+
+    @Column(name = "destino_id", nullable = false)
+    private Long destinoId;
+
+    @Column(name = "fecha", nullable = false)
+    private LocalDate fecha; // Día de salida
+
+    @Column(name = "fecha_hora_salida", nullable = false)
+    private LocalDateTime fechaHoraSalida;
+
+    @Column(name = "fecha_hora_llegada", nullable = false)
+    private LocalDateTime fechaHoraLlegada;
+
+    @Column(name = "origen_nombre", nullable = false)
+    private String origenNombre;
+
+    @Column(name = "destino_nombre", nullable = false)
+    private String destinoNombre;
+
+    @Column(name = "omnibus_matricula", nullable = false)
+    private String omnibusMatricula;
+
+    @Column(name = "capacidad", nullable = false)
+    private Integer capacidad;
+
+    @Column(name = "asientos_libres", nullable = false)
+    private Integer asientosLibres; // capacidad menos pasajes VENDIDO/RESERVADO
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 50)
+    private EstadoViaje estado;
+
+    @Column(name = "precio", nullable = false)
+    private Double precio;
+}
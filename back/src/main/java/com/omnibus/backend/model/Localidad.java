@@ -1,6 +1,7 @@
 package com.omnibus.backend.model;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
@@ -8,9 +9,11 @@ import jakarta.persistence.Table;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import com.omnibus.backend.service.ReferenciaCambiosListener;
 import lombok.AllArgsConstructor;
 
 @Entity
+@EntityListeners(ReferenciaCambiosListener.class) // Invalida el snapshot del listado (SnapshotReferenciaService)
 @Table(name = "localidades")
 @Data
 @NoArgsConstructor
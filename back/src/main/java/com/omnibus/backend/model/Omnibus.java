@@ -5,6 +5,7 @@ import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import com.omnibus.backend.service.ReferenciaCambiosListener;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,6 +13,7 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime; // Importar LocalDateTime
 
 @Entity
+@EntityListeners(ReferenciaCambiosListener.class) // Invalida el snapshot del listado (SnapshotReferenciaService)
 @Table(name = "omnibus")
 @Data
 @NoArgsConstructor
@@ -0,0 +1,41 @@
+package com.omnibus.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Respuesta ya entregada para una operación no repetible (compra, devolución),
+ * indexada por su clave de idempotencia. Permite contestar reintentos sin volver a ejecutarla.
+ */
+@Entity
+@Table(name = "idempotencia_respuestas", indexes = {
+        @Index(name = "idx_idempotencia_expiracion", columnList = "fecha_expiracion")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RespuestaIdempotente {
+
+    @Id
+    @Column(length = 255)
+    private String clave; // operación + ":" + ID del usuario + ":" + clave del cliente (o ID de transacción PayPal)
+
+    @Column(nullable = false, length = 64)
+    private String huella; // SHA-256 en hexadecimal del cuerpo de la solicitud original
+
+    @Column(name = "estado_http", nullable = false)
+    private int estadoHttp;
+
+    @Column(columnDefinition = "TEXT")
+    private String cuerpo; // Cuerpo de la respuesta serializado a JSON
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_expiracion", nullable = false)
+    private LocalDateTime fechaExpiracion;
+}
@@ -9,6 +9,7 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -17,6 +18,7 @@ import java.util.Objects;
 
 @Entity
 @Table(name = "viaje")
+@DynamicUpdate // Los UPDATE solo incluyen columnas modificadas: no pisan asientosDisponibles, que se actualiza de forma atómica.
 @Getter
 @Setter
 @NoArgsConstructor
@@ -64,6 +66,11 @@ public class Viaje {
     @Column(nullable = false, length = 50)
     private EstadoViaje estado;
 
+    // Versión del mapa de asientos: se incrementa (solo con UPDATE atómicos en ViajeRepository)
+    // en cada cambio de asientos o de estado. Se expone como ETag para responder 304 sin leer pasajes.
+    @Column(name = "version_asientos")
+    private Long versionAsientos;
+
     @NotNull(message = "El precio del viaje no puede ser nulo.")
     @Positive(message = "El precio del viaje debe ser un valor positivo.")
     @Column(name = "precio", nullable = false)
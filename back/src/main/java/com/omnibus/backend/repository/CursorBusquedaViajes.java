@@ -0,0 +1,50 @@
+package com.omnibus.backend.repository;
+
+import com.omnibus.backend.dto.ViajeConDisponibilidadDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición de paginación por clave (keyset) de la búsqueda pública de viajes: el valor de la clave de orden
+ * y el id del último viaje devuelto, que desempata. Igual que {@link CursorViaje}, se expone como token opaco.
+ */
+public record CursorBusquedaViajes(OrdenBusquedaViajes orden, Object valor, Integer id) {
+
+    private static final String SEPARADOR = "|";
+
+    public static CursorBusquedaViajes de(OrdenBusquedaViajes orden, ViajeConDisponibilidadDTO ultimo) {
+        return new CursorBusquedaViajes(orden, orden.valorDe(ultimo), ultimo.getId());
+    }
+
+    public String codificar() {
+        String texto = orden.name() + SEPARADOR + valor + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param orden Orden de la búsqueda actual; el cursor tiene que haberse generado con el mismo.
+     * @throws IllegalArgumentException si el token no es un cursor válido o es de otro orden.
+     */
+    public static CursorBusquedaViajes decodificar(String token, OrdenBusquedaViajes orden) {
+        OrdenBusquedaViajes ordenCursor;
+        Object valor;
+        Integer id;
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // El valor puede contener el separador (nombres de localidades): se toma lo que queda entre el primero y el último.
+            int primero = texto.indexOf(SEPARADOR);
+            int ultimo = texto.lastIndexOf(SEPARADOR);
+            ordenCursor = OrdenBusquedaViajes.valueOf(texto.substring(0, primero));
+            valor = ordenCursor.convertir(texto.substring(primero + 1, ultimo));
+            id = Integer.valueOf(texto.substring(ultimo + 1));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("El cursor de paginación no es válido.");
+        }
+        if (ordenCursor != orden) {
+            throw new IllegalArgumentException("El cursor de paginación corresponde a otro orden; vuelva a pedir la primera página.");
+        }
+        return new CursorBusquedaViajes(ordenCursor, valor, id);
+    }
+}
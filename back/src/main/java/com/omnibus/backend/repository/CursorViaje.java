@@ -0,0 +1,34 @@
+package com.omnibus.backend.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición de paginación por clave (keyset) sobre (fechaHoraSalida, id) de Viaje.
+ * Se expone al cliente como un token opaco en base64url; el cliente solo lo devuelve tal cual.
+ */
+public record CursorViaje(LocalDateTime fechaHoraSalida, Integer id) {
+
+    private static final String SEPARADOR = "|";
+
+    public String codificar() {
+        String valor = fechaHoraSalida + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException si el token no es un cursor válido.
+     */
+    public static CursorViaje decodificar(String token) {
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separador = valor.lastIndexOf(SEPARADOR);
+            return new CursorViaje(LocalDateTime.parse(valor.substring(0, separador)),
+                    Integer.valueOf(valor.substring(separador + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("El cursor de paginación no es válido.");
+        }
+    }
+}
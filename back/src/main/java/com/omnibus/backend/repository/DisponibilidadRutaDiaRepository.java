@@ -0,0 +1,102 @@
+package com.omnibus.backend.repository;
+
+import com.omnibus.backend.dto.DisponibilidadDiaDTO;
+import com.omnibus.backend.model.DisponibilidadRutaDia;
+import com.omnibus.backend.model.EstadoViaje;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface DisponibilidadRutaDiaRepository extends JpaRepository<DisponibilidadRutaDia, Integer>, DisponibilidadRutaDiaRepositoryCustom {
+
+    /**
+     * Calendario de una ruta: por día, precio mínimo, cantidad de viajes y asientos libres de los viajes
+     * a la venta que todavía tienen lugar. Un recorrido por rango del índice (origen, destino, fecha).
+     */
+    @Query("SELECT new com.omnibus.backend.dto.DisponibilidadDiaDTO(d.fecha, MIN(d.precio), COUNT(d), SUM(d.asientosLibres)) " +
+            "FROM DisponibilidadRutaDia d " +
+            "WHERE d.origenId = :origenId AND d.destinoId = :destinoId AND d.fecha BETWEEN :desde AND :hasta " +
+            "AND d.estado = com.omnibus.backend.model.EstadoViaje.PROGRAMADO AND d.asientosLibres > 0 " +
+            "GROUP BY d.fecha ORDER BY d.fecha")
+    List<DisponibilidadDiaDTO> resumirPorDia(@Param("origenId") Long origenId, @Param("destinoId") Long destinoId,
+                                             @Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    List<DisponibilidadRutaDia> findByEstadoAndFechaHoraSalidaAfter(EstadoViaje estado, LocalDateTime desde);
+
+    /**
+     * Suma (o resta, con delta negativo) asientos libres sin leer la fila antes.
+     * @return 1 si se actualizó, 0 si el viaje todavía no está en el modelo de lectura.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE DisponibilidadRutaDia d SET d.asientosLibres = d.asientosLibres + :delta WHERE d.viajeId = :viajeId")
+    int sumarAsientosLibres(@Param("viajeId") Integer viajeId, @Param("delta") int delta);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE DisponibilidadRutaDia d SET d.estado = :estado WHERE d.viajeId IN :viajeIds")
+    int actualizarEstado(@Param("viajeIds") Collection<Integer> viajeIds, @Param("estado") EstadoViaje estado);
+
+    /**
+     * Cambio de ómnibus: los asientos libres se corrigen por la diferencia de capacidad,
+     * así no se pisan reservas concurrentes.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE DisponibilidadRutaDia d SET d.asientosLibres = d.asientosLibres + (:capacidad - d.capacidad), " +
+            "d.capacidad = :capacidad, d.omnibusMatricula = :matricula WHERE d.viajeId = :viajeId")
+    int actualizarOmnibus(@Param("viajeId") Integer viajeId, @Param("matricula") String matricula, @Param("capacidad") int capacidad);
+
+    /**
+     * Copia en las filas de los viajes la matrícula y capacidad de su ómnibus actual, ajustando los asientos libres
+     * por la diferencia de capacidad, en una sola sentencia.
+     */
+    @Modifying
+    @Query(value = "UPDATE disponibilidad_ruta_dia d SET asientos_libres = d.asientos_libres + (o.capacidad_asientos - d.capacidad), " +
+            "capacidad = o.capacidad_asientos, omnibus_matricula = o.matricula " +
+            "FROM viaje v JOIN omnibus o ON o.id = v.bus_asignado_id " +
+            "WHERE v.id = d.viaje_id AND d.viaje_id IN (:viajeIds)", nativeQuery = true)
+    int actualizarOmnibusDesdeViajes(@Param("viajeIds") Collection<Integer> viajeIds);
+
+    // Bloquea los UPDATE incrementales mientras se reconstruye; los que ya se aplicaron terminan antes.
+    @Modifying
+    @Query(value = "LOCK TABLE disponibilidad_ruta_dia IN EXCLUSIVE MODE", nativeQuery = true)
+    void bloquearParaReconstruir();
+
+    /**
+     * Recalcula todas las filas desde viaje, localidades, ómnibus y pasajes activos en una sola sentencia.
+     * Debe ejecutarse después de vaciar la tabla.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO disponibilidad_ruta_dia (viaje_id, origen_id, destino_id, fecha, fecha_hora_salida, " +
+            "fecha_hora_llegada, origen_nombre, destino_nombre, omnibus_matricula, capacidad, asientos_libres, estado, precio) " +
+            "SELECT v.id, v.origen_id, v.destino_id, CAST(v.fecha_hora_salida AS DATE), v.fecha_hora_salida, " +
+            "v.fecha_hora_llegada, o.nombre, d.nombre, b.matricula, b.capacidad_asientos, " +
+            "b.capacidad_asientos - COUNT(p.id), v.estado, v.precio " +
+            "FROM viaje v JOIN localidades o ON o.id = v.origen_id JOIN localidades d ON d.id = v.destino_id " +
+            "JOIN omnibus b ON b.id = v.bus_asignado_id " +
+            "LEFT JOIN pasajes p ON p.viaje_id = v.id AND p.estado IN ('VENDIDO', 'RESERVADO') " +
+            "GROUP BY v.id, o.nombre, d.nombre, b.matricula, b.capacidad_asientos", nativeQuery = true)
+    int poblarDesdeViajes();
+
+    /**
+     * Carga las filas de los viajes indicados (altas en bloque), con el mismo cálculo que {@link #poblarDesdeViajes}.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO disponibilidad_ruta_dia (viaje_id, origen_id, destino_id, fecha, fecha_hora_salida, " +
+            "fecha_hora_llegada, origen_nombre, destino_nombre, omnibus_matricula, capacidad, asientos_libres, estado, precio) " +
+            "SELECT v.id, v.origen_id, v.destino_id, CAST(v.fecha_hora_salida AS DATE), v.fecha_hora_salida, " +
+            "v.fecha_hora_llegada, o.nombre, d.nombre, b.matricula, b.capacidad_asientos, " +
+            "b.capacidad_asientos - COUNT(p.id), v.estado, v.precio " +
+            "FROM viaje v JOIN localidades o ON o.id = v.origen_id JOIN localidades d ON d.id = v.destino_id " +
+            "JOIN omnibus b ON b.id = v.bus_asignado_id " +
+            "LEFT JOIN pasajes p ON p.viaje_id = v.id AND p.estado IN ('VENDIDO', 'RESERVADO') " +
+            "WHERE v.id IN (:viajeIds) " +
+            "GROUP BY v.id, o.nombre, d.nombre, b.matricula, b.capacidad_asientos", nativeQuery = true)
+    int poblarViajes(@Param("viajeIds") Collection<Integer> viajeIds);
+}
@@ -0,0 +1,22 @@
+package com.omnibus.backend.repository;
+
+import com.omnibus.backend.dto.BusquedaViajesGeneralDTO;
+import com.omnibus.backend.dto.ViajeConDisponibilidadDTO;
+
+import java.util.List;
+
+/**
+ * Consultas sobre el modelo de lectura que se arman dinámicamente con JPQL (no expresables como métodos derivados ni @Query fijas).
+ */
+public interface DisponibilidadRutaDiaRepositoryCustom {
+
+    /**
+     * Búsqueda pública de viajes con disponibilidad sobre el modelo de lectura: filtra por el índice
+     * (origen, destino, fecha) y aplica el mínimo de asientos, el orden y la paginación en SQL.
+     *
+     * @param despuesDe Cursor keyset: solo viajes posteriores a esta posición en el orden pedido (clave de orden, id).
+     *                  Null para empezar desde el principio.
+     * @param limite Máximo de filas a devolver, o null para devolver todas.
+     */
+    List<ViajeConDisponibilidadDTO> buscarConDisponibilidad(BusquedaViajesGeneralDTO criterios, CursorBusquedaViajes despuesDe, Integer limite);
+}
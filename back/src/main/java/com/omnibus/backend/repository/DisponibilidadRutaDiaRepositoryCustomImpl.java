@@ -0,0 +1,84 @@
+package com.omnibus.backend.repository;
+
+import com.omnibus.backend.dto.BusquedaViajesGeneralDTO;
+import com.omnibus.backend.dto.ViajeConDisponibilidadDTO;
+import com.omnibus.backend.model.EstadoViaje;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class DisponibilidadRutaDiaRepositoryCustomImpl implements DisponibilidadRutaDiaRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ViajeConDisponibilidadDTO> buscarConDisponibilidad(BusquedaViajesGeneralDTO criterios, CursorBusquedaViajes despuesDe, Integer limite) {
+        OrdenBusquedaViajes orden = OrdenBusquedaViajes.desde(criterios.getSortBy());
+        String direccion = esDescendente(criterios.getSortDir()) ? "DESC" : "ASC";
+        Map<String, Object> parametros = new HashMap<>();
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new com.omnibus.backend.dto.ViajeConDisponibilidadDTO(" +
+                        "d.viajeId, d.fechaHoraSalida, d.fechaHoraLlegada, d.origenNombre, d.destinoNombre, " +
+                        "d.omnibusMatricula, d.capacidad, d.capacidad - d.asientosLibres, d.estado, d.precio) " +
+                "FROM DisponibilidadRutaDia d WHERE 1 = 1");
+
+        if (criterios.getOrigenId() != null) {
+            jpql.append(" AND d.origenId = :origenId");
+            parametros.put("origenId", criterios.getOrigenId());
+        }
+        if (criterios.getDestinoId() != null) {
+            jpql.append(" AND d.destinoId = :destinoId");
+            parametros.put("destinoId", criterios.getDestinoId());
+        }
+        if (criterios.getFechaDesde() != null) {
+            jpql.append(" AND d.fecha >= :fechaDesde");
+            parametros.put("fechaDesde", criterios.getFechaDesde());
+        }
+        if (criterios.getFechaHasta() != null) {
+            jpql.append(" AND d.fecha <= :fechaHasta");
+            parametros.put("fechaHasta", criterios.getFechaHasta());
+        }
+        if (criterios.getEstado() != null) {
+            jpql.append(" AND d.estado = :estado");
+            parametros.put("estado", criterios.getEstado());
+        } else {
+            jpql.append(" AND d.estado IN :estadosVigentes");
+            parametros.put("estadosVigentes", List.of(EstadoViaje.PROGRAMADO, EstadoViaje.EN_CURSO));
+        }
+        if (despuesDe != null) {
+            // Keyset sobre (clave de orden, id): no depende de cuántas filas quedaron atrás.
+            String comparador = "DESC".equals(direccion) ? "<" : ">";
+            String expresion = orden.expresion();
+            jpql.append(" AND (").append(expresion).append(' ').append(comparador).append(" :cursorValor" +
+                    " OR (").append(expresion).append(" = :cursorValor AND d.viajeId ").append(comparador).append(" :cursorId))");
+            parametros.put("cursorValor", despuesDe.valor());
+            parametros.put("cursorId", despuesDe.id());
+        }
+
+        if (criterios.getMinAsientosDisponibles() != null) {
+            jpql.append(" AND d.asientosLibres >= :minAsientos");
+            parametros.put("minAsientos", criterios.getMinAsientosDisponibles());
+        }
+
+        // Se agrega el ID del viaje como desempate para que la paginación sea estable.
+        jpql.append(" ORDER BY ").append(orden.expresion()).append(' ').append(direccion)
+                .append(", d.viajeId ").append(direccion);
+
+        TypedQuery<ViajeConDisponibilidadDTO> query = entityManager.createQuery(jpql.toString(), ViajeConDisponibilidadDTO.class);
+        parametros.forEach(query::setParameter);
+
+        if (limite != null) {
+            query.setMaxResults(limite);
+        }
+        return query.getResultList();
+    }
+
+    private static boolean esDescendente(String sortDir) {
+        return sortDir != null && !"asc".equalsIgnoreCase(sortDir);
+    }
+}
@@ -4,9 +4,12 @@ package com.omnibus.backend.repository;
 import com.omnibus.backend.model.EstadoBus; // Asegúrate de importar
 import com.omnibus.backend.model.Omnibus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,6 +20,15 @@ public interface OmnibusRepository extends JpaRepository<Omnibus, Long> {
     // NUEVO MÉTODO
     List<Omnibus> findByEstado(EstadoBus estado);
 
+    List<Omnibus> findByEstadoInOrderByIdAsc(Collection<EstadoBus> estados);
+
+    // Listado completo con la localidad actual en la misma consulta (se serializa entera)
+    @Query("SELECT o FROM Omnibus o JOIN FETCH o.localidadActual ORDER BY o.id")
+    List<Omnibus> findAllConLocalidad();
+
+    @Query("SELECT o FROM Omnibus o JOIN FETCH o.localidadActual WHERE o.estado = :estado ORDER BY o.id")
+    List<Omnibus> findByEstadoConLocalidad(@Param("estado") EstadoBus estado);
+
     List<Omnibus> findByEstadoAndInicioInactividadProgramadaBefore(EstadoBus estado, LocalDateTime ahora);
 
     // Busca buses INACTIVOS (en mantenimiento o fuera de servicio) cuya hora de fin de inactividad ya pasó
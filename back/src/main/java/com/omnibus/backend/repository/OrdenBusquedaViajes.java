@@ -0,0 +1,62 @@
+package com.omnibus.backend.repository;
+
+import com.omnibus.backend.dto.ViajeConDisponibilidadDTO;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Órdenes admitidos por la búsqueda pública de viajes. Cada uno es una expresión JPQL fija sobre el modelo de
+ * lectura (nunca se concatena el texto del usuario) y sabe extraer de una fila el valor que va en el cursor.
+ */
+public enum OrdenBusquedaViajes {
+
+    FECHA_SALIDA("fechasalida", "d.fechaHoraSalida", ViajeConDisponibilidadDTO::getFechaSalida, LocalDateTime::parse),
+    ORIGEN_NOMBRE("origennombre", "LOWER(d.origenNombre)",
+            viaje -> viaje.getOrigenNombre().toLowerCase(Locale.ROOT), valor -> valor),
+    DESTINO_NOMBRE("destinonombre", "LOWER(d.destinoNombre)",
+            viaje -> viaje.getDestinoNombre().toLowerCase(Locale.ROOT), valor -> valor),
+    ASIENTOS_DISPONIBLES("asientosdisponibles", "d.asientosLibres",
+            ViajeConDisponibilidadDTO::getAsientosDisponibles, Integer::valueOf),
+    PRECIO("precio", "d.precio", ViajeConDisponibilidadDTO::getPrecio, Double::valueOf);
+
+    private final String clave;
+    private final String expresion;
+    private final Function<ViajeConDisponibilidadDTO, Object> valorDe;
+    private final Function<String, Object> convertir;
+
+    OrdenBusquedaViajes(String clave, String expresion, Function<ViajeConDisponibilidadDTO, Object> valorDe,
+                        Function<String, Object> convertir) {
+        this.clave = clave;
+        this.expresion = expresion;
+        this.valorDe = valorDe;
+        this.convertir = convertir;
+    }
+
+    /**
+     * Orden pedido en sortBy (sin distinguir mayúsculas); si no se indica o no se reconoce, por fecha de salida.
+     */
+    public static OrdenBusquedaViajes desde(String sortBy) {
+        if (sortBy != null) {
+            for (OrdenBusquedaViajes orden : values()) {
+                if (orden.clave.equalsIgnoreCase(sortBy)) {
+                    return orden;
+                }
+            }
+        }
+        return FECHA_SALIDA;
+    }
+
+    public String expresion() {
+        return expresion;
+    }
+
+    public Object valorDe(ViajeConDisponibilidadDTO viaje) {
+        return valorDe.apply(viaje);
+    }
+
+    Object convertir(String valor) {
+        return convertir.apply(valor);
+    }
+}
@@ -5,10 +5,16 @@ import com.omnibus.backend.model.EstadoPasaje;
 import com.omnibus.backend.model.Pasaje;
 import com.omnibus.backend.model.Usuario;
 import com.omnibus.backend.model.Viaje;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,12 +29,39 @@ public interface PasajeRepository extends JpaRepository<Pasaje, Integer> {
 
     List<Pasaje> findByDatosViajeAndEstadoIn(Viaje datosViaje, List<EstadoPasaje> estados);
 
+    /**
+     * Proyección mínima de un asiento ocupado: solo número y estado, sin hidratar el Pasaje
+     * ni sus relaciones. Se usa para construir el mapa de asientos de un viaje.
+     */
+    interface AsientoOcupado {
+        Integer getNumeroAsiento();
+        EstadoPasaje getEstado();
+    }
+
+    @Query("SELECT p.numeroAsiento AS numeroAsiento, p.estado AS estado FROM Pasaje p " +
+            "WHERE p.datosViaje.id = :viajeId AND p.estado IN :estados AND p.numeroAsiento IS NOT NULL")
+    List<AsientoOcupado> findAsientosOcupadosByViajeId(@Param("viajeId") Integer viajeId,
+                                                       @Param("estados") Collection<EstadoPasaje> estados);
+
     List<Pasaje> findByDatosViajeId(Integer viajeId);
 
     List<Pasaje> findByClienteId(Long clienteId);
 
     List<Pasaje> findByEstadoAndFechaReservaBefore(EstadoPasaje estado, LocalDateTime fecha);
 
+    List<Pasaje> findByEstado(EstadoPasaje estado);
+
+    @Query("SELECT p.id FROM Pasaje p WHERE p.estado = :estado AND p.fechaReserva < :fecha")
+    List<Integer> findIdsByEstadoAndFechaReservaBefore(@Param("estado") EstadoPasaje estado, @Param("fecha") LocalDateTime fecha);
+
+    /**
+     * Bloquea (SELECT ... FOR UPDATE) las reservas indicadas que todavía estén en estado RESERVADO,
+     * para liberarlas sin competir con una confirmación de compra simultánea.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Pasaje p WHERE p.id IN :ids AND p.estado = com.omnibus.backend.model.EstadoPasaje.RESERVADO")
+    List<Pasaje> findReservasParaLiberar(@Param("ids") Collection<Integer> ids);
+
 
     // --- MÉTODO ANTIGUO ELIMINADO ---
     // Optional<Pasaje> findByDatosViajeAndNumeroAsiento(Viaje viaje, Integer numeroAsiento);
@@ -73,4 +106,40 @@ public interface PasajeRepository extends JpaRepository<Pasaje, Integer> {
     long countByDatosViajeAndClienteAndEstado(Viaje viaje, Usuario cliente, EstadoPasaje estado);
 
     List<Pasaje> findByDatosViajeAndEstado(Viaje viaje, EstadoPasaje estado);
+
+    // --- MÉTODOS POR CONJUNTO DE ASIENTOS (una sola consulta para toda la compra) ---
+
+    /**
+     * Devuelve los pasajes de un viaje para un conjunto de asientos y estados, con cliente,
+     * viaje, localidades y ómnibus ya cargados para armar los DTOs sin consultas extra.
+     *
+     * @param viaje El viaje.
+     * @param numerosAsiento Los asientos de la compra/reserva.
+     * @param estados Los estados a considerar.
+     * @return Los pasajes encontrados, ordenados por número de asiento.
+     */
+    @Query("SELECT p FROM Pasaje p JOIN FETCH p.cliente JOIN FETCH p.datosViaje v " +
+            "JOIN FETCH v.origen JOIN FETCH v.destino JOIN FETCH v.busAsignado " +
+            "WHERE v = :viaje AND p.numeroAsiento IN :numerosAsiento AND p.estado IN :estados " +
+            "ORDER BY p.numeroAsiento")
+    List<Pasaje> findByDatosViajeAndNumeroAsientoInAndEstadoIn(@Param("viaje") Viaje viaje,
+                                                                @Param("numerosAsiento") Collection<Integer> numerosAsiento,
+                                                                @Param("estados") Collection<EstadoPasaje> estados);
+
+    /**
+     * Confirma en bloque las reservas de un cliente: pasa de RESERVADO a VENDIDO todos los asientos
+     * indicados en un único UPDATE. Solo afecta reservas vigentes del propio cliente.
+     *
+     * @return La cantidad de pasajes confirmados. Si es menor que la cantidad de asientos pedidos,
+     *         alguna reserva expiró o no pertenece al cliente.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Pasaje p SET p.estado = com.omnibus.backend.model.EstadoPasaje.VENDIDO, " +
+            "p.fechaReserva = null, p.paypalTransactionId = :paypalTransactionId " +
+            "WHERE p.datosViaje = :viaje AND p.cliente.id = :clienteId AND p.numeroAsiento IN :numerosAsiento " +
+            "AND p.estado = com.omnibus.backend.model.EstadoPasaje.RESERVADO")
+    int confirmarReservas(@Param("viaje") Viaje viaje,
+                          @Param("clienteId") Long clienteId,
+                          @Param("numerosAsiento") Collection<Integer> numerosAsiento,
+                          @Param("paypalTransactionId") String paypalTransactionId);
 }
\ No newline at end of file
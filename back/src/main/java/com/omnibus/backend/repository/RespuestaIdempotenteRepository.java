@@ -0,0 +1,18 @@
+package com.omnibus.backend.repository;
+
+import com.omnibus.backend.model.RespuestaIdempotente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface RespuestaIdempotenteRepository extends JpaRepository<RespuestaIdempotente, String> {
+
+    @Modifying
+    @Query("DELETE FROM RespuestaIdempotente r WHERE r.fechaExpiracion < :fecha")
+    int eliminarExpiradas(@Param("fecha") LocalDateTime fecha);
+}
@@ -1,19 +1,28 @@
 package com.omnibus.backend.repository;
 
+import com.omnibus.backend.dto.ViajePrecioDTO;
 import com.omnibus.backend.model.EstadoViaje;
 import com.omnibus.backend.model.Omnibus;
 import com.omnibus.backend.model.Viaje;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ViajeRepository extends JpaRepository<Viaje, Integer>, JpaSpecificationExecutor<Viaje> {
+public interface ViajeRepository extends JpaRepository<Viaje, Integer>, JpaSpecificationExecutor<Viaje>, ViajeRepositoryCustom {
 
     // --- QUERIES DE LÓGICA DE NEGOCIO (con JOIN FETCH para evitar errores LAZY) ---
 
@@ -72,9 +81,16 @@ public interface ViajeRepository extends JpaRepository<Viaje, Integer>, JpaSpeci
     @Query("SELECT v FROM Viaje v JOIN FETCH v.busAsignado b JOIN FETCH b.localidadActual JOIN FETCH v.origen JOIN FETCH v.destino WHERE v.estado = com.omnibus.backend.model.EstadoViaje.PROGRAMADO AND v.fechaHoraLlegada <= :ahora")
     List<Viaje> findScheduledTripsToFinishDirectly(@Param("ahora") LocalDateTime ahora);
 
+    // Viajes que el optimizador puede reasignar, con lo necesario para armar la propuesta
+    @Query("SELECT v FROM Viaje v JOIN FETCH v.origen JOIN FETCH v.destino JOIN FETCH v.busAsignado " +
+            "WHERE v.estado = com.omnibus.backend.model.EstadoViaje.PROGRAMADO " +
+            "AND v.fechaHoraSalida >= :desde AND v.fechaHoraSalida <= :hasta ORDER BY v.fechaHoraSalida, v.id")
+    List<Viaje> findProgramadosEntre(@Param("desde") LocalDateTime desde, @Param("hasta") LocalDateTime hasta);
+
     // --- Métodos de búsqueda simple ---
     // Estos no necesitan JOIN FETCH a menos que se usen en contextos donde se accede a las relaciones.
     List<Viaje> findByEstado(EstadoViaje estado);
+    List<Viaje> findByEstadoIn(Collection<EstadoViaje> estados);
     List<Viaje> findByBusAsignado_Id(Long omnibusId);
     List<Viaje> findByBusAsignado_IdAndEstadoIn(Long busId, List<EstadoViaje> estados);
 
@@ -84,4 +100,68 @@ public interface ViajeRepository extends JpaRepository<Viaje, Integer>, JpaSpeci
     @Query("SELECT v FROM Viaje v WHERE v.estado = com.omnibus.backend.model.EstadoViaje.VENTAS_CERRADAS AND v.fechaHoraSalida <= :ahora")
     List<Viaje> findTripsToStart(@Param("ahora") LocalDateTime ahora);
 
-}
\ No newline at end of file
+    // --- CONTADOR DE ASIENTOS (UPDATE condicional, sin read-modify-write) ---
+
+    /**
+     * Descuenta asientos del contador solo si quedan suficientes.
+     * @return 1 si se descontaron, 0 si no había asientos suficientes (o el viaje no existe).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Viaje v SET v.asientosDisponibles = v.asientosDisponibles - :cantidad, " +
+            "v.versionAsientos = COALESCE(v.versionAsientos, 0) + 1 " +
+            "WHERE v.id = :viajeId AND v.asientosDisponibles >= :cantidad")
+    int decrementarAsientosDisponibles(@Param("viajeId") Integer viajeId, @Param("cantidad") int cantidad);
+
+    /**
+     * Devuelve asientos al contador (devoluciones, reservas expiradas).
+     * @return 1 si se actualizó el viaje, 0 si no existe.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Viaje v SET v.asientosDisponibles = v.asientosDisponibles + :cantidad, " +
+            "v.versionAsientos = COALESCE(v.versionAsientos, 0) + 1 WHERE v.id = :viajeId")
+    int incrementarAsientosDisponibles(@Param("viajeId") Integer viajeId, @Param("cantidad") int cantidad);
+
+    // --- VERSIÓN DEL MAPA DE ASIENTOS (ETag) ---
+
+    /**
+     * Incrementa la versión del mapa de asientos de los viajes indicados, para cambios que no pasan
+     * por el contador (confirmación de reservas, reasignación de ómnibus, cambios de estado).
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Viaje v SET v.versionAsientos = COALESCE(v.versionAsientos, 0) + 1 WHERE v.id IN :viajeIds")
+    int incrementarVersionAsientos(@Param("viajeIds") Collection<Integer> viajeIds);
+
+    @Query("SELECT COALESCE(v.versionAsientos, 0) FROM Viaje v WHERE v.id = :viajeId")
+    Optional<Long> findVersionAsientosById(@Param("viajeId") Integer viajeId);
+
+
+    /**
+     * Listado de viajes con precio, paginado por clave (fechaHoraSalida, id): devuelve los viajes
+     * posteriores a la posición dada en ese orden. Para la primera página se pasa una posición inicial.
+     * Solo devuelve viajes en alguno de los estados indicados.
+     */
+    @Query("SELECT new com.omnibus.backend.dto.ViajePrecioDTO(v.id, v.fechaHoraSalida, v.fechaHoraLlegada, " +
+            "o.nombre, d.nombre, b.matricula, v.asientosDisponibles, v.estado, v.precio) " +
+            "FROM Viaje v JOIN v.origen o JOIN v.destino d JOIN v.busAsignado b " +
+            "WHERE (v.fechaHoraSalida > :salida OR (v.fechaHoraSalida = :salida AND v.id > :id)) " +
+            "AND v.estado IN :estados " +
+            "ORDER BY v.fechaHoraSalida ASC, v.id ASC")
+    List<ViajePrecioDTO> listarConPrecioDespuesDe(@Param("salida") LocalDateTime salida,
+                                                  @Param("id") Integer id,
+                                                  @Param("estados") Collection<EstadoViaje> estados,
+                                                  Limit limite);
+
+    /**
+     * Listado completo con precios como stream de solo avance: el driver trae las filas de a bloques
+     * (fetch size) y no se arma la lista en memoria. Debe consumirse dentro de una transacción y cerrarse.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.omnibus.backend.dto.ViajePrecioDTO(v.id, v.fechaHoraSalida, v.fechaHoraLlegada, " +
+            "o.nombre, d.nombre, b.matricula, v.asientosDisponibles, v.estado, v.precio) " +
+            "FROM Viaje v JOIN v.origen o JOIN v.destino d JOIN v.busAsignado b " +
+            "ORDER BY v.fechaHoraSalida ASC, v.id ASC")
+    Stream<ViajePrecioDTO> streamListadoConPrecio();
+}
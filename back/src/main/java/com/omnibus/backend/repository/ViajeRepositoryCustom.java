@@ -0,0 +1,28 @@
+package com.omnibus.backend.repository;
+
+import com.omnibus.backend.model.Omnibus;
+import com.omnibus.backend.model.Viaje;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operaciones sobre viajes que no pasan por el contexto de persistencia de JPA.
+ */
+public interface ViajeRepositoryCustom {
+
+    /**
+     * Inserta los viajes con sentencias JDBC en lote y asigna a cada uno el id generado.
+     * Los viajes no quedan administrados por el EntityManager; sus relaciones (origen, destino, ómnibus)
+     * deben ser entidades ya persistidas.
+     */
+    void insertarEnLote(List<Viaje> viajes);
+
+    /**
+     * Cambia el ómnibus de varios viajes PROGRAMADOS con sentencias JDBC en lote. Los asientos disponibles se
+     * ajustan por la diferencia de capacidad dentro del mismo UPDATE, así no se pisan ventas concurrentes, y se
+     * incrementa la versión de asientos. Si algún viaje ya no está PROGRAMADO se lanza IllegalStateException.
+     * Los viajes recibidos quedan fuera del EntityManager y deben volver a leerse.
+     */
+    void reasignarOmnibusEnLote(Map<Viaje, Omnibus> reasignaciones);
+}
@@ -0,0 +1,108 @@
+package com.omnibus.backend.repository;
+
+import com.omnibus.backend.model.Omnibus;
+import com.omnibus.backend.model.Viaje;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ViajeRepositoryCustomImpl implements ViajeRepositoryCustom {
+
+    // El id es IDENTITY, así que Hibernate inserta de a una fila; acá se agrupan en lotes de este tamaño.
+    private static final int TAMANO_LOTE = 500;
+
+    private static final String INSERTAR =
+            "INSERT INTO viaje (fecha_hora_salida, fecha_hora_llegada, origen_id, destino_id, bus_asignado_id, " +
+            "asientos_disponibles, pasajes_vendidos, estado, precio, version_asientos) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // La subconsulta lee el ómnibus anterior: en el SET todas las expresiones ven la fila original.
+    private static final String REASIGNAR =
+            "UPDATE viaje SET asientos_disponibles = asientos_disponibles + " +
+            "(? - (SELECT o.capacidad_asientos FROM omnibus o WHERE o.id = viaje.bus_asignado_id)), " +
+            "bus_asignado_id = ?, version_asientos = COALESCE(version_asientos, 0) + 1 " +
+            "WHERE id = ? AND estado = 'PROGRAMADO'";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public void insertarEnLote(List<Viaje> viajes) {
+        if (viajes.isEmpty()) {
+            return;
+        }
+        // Misma conexión y transacción que el resto de la unidad de trabajo
+        entityManager.unwrap(Session.class).doWork(conexion -> {
+            try (PreparedStatement sentencia = conexion.prepareStatement(INSERTAR, new String[]{"id"})) {
+                for (int desde = 0; desde < viajes.size(); desde += TAMANO_LOTE) {
+                    List<Viaje> lote = viajes.subList(desde, Math.min(desde + TAMANO_LOTE, viajes.size()));
+                    for (Viaje viaje : lote) {
+                        agregarAlLote(sentencia, viaje);
+                    }
+                    sentencia.executeBatch();
+                    try (ResultSet claves = sentencia.getGeneratedKeys()) {
+                        for (Viaje viaje : lote) {
+                            if (!claves.next()) {
+                                throw new SQLException("La base no devolvió el id de todos los viajes insertados.");
+                            }
+                            viaje.setId(claves.getInt(1));
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private static void agregarAlLote(PreparedStatement sentencia, Viaje viaje) throws SQLException {
+        sentencia.setTimestamp(1, Timestamp.valueOf(viaje.getFechaHoraSalida()));
+        sentencia.setTimestamp(2, Timestamp.valueOf(viaje.getFechaHoraLlegada()));
+        sentencia.setLong(3, viaje.getOrigen().getId());
+        sentencia.setLong(4, viaje.getDestino().getId());
+        sentencia.setLong(5, viaje.getBusAsignado().getId());
+        sentencia.setInt(6, viaje.getAsientosDisponibles());
+        sentencia.setInt(7, viaje.getPasajesVendidos());
+        sentencia.setString(8, viaje.getEstado().name());
+        sentencia.setDouble(9, viaje.getPrecio());
+        sentencia.setLong(10, viaje.getVersionAsientos());
+        sentencia.addBatch();
+    }
+
+    @Override
+    public void reasignarOmnibusEnLote(Map<Viaje, Omnibus> reasignaciones) {
+        if (reasignaciones.isEmpty()) {
+            return;
+        }
+        Session sesion = entityManager.unwrap(Session.class);
+        sesion.flush();
+        List<Map.Entry<Viaje, Omnibus>> cambios = new ArrayList<>(reasignaciones.entrySet());
+        sesion.doWork(conexion -> {
+            try (PreparedStatement sentencia = conexion.prepareStatement(REASIGNAR)) {
+                for (int desde = 0; desde < cambios.size(); desde += TAMANO_LOTE) {
+                    List<Map.Entry<Viaje, Omnibus>> lote = cambios.subList(desde, Math.min(desde + TAMANO_LOTE, cambios.size()));
+                    for (Map.Entry<Viaje, Omnibus> cambio : lote) {
+                        sentencia.setInt(1, cambio.getValue().getCapacidadAsientos());
+                        sentencia.setLong(2, cambio.getValue().getId());
+                        sentencia.setInt(3, cambio.getKey().getId());
+                        sentencia.addBatch();
+                    }
+                    int[] filas = sentencia.executeBatch();
+                    for (int i = 0; i < filas.length; i++) {
+                        if (filas[i] == 0) {
+                            throw new IllegalStateException("El viaje con ID " + lote.get(i).getKey().getId() +
+                                    " ya no está PROGRAMADO. No se puede reasignar.");
+                        }
+                    }
+                }
+            }
+        });
+        reasignaciones.keySet().forEach(entityManager::detach);
+    }
+}
@@ -0,0 +1,255 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.dto.AsientosCambioDTO;
+import com.omnibus.backend.dto.AsientosSnapshotDTO;
+import com.omnibus.backend.model.Viaje;
+import com.omnibus.backend.repository.ViajeRepository;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stream (Server-Sent Events) de cambios en el mapa de asientos de cada viaje.
+ * Al suscribirse se envía un evento "snapshot" con los asientos ocupados (desde {@link SeatInventory},
+ * sin consultar pasajes) y luego eventos "cambio" con los asientos que se reservan, venden o liberan.
+ * El snapshot puede incluir asientos reclamados por una transacción todavía abierta: si esa transacción
+ * hace rollback se envía un cambio LIBERADO con esos asientos.
+ *
+ * Los cambios se publican recién después del commit. Cada suscriptor tiene su propia cola de eventos y
+ * los envíos se hacen en un pool de hilos, de a un suscriptor por vez: una compra no espera a que se escriba
+ * a los clientes conectados, y un cliente lento solo demora sus propios eventos. El snapshot es siempre el
+ * primero de la cola. Si un cliente acumula más de {@value #MAX_PENDIENTES} eventos sin recibirlos se cierra
+ * su conexión; al reconectarse recibe un snapshot nuevo.
+ */
+@Service
+public class AsientosStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsientosStreamService.class);
+    private static final long TIMEOUT_SSE_MS = 30 * 60 * 1000L;
+    private static final int HILOS_ENVIO = 8;
+    private static final int MAX_PENDIENTES = 256;
+    // Eventos que se envían a un suscriptor antes de ceder el hilo a los demás
+    private static final int LOTE_ENVIO = 32;
+
+    private final ViajeRepository viajeRepository;
+    private final SeatInventory seatInventory;
+    private final Map<Integer, List<Suscriptor>> suscriptoresPorViaje = new ConcurrentHashMap<>();
+    private final ExecutorService envios;
+
+    @Autowired
+    public AsientosStreamService(ViajeRepository viajeRepository, SeatInventory seatInventory) {
+        this.viajeRepository = viajeRepository;
+        this.seatInventory = seatInventory;
+        AtomicInteger hilos = new AtomicInteger();
+        this.envios = Executors.newFixedThreadPool(HILOS_ENVIO, r -> {
+            Thread hilo = new Thread(r, "asientos-sse-" + hilos.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        seatInventory.alRevertirReclamo((viajeId, asientos) ->
+                enviar(viajeId, "cambio", new AsientosCambioDTO(viajeId, AsientosCambioDTO.TipoCambio.LIBERADO, asientos)));
+    }
+
+    @Transactional(readOnly = true)
+    public SseEmitter suscribir(Integer viajeId) {
+        Viaje viaje = viajeRepository.findById(viajeId)
+                .orElseThrow(() -> new EntityNotFoundException("Viaje no encontrado con ID: " + viajeId));
+
+        SseEmitter emitter = new SseEmitter(TIMEOUT_SSE_MS);
+        Suscriptor suscriptor = new Suscriptor(viajeId, emitter);
+        emitter.onCompletion(() -> quitar(suscriptor));
+        emitter.onTimeout(() -> quitar(suscriptor));
+        emitter.onError(e -> quitar(suscriptor));
+
+        // Se registra antes de leer el snapshot para no perder cambios que lleguen en el medio; quedan en la cola
+        // detrás del snapshot (que ya los incluye) y volver a aplicarlos no cambia el mapa.
+        List<Suscriptor> suscriptores = suscriptoresPorViaje.computeIfAbsent(viajeId, id -> new CopyOnWriteArrayList<>());
+        suscriptores.add(suscriptor);
+        AsientosSnapshotDTO snapshot = new AsientosSnapshotDTO(
+                viajeId,
+                seatInventory.obtenerCapacidad(viaje),
+                seatInventory.obtenerAsientosOcupados(viaje));
+        suscriptor.iniciar(e -> e.send(SseEmitter.event().name("snapshot").data(snapshot)));
+        logger.debug("Nuevo suscriptor al mapa de asientos del viaje ID {}. Suscriptores: {}", viajeId, suscriptores.size());
+        return emitter;
+    }
+
+    /**
+     * Publica un cambio de asientos. Si hay una transacción activa se envía tras el commit
+     * (un rollback no genera eventos).
+     */
+    public void publicarCambio(Integer viajeId, AsientosCambioDTO.TipoCambio tipo, Collection<Integer> numerosAsiento) {
+        if (numerosAsiento.isEmpty()) {
+            return;
+        }
+        AsientosCambioDTO cambio = new AsientosCambioDTO(viajeId, tipo, List.copyOf(numerosAsiento));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    enviar(viajeId, "cambio", cambio);
+                }
+            });
+        } else {
+            enviar(viajeId, "cambio", cambio);
+        }
+    }
+
+    /**
+     * Avisa a los suscriptores que el mapa cambió por completo (p. ej. reasignación de ómnibus)
+     * y deben volver a suscribirse para recibir un snapshot nuevo. Se cierran sus conexiones.
+     */
+    public void invalidar(Integer viajeId) {
+        List<Suscriptor> suscriptores = suscriptoresPorViaje.remove(viajeId);
+        if (suscriptores == null) {
+            return;
+        }
+        for (Suscriptor suscriptor : suscriptores) {
+            suscriptor.encolar(e -> {
+                e.send(SseEmitter.event().name("invalidado").data(Map.of("viajeId", viajeId)));
+                e.complete();
+            });
+        }
+    }
+
+    // Mantiene vivas las conexiones detrás de proxies y descarta las que ya se cerraron.
+    @Scheduled(fixedRate = 25000)
+    public void enviarHeartbeat() {
+        suscriptoresPorViaje.values().forEach(suscriptores ->
+                suscriptores.forEach(suscriptor -> suscriptor.encolar(e -> e.send(SseEmitter.event().comment("ping")))));
+    }
+
+    @PreDestroy
+    public void detener() {
+        envios.shutdownNow();
+    }
+
+    private void enviar(Integer viajeId, String nombreEvento, Object datos) {
+        List<Suscriptor> suscriptores = suscriptoresPorViaje.get(viajeId);
+        if (suscriptores == null) {
+            return;
+        }
+        for (Suscriptor suscriptor : suscriptores) {
+            suscriptor.encolar(e -> e.send(SseEmitter.event().name(nombreEvento).data(datos)));
+        }
+    }
+
+    private void quitar(Suscriptor suscriptor) {
+        suscriptoresPorViaje.computeIfPresent(suscriptor.viajeId, (id, suscriptores) -> {
+            suscriptores.remove(suscriptor);
+            return suscriptores.isEmpty() ? null : suscriptores;
+        });
+    }
+
+    @FunctionalInterface
+    private interface Envio {
+        void aplicar(SseEmitter emitter) throws IOException;
+    }
+
+    /**
+     * Un cliente conectado y su cola de eventos pendientes. A lo sumo una tarea del pool vacía la cola a la vez,
+     * así los eventos salen en orden; encolar nunca bloquea a quien publica.
+     */
+    private final class Suscriptor {
+        private final Integer viajeId;
+        private final SseEmitter emitter;
+        private final Deque<Envio> pendientes = new ArrayDeque<>(); // Protegida por this
+        private boolean iniciado;   // El snapshot ya está en la cola
+        private boolean programado; // Hay una tarea del pool vaciando la cola
+        private boolean descartado; // Cola desbordada: se cierra la conexión sin enviar nada más
+
+        private Suscriptor(Integer viajeId, SseEmitter emitter) {
+            this.viajeId = viajeId;
+            this.emitter = emitter;
+        }
+
+        private synchronized void iniciar(Envio snapshot) {
+            pendientes.addFirst(snapshot);
+            iniciado = true;
+            programar();
+        }
+
+        private synchronized void encolar(Envio envio) {
+            if (descartado) {
+                return;
+            }
+            if (pendientes.size() >= MAX_PENDIENTES) {
+                // La tarea que está vaciando la cola cierra la conexión cuando termine el envío en curso
+                logger.warn("Suscriptor del viaje ID {} con {} eventos sin enviar. Se cierra la conexión.", viajeId, pendientes.size());
+                descartado = true;
+                pendientes.clear();
+                quitar(this);
+                return;
+            }
+            pendientes.add(envio);
+            programar();
+        }
+
+        // Debe llamarse con el cerrojo tomado
+        private void programar() {
+            if (iniciado && !programado && !pendientes.isEmpty()) {
+                programado = true;
+                envios.execute(this::vaciar);
+            }
+        }
+
+        private void vaciar() {
+            boolean vacia = false;
+            for (int enviados = 0; enviados < LOTE_ENVIO && !vacia; enviados++) {
+                Envio envio;
+                synchronized (this) {
+                    envio = descartado ? null : pendientes.poll();
+                    if (envio == null) {
+                        programado = false;
+                        vacia = true;
+                        continue;
+                    }
+                }
+                try {
+                    envio.aplicar(emitter);
+                } catch (IOException | IllegalStateException e) {
+                    synchronized (this) {
+                        descartado = true;
+                        pendientes.clear();
+                        programado = false;
+                    }
+                    quitar(this);
+                    emitter.completeWithError(e);
+                    return;
+                }
+            }
+            boolean cerrar;
+            synchronized (this) {
+                cerrar = descartado;
+                if (!vacia) {
+                    // Lote completo: se vuelve a la cola del pool detrás de los demás suscriptores
+                    programado = false;
+                    programar();
+                }
+            }
+            if (cerrar) {
+                emitter.completeWithError(new IOException("El cliente no recibe los eventos del mapa de asientos."));
+            }
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.model.Localidad;
+import com.omnibus.backend.repository.LocalidadRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Autocompletado de localidades por prefijo, sin distinguir mayúsculas ni tildes ("paysa" encuentra "Paysandú").
+ *
+ * Se indexan el nombre completo, cada palabra del nombre en adelante ("del este" encuentra "Punta del Este")
+ * y el departamento. Cada nodo del árbol de prefijos guarda ya ordenadas sus {@value #MAX_RESULTADOS} mejores
+ * coincidencias, así una búsqueda es recorrer tantos nodos como letras tenga el texto.
+ *
+ * El índice es inmutable y se reemplaza completo: las altas (individuales o por CSV) se acumulan después
+ * del commit y el índice se reconstruye una sola vez, en la siguiente búsqueda.
+ *
+ * Se carga al terminar de crear los singletons, antes de que arranque el servidor web, igual que la agenda
+ * de la flota: ninguna búsqueda ve el índice vacío.
+ */
+@Service
+public class AutocompletadoLocalidadesService implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutocompletadoLocalidadesService.class);
+    public static final int MAX_RESULTADOS = 20;
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{Alnum}]+");
+
+    // Orden de las coincidencias: primero por dónde coincide el texto, después alfabético
+    private static final int RANGO_NOMBRE = 0;
+    private static final int RANGO_PALABRA_NOMBRE = 1;
+    private static final int RANGO_DEPARTAMENTO = 2;
+
+    private record Coincidencia(int rango, String nombreNormalizado, Localidad localidad) {
+    }
+
+    private static final Comparator<Coincidencia> ORDEN = Comparator.comparingInt(Coincidencia::rango)
+            .thenComparing(Coincidencia::nombreNormalizado)
+            .thenComparing(c -> c.localidad().getId());
+
+    private static final class Nodo {
+        private final Map<Character, Nodo> hijos = new HashMap<>();
+        private final List<Coincidencia> mejores = new ArrayList<>(); // Ordenadas, a lo sumo MAX_RESULTADOS
+
+        private void ofrecer(Coincidencia coincidencia) {
+            for (int i = 0; i < mejores.size(); i++) {
+                if (mejores.get(i).localidad().getId().equals(coincidencia.localidad().getId())) {
+                    if (ORDEN.compare(mejores.get(i), coincidencia) <= 0) {
+                        return;
+                    }
+                    mejores.remove(i);
+                    break;
+                }
+            }
+            int posicion = Collections.binarySearch(mejores, coincidencia, ORDEN);
+            posicion = posicion < 0 ? -posicion - 1 : posicion;
+            if (posicion < MAX_RESULTADOS) {
+                mejores.add(posicion, coincidencia);
+                if (mejores.size() > MAX_RESULTADOS) {
+                    mejores.remove(MAX_RESULTADOS);
+                }
+            }
+        }
+    }
+
+    private final LocalidadRepository localidadRepository;
+
+    private final Object cerrojo = new Object();
+    private List<Localidad> localidades = List.of(); // Protegida por cerrojo
+    private volatile Nodo raiz = new Nodo();
+    private volatile boolean desactualizado;
+
+    @Autowired
+    public AutocompletadoLocalidadesService(LocalidadRepository localidadRepository) {
+        this.localidadRepository = localidadRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        cargar();
+    }
+
+    public void cargar() {
+        List<Localidad> todas = localidadRepository.findAll();
+        synchronized (cerrojo) {
+            localidades = new ArrayList<>(todas);
+            reconstruir();
+        }
+    }
+
+    /**
+     * Hasta {@code limite} localidades cuyo nombre, alguna palabra del nombre o el departamento empiezan con {@code texto}.
+     *
+     * @throws IllegalArgumentException si el límite no está entre 1 y {@value #MAX_RESULTADOS}.
+     */
+    public List<Localidad> buscar(String texto, int limite) {
+        if (limite < 1 || limite > MAX_RESULTADOS) {
+            throw new IllegalArgumentException("El límite debe estar entre 1 y " + MAX_RESULTADOS + ".");
+        }
+        String prefijo = normalizar(texto);
+        if (prefijo.isEmpty()) {
+            return List.of();
+        }
+        if (desactualizado) {
+            synchronized (cerrojo) {
+                if (desactualizado) {
+                    reconstruir();
+                }
+            }
+        }
+        Nodo nodo = raiz;
+        for (int i = 0; i < prefijo.length() && nodo != null; i++) {
+            nodo = nodo.hijos.get(prefijo.charAt(i));
+        }
+        if (nodo == null) {
+            return List.of();
+        }
+        return nodo.mejores.stream().limit(limite).map(Coincidencia::localidad).toList();
+    }
+
+    /**
+     * Alta de una localidad. Con una transacción activa se aplica recién después del commit.
+     */
+    public void agregar(Localidad localidad) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    marcarAlta(localidad);
+                }
+            });
+        } else {
+            marcarAlta(localidad);
+        }
+    }
+
+    private void marcarAlta(Localidad localidad) {
+        synchronized (cerrojo) {
+            List<Localidad> nuevas = new ArrayList<>(localidades);
+            nuevas.add(localidad);
+            localidades = nuevas;
+            desactualizado = true;
+        }
+    }
+
+    // Debe llamarse con el cerrojo tomado
+    private void reconstruir() {
+        Nodo nuevaRaiz = new Nodo();
+        for (Localidad localidad : localidades) {
+            String nombre = normalizar(localidad.getNombre());
+            indexar(nuevaRaiz, nombre, new Coincidencia(RANGO_NOMBRE, nombre, localidad));
+            Coincidencia porPalabra = new Coincidencia(RANGO_PALABRA_NOMBRE, nombre, localidad);
+            for (int i = nombre.indexOf(' '); i >= 0; i = nombre.indexOf(' ', i + 1)) {
+                indexar(nuevaRaiz, nombre.substring(i + 1), porPalabra);
+            }
+            String departamento = normalizar(localidad.getDepartamento());
+            Coincidencia porDepartamento = new Coincidencia(RANGO_DEPARTAMENTO, nombre, localidad);
+            indexar(nuevaRaiz, departamento, porDepartamento);
+            for (int i = departamento.indexOf(' '); i >= 0; i = departamento.indexOf(' ', i + 1)) {
+                indexar(nuevaRaiz, departamento.substring(i + 1), porDepartamento);
+            }
+        }
+        raiz = nuevaRaiz;
+        desactualizado = false;
+        logger.info("Índice de autocompletado de localidades reconstruido con {} localidades.", localidades.size());
+    }
+
+    private static void indexar(Nodo raiz, String termino, Coincidencia coincidencia) {
+        Nodo nodo = raiz;
+        for (int i = 0; i < termino.length(); i++) {
+            nodo = nodo.hijos.computeIfAbsent(termino.charAt(i), c -> new Nodo());
+            nodo.ofrecer(coincidencia);
+        }
+    }
+
+    /**
+     * Minúsculas, sin tildes ni diéresis y con un solo espacio entre palabras: "  Paysandú (Centro)" → "paysandu centro".
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String sinMarcas = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARADORES.matcher(sinMarcas.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+}
@@ -0,0 +1,206 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.dto.BusquedaViajesGeneralDTO;
+import com.omnibus.backend.dto.ViajeConDisponibilidadDTO;
+import com.omnibus.backend.model.EstadoViaje;
+import com.omnibus.backend.model.Viaje;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Caché de resultados de buscar-disponibles, acotado por cantidad de entradas (LRU) y por tiempo de vida.
+ *
+ * La clave es la búsqueda normalizada (mismos filtros escritos de distinta forma comparten entrada).
+ * Cuando cambia un viaje (asientos, creación, reasignación, estado) se descartan solo las entradas
+ * cuya ruta y rango de fechas incluyen a ese viaje; el resto del caché sigue sirviendo lecturas.
+ *
+ * Las invalidaciones se aplican después del commit. Para no guardar un resultado leído antes de un
+ * cambio que se confirmó mientras tanto, cada lectura anota la secuencia de invalidaciones al empezar
+ * y solo se guarda si ninguna invalidación posterior la afecta.
+ */
+@Service
+public class BusquedaViajesCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusquedaViajesCache.class);
+    private static final int MAX_INVALIDACIONES_RECIENTES = 512;
+
+    @Value("${app.busqueda-cache.max-entradas:500}")
+    private int maxEntradas;
+
+    @Value("${app.busqueda-cache.ttl-segundos:30}")
+    private long ttlSegundos;
+
+    // LinkedHashMap en orden de acceso: al superar el máximo se descarta la búsqueda usada hace más tiempo.
+    private final Map<Clave, Entrada> entradas = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Clave, Entrada> eldest) {
+            return size() > maxEntradas;
+        }
+    };
+    private final Deque<Invalidacion> invalidacionesRecientes = new ArrayDeque<>();
+    private long secuencia;
+
+    /**
+     * Devuelve el resultado guardado para la búsqueda o lo calcula con {@code consulta} y lo guarda.
+     *
+     * @param limite Filas pedidas a la consulta (null si no está paginada); forma parte de la clave.
+     */
+    public List<ViajeConDisponibilidadDTO> obtener(BusquedaViajesGeneralDTO criterios, Integer limite,
+                                                   Supplier<List<ViajeConDisponibilidadDTO>> consulta) {
+        Clave clave = Clave.de(criterios, limite);
+        long ahora = System.currentTimeMillis();
+        long secuenciaInicial;
+        synchronized (this) {
+            Entrada entrada = entradas.get(clave);
+            if (entrada != null && entrada.vence > ahora) {
+                return entrada.resultados;
+            }
+            if (entrada != null) {
+                entradas.remove(clave);
+            }
+            secuenciaInicial = secuencia;
+        }
+
+        List<ViajeConDisponibilidadDTO> resultados = List.copyOf(consulta.get());
+
+        synchronized (this) {
+            if (!invalidadaDesde(clave, secuenciaInicial)) {
+                entradas.put(clave, new Entrada(resultados, ahora + ttlSegundos * 1000));
+            }
+        }
+        return resultados;
+    }
+
+    /**
+     * Descarta las búsquedas que pueden incluir al viaje. Si hay una transacción activa
+     * se aplica tras el commit (un rollback no invalida nada).
+     */
+    public void invalidarViaje(Viaje viaje) {
+        invalidarViajes(List.of(viaje));
+    }
+
+    public void invalidarViajes(Collection<Viaje> viajes) {
+        if (viajes.isEmpty()) {
+            return;
+        }
+        List<Invalidacion> cambios = viajes.stream()
+                .map(v -> new Invalidacion(v.getOrigen().getId(), v.getDestino().getId(),
+                        v.getFechaHoraSalida().toLocalDate(), 0))
+                .toList();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(cambios);
+                }
+            });
+        } else {
+            aplicar(cambios);
+        }
+    }
+
+    /**
+     * Descarta todo el caché (p. ej. tras reconstruir el modelo de lectura). También se aplica tras el commit.
+     */
+    public void limpiar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    vaciar();
+                }
+            });
+        } else {
+            vaciar();
+        }
+    }
+
+    private synchronized void vaciar() {
+        entradas.clear();
+        // Ninguna lectura en curso puede guardarse: se descarta el historial que usa invalidadaDesde.
+        secuencia++;
+        invalidacionesRecientes.clear();
+    }
+
+    private synchronized void aplicar(List<Invalidacion> cambios) {
+        int antes = entradas.size();
+        for (Invalidacion cambio : cambios) {
+            entradas.keySet().removeIf(cambio::afecta);
+            registrar(cambio);
+        }
+        logger.debug("Caché de búsqueda: {} entradas invalidadas por {} viajes modificados.", antes - entradas.size(), cambios.size());
+    }
+
+    private void registrar(Invalidacion cambio) {
+        secuencia++;
+        invalidacionesRecientes.addLast(new Invalidacion(cambio.origenId, cambio.destinoId, cambio.fecha, secuencia));
+        if (invalidacionesRecientes.size() > MAX_INVALIDACIONES_RECIENTES) {
+            invalidacionesRecientes.removeFirst();
+        }
+    }
+
+    private boolean invalidadaDesde(Clave clave, long secuenciaInicial) {
+        if (secuencia == secuenciaInicial) {
+            return false;
+        }
+        Invalidacion masAntigua = invalidacionesRecientes.peekFirst();
+        if (masAntigua == null || masAntigua.secuencia > secuenciaInicial + 1) {
+            // Se perdió parte del historial: no se puede asegurar que el resultado siga vigente.
+            return true;
+        }
+        for (Invalidacion cambio : invalidacionesRecientes) {
+            if (cambio.secuencia > secuenciaInicial && cambio.afecta(clave)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Búsqueda normalizada. El estado no se usa para decidir invalidaciones: un cambio de estado
+     * puede sacar o meter al viaje en cualquier filtro, así que se invalida por ruta y fecha.
+     */
+    private record Clave(Long origenId, Long destinoId, LocalDate fechaDesde, LocalDate fechaHasta,
+                         EstadoViaje estado, Integer minAsientos, String sortBy, boolean descendente,
+                         String cursor, Integer limite) {
+
+        static Clave de(BusquedaViajesGeneralDTO c, Integer limite) {
+            Integer minAsientos = c.getMinAsientosDisponibles() != null && c.getMinAsientosDisponibles() > 0
+                    ? c.getMinAsientosDisponibles() : null;
+            String sortBy = c.getSortBy() != null ? c.getSortBy().toLowerCase() : "fechasalida";
+            boolean descendente = c.getSortDir() != null && !"asc".equalsIgnoreCase(c.getSortDir());
+            return new Clave(c.getOrigenId(), c.getDestinoId(), c.getFechaDesde(), c.getFechaHasta(),
+                    c.getEstado(), minAsientos, sortBy, descendente, c.getCursor(), limite);
+        }
+    }
+
+    private record Entrada(List<ViajeConDisponibilidadDTO> resultados, long vence) {
+    }
+
+    /**
+     * Viaje modificado, por ruta y día de salida.
+     */
+    private record Invalidacion(Long origenId, Long destinoId, LocalDate fecha, long secuencia) {
+
+        boolean afecta(Clave clave) {
+            // Los filtros ausentes en la búsqueda abarcan cualquier valor.
+            return (clave.origenId() == null || clave.origenId().equals(origenId))
+                    && (clave.destinoId() == null || clave.destinoId().equals(destinoId))
+                    && (clave.fechaDesde() == null || !fecha.isBefore(clave.fechaDesde()))
+                    && (clave.fechaHasta() == null || !fecha.isAfter(clave.fechaHasta()));
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.dto.BusquedaViajesGeneralDTO;
+import com.omnibus.backend.dto.DisponibilidadDiaDTO;
+import com.omnibus.backend.dto.ViajeConDisponibilidadDTO;
+import com.omnibus.backend.model.DisponibilidadRutaDia;
+import com.omnibus.backend.model.EstadoViaje;
+import com.omnibus.backend.model.Viaje;
+import com.omnibus.backend.repository.CursorBusquedaViajes;
+import com.omnibus.backend.repository.DisponibilidadRutaDiaRepository;
+import com.omnibus.backend.repository.ViajeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Mantiene el modelo de lectura {@link DisponibilidadRutaDia} que usa la búsqueda de viajes.
+ *
+ * pasajeService, ViajeService y ViajeStatusScheduler avisan aquí cada cambio de asientos o de ciclo de vida
+ * del viaje, dentro de su propia transacción: si la operación se revierte, el modelo de lectura también.
+ * Los asientos se ajustan con UPDATE incrementales (sin leer la fila), y cada aviso descarta además
+ * las búsquedas cacheadas de esa ruta y fecha y actualiza la red de combinaciones en memoria.
+ * Los cambios de ciclo de vida y de ómnibus se reflejan también en la agenda de la flota.
+ *
+ * El modelo de lectura y la red de combinaciones se cargan al terminar de crear los singletons, antes de que
+ * arranque el servidor web, igual que la agenda de la flota: ninguna búsqueda de itinerarios ve la red vacía.
+ */
+@Service
+public class DisponibilidadRutaDiaService implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(DisponibilidadRutaDiaService.class);
+    public static final int MAX_DIAS_CALENDARIO = 62;
+
+    private final DisponibilidadRutaDiaRepository disponibilidadRepository;
+    private final ViajeRepository viajeRepository;
+    private final BusquedaViajesCache busquedaViajesCache;
+    private final PlanificadorItinerariosService planificadorItinerariosService;
+    private final LineaTiempoFlotaService lineaTiempoFlotaService;
+    private final TransactionTemplate transaccion;
+
+    @Autowired
+    public DisponibilidadRutaDiaService(DisponibilidadRutaDiaRepository disponibilidadRepository,
+                                        ViajeRepository viajeRepository,
+                                        BusquedaViajesCache busquedaViajesCache,
+                                        PlanificadorItinerariosService planificadorItinerariosService,
+                                        LineaTiempoFlotaService lineaTiempoFlotaService,
+                                        PlatformTransactionManager transactionManager) {
+        this.disponibilidadRepository = disponibilidadRepository;
+        this.viajeRepository = viajeRepository;
+        this.busquedaViajesCache = busquedaViajesCache;
+        this.planificadorItinerariosService = planificadorItinerariosService;
+        this.lineaTiempoFlotaService = lineaTiempoFlotaService;
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // Llamada interna: no pasa por el proxy transaccional de inicializar()
+        transaccion.executeWithoutResult(estado -> inicializar());
+    }
+
+    /**
+     * Búsqueda de viajes con disponibilidad sobre el modelo de lectura, servida desde el caché cuando se puede.
+     * Ver {@link DisponibilidadRutaDiaRepository#buscarConDisponibilidad}.
+     */
+    @Transactional(readOnly = true)
+    public List<ViajeConDisponibilidadDTO> buscar(BusquedaViajesGeneralDTO criterios, CursorBusquedaViajes despuesDe, Integer limite) {
+        return busquedaViajesCache.obtener(criterios, limite,
+                () -> disponibilidadRepository.buscarConDisponibilidad(criterios, despuesDe, limite));
+    }
+
+    /**
+     * Calendario de precios de una ruta: un resumen por cada día del rango (incluidos los días sin viajes),
+     * calculado con una sola consulta agrupada.
+     */
+    @Transactional(readOnly = true)
+    public List<DisponibilidadDiaDTO> calendario(Long origenId, Long destinoId, LocalDate desde, LocalDate hasta) {
+        if (hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("La fecha hasta no puede ser anterior a la fecha desde.");
+        }
+        if (ChronoUnit.DAYS.between(desde, hasta) >= MAX_DIAS_CALENDARIO) {
+            throw new IllegalArgumentException("El calendario admite como máximo " + MAX_DIAS_CALENDARIO + " días.");
+        }
+        Map<LocalDate, DisponibilidadDiaDTO> conViajes = disponibilidadRepository.resumirPorDia(origenId, destinoId, desde, hasta)
+                .stream()
+                .collect(Collectors.toMap(DisponibilidadDiaDTO::getFecha, dia -> dia));
+        return desde.datesUntil(hasta.plusDays(1))
+                .map(fecha -> conViajes.getOrDefault(fecha, new DisponibilidadDiaDTO(fecha, null, 0, 0)))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Alta de un viaje recién creado (sin pasajes).
+     */
+    public void registrarViaje(Viaje viaje) {
+        Integer capacidad = viaje.getBusAsignado().getCapacidadAsientos();
+        DisponibilidadRutaDia fila = disponibilidadRepository.save(DisponibilidadRutaDia.builder()
+                .viajeId(viaje.getId())
+                .origenId(viaje.getOrigen().getId())
+                .destinoId(viaje.getDestino().getId())
+                .fecha(viaje.getFechaHoraSalida().toLocalDate())
+                .fechaHoraSalida(viaje.getFechaHoraSalida())
+                .fechaHoraLlegada(viaje.getFechaHoraLlegada())
+                .origenNombre(viaje.getOrigen().getNombre())
+                .destinoNombre(viaje.getDestino().getNombre())
+                .omnibusMatricula(viaje.getBusAsignado().getMatricula())
+                .capacidad(capacidad)
+                .asientosLibres(capacidad)
+                .estado(viaje.getEstado())
+                .precio(viaje.getPrecio())
+                .build());
+        busquedaViajesCache.invalidarViaje(viaje);
+        if (fila.getEstado() == EstadoViaje.PROGRAMADO) {
+            planificadorItinerariosService.agregarViaje(fila);
+        }
+        lineaTiempoFlotaService.actualizar(viaje);
+    }
+
+    /**
+     * Alta en bloque de viajes recién creados (horarios recurrentes): una sola sentencia para el modelo
+     * de lectura y una sola actualización de la red de combinaciones.
+     */
+    public void registrarViajes(List<Viaje> viajes) {
+        if (viajes.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = viajes.stream().map(Viaje::getId).collect(Collectors.toList());
+        disponibilidadRepository.poblarViajes(ids);
+        busquedaViajesCache.invalidarViajes(viajes);
+        planificadorItinerariosService.agregarViajes(disponibilidadRepository.findAllById(ids).stream()
+                .filter(fila -> fila.getEstado() == EstadoViaje.PROGRAMADO)
+                .collect(Collectors.toList()));
+        lineaTiempoFlotaService.actualizar(viajes);
+    }
+
+    /**
+     * Asientos ocupados (delta negativo) o liberados (delta positivo) en el viaje.
+     */
+    public void registrarCambioAsientos(Viaje viaje, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (disponibilidadRepository.sumarAsientosLibres(viaje.getId(), delta) == 0) {
+            logger.warn("El viaje ID {} no está en el modelo de lectura de disponibilidad. Ejecute la reconstrucción.", viaje.getId());
+        }
+        busquedaViajesCache.invalidarViaje(viaje);
+        planificadorItinerariosService.sumarAsientos(viaje.getId(), delta);
+    }
+
+    /**
+     * Cambio de estado de los viajes (cierre de ventas, inicio, finalización). Toma el estado ya asignado a cada entidad.
+     */
+    public void registrarCambioEstado(Collection<Viaje> viajes) {
+        if (viajes.isEmpty()) {
+            return;
+        }
+        viajes.stream()
+                .collect(Collectors.groupingBy(Viaje::getEstado, Collectors.mapping(Viaje::getId, Collectors.toList())))
+                .forEach((estado, ids) -> disponibilidadRepository.actualizarEstado(ids, estado));
+        busquedaViajesCache.invalidarViajes(viajes);
+        // Solo los viajes PROGRAMADO se pueden combinar: cualquier otro estado ya no vende pasajes.
+        planificadorItinerariosService.quitarViajes(viajes.stream()
+                .filter(v -> v.getEstado() != EstadoViaje.PROGRAMADO)
+                .map(Viaje::getId)
+                .collect(Collectors.toList()));
+        lineaTiempoFlotaService.actualizar(viajes);
+    }
+
+    /**
+     * Reasignación a otro ómnibus: cambian la matrícula, la capacidad y, por la diferencia, los asientos libres.
+     */
+    public void registrarCambioOmnibus(Viaje viaje) {
+        disponibilidadRepository.actualizarOmnibus(viaje.getId(),
+                viaje.getBusAsignado().getMatricula(), viaje.getBusAsignado().getCapacidadAsientos());
+        busquedaViajesCache.invalidarViaje(viaje);
+        planificadorItinerariosService.fijarAsientos(viaje.getId(), viaje.getAsientosDisponibles());
+        lineaTiempoFlotaService.actualizar(viaje);
+    }
+
+    /**
+     * Cambio de ómnibus de varios viajes a la vez; las filas se actualizan en una sola sentencia.
+     */
+    public void registrarCambiosOmnibus(List<Viaje> viajes) {
+        if (viajes.isEmpty()) {
+            return;
+        }
+        disponibilidadRepository.actualizarOmnibusDesdeViajes(viajes.stream().map(Viaje::getId).collect(Collectors.toList()));
+        busquedaViajesCache.invalidarViajes(viajes);
+        viajes.forEach(viaje -> planificadorItinerariosService.fijarAsientos(viaje.getId(), viaje.getAsientosDisponibles()));
+        lineaTiempoFlotaService.actualizar(viajes);
+    }
+
+    /**
+     * Recalcula el modelo de lectura completo desde viaje y pasajes (recuperación ante inconsistencias).
+     * Los cambios de asientos concurrentes esperan a que termine y se aplican después.
+     *
+     * @return La cantidad de viajes cargados.
+     */
+    @Transactional
+    public int reconstruir() {
+        disponibilidadRepository.bloquearParaReconstruir();
+        disponibilidadRepository.deleteAllInBatch();
+        int filas = disponibilidadRepository.poblarDesdeViajes();
+        busquedaViajesCache.limpiar();
+        cargarPlanificador();
+        logger.info("Modelo de lectura de disponibilidad reconstruido con {} viajes.", filas);
+        return filas;
+    }
+
+    /**
+     * Primer arranque (o tabla desfasada): se carga el modelo de lectura desde los viajes existentes.
+     */
+    @Transactional
+    public void inicializar() {
+        long viajes = viajeRepository.count();
+        long filas = disponibilidadRepository.count();
+        if (viajes != filas) {
+            logger.warn("El modelo de lectura de disponibilidad tiene {} filas y hay {} viajes. Se reconstruye.", filas, viajes);
+            reconstruir();
+        } else {
+            cargarPlanificador();
+        }
+    }
+
+    private void cargarPlanificador() {
+        List<DisponibilidadRutaDia> programados = disponibilidadRepository.findByEstadoAndFechaHoraSalidaAfter(
+                EstadoViaje.PROGRAMADO, LocalDateTime.now());
+        planificadorItinerariosService.cargar(programados);
+    }
+}
@@ -0,0 +1,119 @@
+package com.omnibus.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.omnibus.backend.dto.ViajePrecioDTO;
+import com.omnibus.backend.repository.ViajeRepository;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Exportación del listado de viajes con precios (CSV o NDJSON) escrita directamente a la respuesta.
+ * Las filas se leen con un stream de solo avance y se escriben una por una, así la memoria usada
+ * no depende de la cantidad de viajes.
+ */
+@Service
+public class ExportacionViajesService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportacionViajesService.class);
+    private static final String[] COLUMNAS_CSV = {"id", "fecha", "horaSalida", "horaLlegada", "origen", "destino",
+            "matriculaBus", "asientosDisponibles", "estado", "precio"};
+
+    public enum FormatoExportacion {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String tipoContenido;
+        private final String extension;
+
+        FormatoExportacion(String tipoContenido, String extension) {
+            this.tipoContenido = tipoContenido;
+            this.extension = extension;
+        }
+
+        public String getTipoContenido() {
+            return tipoContenido;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @throws IllegalArgumentException si el formato no es csv ni ndjson.
+         */
+        public static FormatoExportacion desde(String valor) {
+            for (FormatoExportacion formato : values()) {
+                if (formato.name().equalsIgnoreCase(valor)) {
+                    return formato;
+                }
+            }
+            throw new IllegalArgumentException("Formato de exportación no soportado: " + valor + ". Use csv o ndjson.");
+        }
+    }
+
+    private final ViajeRepository viajeRepository;
+    private final ObjectWriter escritorJson;
+
+    @Autowired
+    public ExportacionViajesService(ViajeRepository viajeRepository, ObjectMapper objectMapper) {
+        this.viajeRepository = viajeRepository;
+        this.escritorJson = objectMapper.writerFor(ViajePrecioDTO.class);
+    }
+
+    /**
+     * Escribe el listado completo en el formato pedido. No cierra {@code salida}.
+     *
+     * @return La cantidad de viajes exportados.
+     */
+    @Transactional(readOnly = true)
+    public long exportarListadoPrecios(FormatoExportacion formato, OutputStream salida) throws IOException {
+        Writer escritor = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        long filas;
+        try (Stream<ViajePrecioDTO> viajes = viajeRepository.streamListadoConPrecio()) {
+            filas = formato == FormatoExportacion.CSV
+                    ? escribirCsv(viajes.iterator(), escritor)
+                    : escribirNdjson(viajes.iterator(), escritor);
+        }
+        escritor.flush();
+        logger.info("Exportación del listado de precios ({}) finalizada: {} viajes.", formato, filas);
+        return filas;
+    }
+
+    private long escribirCsv(Iterator<ViajePrecioDTO> viajes, Writer escritor) throws IOException {
+        CSVPrinter csv = new CSVPrinter(escritor, CSVFormat.DEFAULT.builder().setHeader(COLUMNAS_CSV).build());
+        long filas = 0;
+        while (viajes.hasNext()) {
+            ViajePrecioDTO v = viajes.next();
+            csv.printRecord(v.getId(), v.getFecha(), v.getHoraSalida(), v.getHoraLlegada(), v.getOrigenNombre(),
+                    v.getDestinoNombre(), v.getMatriculaBus(), v.getAsientosDisponibles(), v.getEstado(), v.getPrecio());
+            filas++;
+        }
+        csv.flush();
+        return filas;
+    }
+
+    private long escribirNdjson(Iterator<ViajePrecioDTO> viajes, Writer escritor) throws IOException {
+        long filas = 0;
+        while (viajes.hasNext()) {
+            escritor.write(escritorJson.writeValueAsString(viajes.next()));
+            escritor.write('\n');
+            filas++;
+        }
+        return filas;
+    }
+}
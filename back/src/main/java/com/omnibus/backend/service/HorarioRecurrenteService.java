@@ -0,0 +1,166 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.dto.FranjaNoCubiertaDTO;
+import com.omnibus.backend.dto.HorarioRecurrenteRequestDTO;
+import com.omnibus.backend.dto.HorarioRecurrenteResultadoDTO;
+import com.omnibus.backend.model.EstadoBus;
+import com.omnibus.backend.model.EstadoViaje;
+import com.omnibus.backend.model.Localidad;
+import com.omnibus.backend.model.Omnibus;
+import com.omnibus.backend.model.Viaje;
+import com.omnibus.backend.repository.LocalidadRepository;
+import com.omnibus.backend.repository.OmnibusRepository;
+import com.omnibus.backend.repository.ViajeRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Alta en bloque de los viajes de un horario recurrente (ruta, horas de salida, días de la semana y rango de fechas).
+ *
+ * Los ómnibus se asignan con una {@link PasadaAsignacion} en orden cronológico sobre todas las franjas, con las
+ * mismas reglas que {@link ViajeService#crearViaje}; un mismo ómnibus puede cubrir varias franjas del horario.
+ * Los viajes se insertan en lote y las franjas sin ómnibus se informan en el resultado en lugar de abortar el alta.
+ */
+@Service
+public class HorarioRecurrenteService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HorarioRecurrenteService.class);
+    public static final int MAX_FRANJAS = 5000;
+    public static final int MAX_DIAS = 366;
+
+    // A diferencia de crearViaje, también los ASIGNADO_A_VIAJE: la agenda dice si están libres en cada franja
+    private static final Set<EstadoBus> ESTADOS_ASIGNABLES = Set.of(EstadoBus.OPERATIVO, EstadoBus.ASIGNADO_A_VIAJE);
+
+    private record Franja(LocalDateTime salida, LocalDateTime llegada) {
+    }
+
+    private final ViajeRepository viajeRepository;
+    private final LocalidadRepository localidadRepository;
+    private final OmnibusRepository omnibusRepository;
+    private final LineaTiempoFlotaService lineaTiempoFlotaService;
+    private final DisponibilidadRutaDiaService disponibilidadRutaDiaService;
+
+    @Autowired
+    public HorarioRecurrenteService(ViajeRepository viajeRepository,
+                                    LocalidadRepository localidadRepository,
+                                    OmnibusRepository omnibusRepository,
+                                    LineaTiempoFlotaService lineaTiempoFlotaService,
+                                    DisponibilidadRutaDiaService disponibilidadRutaDiaService) {
+        this.viajeRepository = viajeRepository;
+        this.localidadRepository = localidadRepository;
+        this.omnibusRepository = omnibusRepository;
+        this.lineaTiempoFlotaService = lineaTiempoFlotaService;
+        this.disponibilidadRutaDiaService = disponibilidadRutaDiaService;
+    }
+
+    /**
+     * @throws IllegalArgumentException si el horario es inválido o supera {@value #MAX_FRANJAS} franjas.
+     * @throws EntityNotFoundException si no existe el origen o el destino.
+     */
+    @Transactional
+    public HorarioRecurrenteResultadoDTO generar(HorarioRecurrenteRequestDTO solicitud) {
+        logger.info("Generando horario recurrente: {}", solicitud);
+        if (solicitud.getOrigenId().equals(solicitud.getDestinoId())) {
+            throw new IllegalArgumentException("La localidad de origen y destino no pueden ser la misma.");
+        }
+        if (solicitud.getFechaHasta().isBefore(solicitud.getFechaDesde())) {
+            throw new IllegalArgumentException("La fecha de fin no puede ser anterior a la fecha de inicio.");
+        }
+        if (ChronoUnit.DAYS.between(solicitud.getFechaDesde(), solicitud.getFechaHasta()) >= MAX_DIAS) {
+            throw new IllegalArgumentException("El rango de fechas no puede superar " + MAX_DIAS + " días.");
+        }
+        List<Franja> franjas = expandir(solicitud);
+        if (franjas.size() > MAX_FRANJAS) {
+            throw new IllegalArgumentException("El horario genera " + franjas.size() + " viajes; el máximo por solicitud es " + MAX_FRANJAS + ".");
+        }
+
+        Localidad origen = localidadRepository.findById(solicitud.getOrigenId())
+                .orElseThrow(() -> new EntityNotFoundException("Localidad de origen no encontrada con ID: " + solicitud.getOrigenId()));
+        Localidad destino = localidadRepository.findById(solicitud.getDestinoId())
+                .orElseThrow(() -> new EntityNotFoundException("Localidad de destino no encontrada con ID: " + solicitud.getDestinoId()));
+        List<Omnibus> candidatos = omnibusRepository.findByEstadoInOrderByIdAsc(ESTADOS_ASIGNABLES);
+
+        LocalDateTime ahora = LocalDateTime.now();
+        PasadaAsignacion pasada = new PasadaAsignacion(lineaTiempoFlotaService, candidatos);
+        List<Viaje> nuevos = new ArrayList<>();
+        List<FranjaNoCubiertaDTO> noCubiertas = new ArrayList<>();
+
+        for (Franja franja : franjas) {
+            if (!franja.salida().isAfter(ahora)) {
+                noCubiertas.add(noCubierta(franja, "La hora de salida ya pasó."));
+                continue;
+            }
+            PasadaAsignacion.Eleccion eleccion = pasada.asignar(franja.salida(), franja.llegada(), origen.getId(), destino.getId(), 0);
+            Omnibus elegido = eleccion.omnibus();
+            if (elegido == null) {
+                noCubiertas.add(noCubierta(franja, eleccion.algunoEnOrigen()
+                        ? "Los ómnibus que estarán en " + origen.getNombre() + " tienen viajes superpuestos, inactividad programada o no cumplen los tiempos mínimos entre viajes."
+                        : "Ningún ómnibus disponible estará en " + origen.getNombre() + " a esa hora."));
+                continue;
+            }
+            nuevos.add(Viaje.builder()
+                    .fechaHoraSalida(franja.salida())
+                    .fechaHoraLlegada(franja.llegada())
+                    .origen(origen)
+                    .destino(destino)
+                    .busAsignado(elegido)
+                    .asientosDisponibles(elegido.getCapacidadAsientos())
+                    .pasajesVendidos(0)
+                    .estado(EstadoViaje.PROGRAMADO)
+                    .precio(solicitud.getPrecio())
+                    .versionAsientos(0L)
+                    .build());
+        }
+
+        List<Omnibus> asignados = candidatos.stream()
+                .filter(bus -> pasada.omnibusAsignados().contains(bus.getId()) && bus.getEstado() == EstadoBus.OPERATIVO)
+                .toList();
+        asignados.forEach(bus -> bus.setEstado(EstadoBus.ASIGNADO_A_VIAJE));
+        omnibusRepository.saveAll(asignados);
+
+        viajeRepository.insertarEnLote(nuevos);
+        disponibilidadRutaDiaService.registrarViajes(nuevos);
+
+        logger.info("Horario recurrente {} → {}: {} franjas, {} viajes creados con {} ómnibus, {} sin cubrir.",
+                origen.getNombre(), destino.getNombre(), franjas.size(), nuevos.size(), pasada.omnibusAsignados().size(), noCubiertas.size());
+        return new HorarioRecurrenteResultadoDTO(franjas.size(), nuevos.size(),
+                nuevos.stream().map(Viaje::getId).toList(), noCubiertas);
+    }
+
+    // Franjas en orden cronológico de salida
+    private static List<Franja> expandir(HorarioRecurrenteRequestDTO solicitud) {
+        List<LocalTime> horas = new ArrayList<>(new LinkedHashSet<>(solicitud.getHorasSalida()));
+        horas.sort(null);
+        Duration duracion = Duration.ofMinutes(solicitud.getDuracionMinutos());
+        List<Franja> franjas = new ArrayList<>();
+        for (LocalDate fecha = solicitud.getFechaDesde(); !fecha.isAfter(solicitud.getFechaHasta()); fecha = fecha.plusDays(1)) {
+            if (!solicitud.getDiasSemana().contains(fecha.getDayOfWeek())) {
+                continue;
+            }
+            for (LocalTime hora : horas) {
+                LocalDateTime salida = fecha.atTime(hora);
+                franjas.add(new Franja(salida, salida.plus(duracion)));
+            }
+        }
+        return franjas;
+    }
+
+    private static FranjaNoCubiertaDTO noCubierta(Franja franja, String motivo) {
+        return new FranjaNoCubiertaDTO(franja.salida().toLocalDate(), franja.salida().toLocalTime(), motivo);
+    }
+}
@@ -0,0 +1,197 @@
+package com.omnibus.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omnibus.backend.model.RespuestaIdempotente;
+import com.omnibus.backend.repository.RespuestaIdempotenteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Capa de idempotencia para operaciones que no deben ejecutarse dos veces (compra múltiple, devolución).
+ *
+ * La primera respuesta exitosa para una clave se guarda en un caché en memoria acotado (LRU con vencimiento)
+ * y en la tabla idempotencia_respuestas. Los reintentos con la misma clave se responden desde el caché
+ * (o desde la tabla tras un reinicio) sin volver a pasar por PayPal ni por la lógica de asientos.
+ * Un reintento que llega mientras la solicitud original sigue en curso recibe 409.
+ *
+ * La clave guardada incluye al usuario autenticado, así una clave repetida por otra cuenta no devuelve una respuesta
+ * ajena. Junto con la respuesta se guarda la huella (SHA-256) de la solicitud: reusar la clave con otro cuerpo
+ * recibe 422 en lugar de la respuesta anterior.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyService.class);
+    public static final String HEADER_CLAVE = "Idempotency-Key";
+    public static final String HEADER_REPETIDA = "Idempotent-Replayed";
+    private static final int MAX_LARGO_CLAVE = 150;
+    private static final int MAX_ENTRADAS_MEMORIA = 10_000;
+    private static final Duration VIGENCIA = Duration.ofHours(24);
+
+    private final RespuestaIdempotenteRepository respuestaIdempotenteRepository;
+    private final ObjectMapper objectMapper;
+    private final Set<String> enCurso = ConcurrentHashMap.newKeySet();
+
+    // LinkedHashMap en orden de acceso: al superar el máximo se descarta la entrada usada hace más tiempo.
+    private final Map<String, RespuestaIdempotente> cache = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, RespuestaIdempotente> eldest) {
+            return size() > MAX_ENTRADAS_MEMORIA;
+        }
+    };
+
+    @Autowired
+    public IdempotencyService(RespuestaIdempotenteRepository respuestaIdempotenteRepository, ObjectMapper objectMapper) {
+        this.respuestaIdempotenteRepository = respuestaIdempotenteRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Ejecuta la operación una sola vez por usuario y clave. Si la clave es nula, la operación se ejecuta sin protección.
+     *
+     * @param operacion Nombre de la operación; separa el espacio de claves de cada endpoint.
+     * @param usuarioId Usuario autenticado; cada usuario tiene su propio espacio de claves.
+     * @param clave Clave de idempotencia enviada por el cliente (o derivada, p. ej. el ID de transacción PayPal).
+     * @param solicitud Cuerpo (o parámetros) de la solicitud; su huella debe coincidir en los reintentos.
+     * @param accion La operación a proteger. Solo se guardan sus respuestas 2xx.
+     * @throws IllegalArgumentException si la clave supera el largo permitido.
+     */
+    public ResponseEntity<?> ejecutar(String operacion, Long usuarioId, String clave, Object solicitud,
+                                      Supplier<ResponseEntity<?>> accion) {
+        if (clave == null || clave.isBlank()) {
+            return accion.get();
+        }
+        if (clave.length() > MAX_LARGO_CLAVE) {
+            throw new IllegalArgumentException("La clave de idempotencia no puede superar los " + MAX_LARGO_CLAVE + " caracteres.");
+        }
+        String claveCompleta = operacion + ":" + usuarioId + ":" + clave.trim();
+        String huella = huellaDe(solicitud);
+
+        RespuestaIdempotente previa = buscar(claveCompleta);
+        if (previa != null) {
+            return repetir(claveCompleta, previa, huella);
+        }
+
+        if (!enCurso.add(claveCompleta)) {
+            logger.warn("Solicitud con clave de idempotencia '{}' ya está en curso.", claveCompleta);
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("message", "Ya hay una solicitud en curso con la misma clave de idempotencia. Reintente en unos segundos."));
+        }
+        try {
+            // Puede haberse completado entre la búsqueda y la marca de "en curso".
+            previa = buscar(claveCompleta);
+            if (previa != null) {
+                return repetir(claveCompleta, previa, huella);
+            }
+            ResponseEntity<?> respuesta = accion.get();
+            if (respuesta.getStatusCode().is2xxSuccessful()) {
+                guardar(claveCompleta, huella, respuesta);
+            }
+            return respuesta;
+        } finally {
+            enCurso.remove(claveCompleta);
+        }
+    }
+
+    /**
+     * Elimina de la tabla las respuestas vencidas. Las del caché en memoria se descartan al consultarlas.
+     */
+    @Scheduled(fixedRate = 3600000)
+    @Transactional
+    public void purgarExpiradas() {
+        int eliminadas = respuestaIdempotenteRepository.eliminarExpiradas(LocalDateTime.now(ZoneOffset.UTC));
+        if (eliminadas > 0) {
+            logger.info("Se eliminaron {} respuestas idempotentes vencidas.", eliminadas);
+        }
+    }
+
+    private RespuestaIdempotente buscar(String claveCompleta) {
+        LocalDateTime ahora = LocalDateTime.now(ZoneOffset.UTC);
+        RespuestaIdempotente respuesta;
+        synchronized (cache) {
+            respuesta = cache.get(claveCompleta);
+            if (respuesta != null && respuesta.getFechaExpiracion().isBefore(ahora)) {
+                cache.remove(claveCompleta);
+                return null;
+            }
+        }
+        if (respuesta != null) {
+            return respuesta;
+        }
+
+        // No está en memoria: puede venir de antes de un reinicio o de otra instancia.
+        respuesta = respuestaIdempotenteRepository.findById(claveCompleta)
+                .filter(r -> !r.getFechaExpiracion().isBefore(ahora))
+                .orElse(null);
+        if (respuesta != null) {
+            synchronized (cache) {
+                cache.put(claveCompleta, respuesta);
+            }
+        }
+        return respuesta;
+    }
+
+    private void guardar(String claveCompleta, String huella, ResponseEntity<?> respuesta) {
+        String cuerpo;
+        try {
+            cuerpo = objectMapper.writeValueAsString(respuesta.getBody());
+        } catch (JsonProcessingException e) {
+            logger.error("No se pudo serializar la respuesta para la clave de idempotencia '{}': {}", claveCompleta, e.getMessage());
+            return;
+        }
+        LocalDateTime ahora = LocalDateTime.now(ZoneOffset.UTC);
+        RespuestaIdempotente registro = new RespuestaIdempotente(claveCompleta, huella, respuesta.getStatusCode().value(),
+                cuerpo, ahora, ahora.plus(VIGENCIA));
+        synchronized (cache) {
+            cache.put(claveCompleta, registro);
+        }
+        try {
+            respuestaIdempotenteRepository.save(registro);
+        } catch (Exception e) {
+            // La operación ya se ejecutó; el caché en memoria sigue protegiendo los reintentos en esta instancia.
+            logger.error("No se pudo persistir la respuesta idempotente '{}': {}", claveCompleta, e.getMessage());
+        }
+    }
+
+    private ResponseEntity<?> repetir(String claveCompleta, RespuestaIdempotente respuesta, String huella) {
+        if (!respuesta.getHuella().equals(huella)) {
+            logger.warn("Clave de idempotencia '{}' reusada con una solicitud distinta.", claveCompleta);
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(Map.of("message", "La clave de idempotencia ya se usó con una solicitud distinta. Use una clave nueva."));
+        }
+        logger.info("Solicitud repetida con clave de idempotencia '{}'. Se devuelve la respuesta guardada.", claveCompleta);
+        return ResponseEntity.status(respuesta.getEstadoHttp())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HEADER_REPETIDA, "true")
+                .body(respuesta.getCuerpo());
+    }
+
+    private String huellaDe(Object solicitud) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(solicitud);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No se pudo calcular la huella de la solicitud idempotente.", e);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.model.EstadoViaje;
+import com.omnibus.backend.model.Viaje;
+import com.omnibus.backend.repository.ViajeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Agenda en memoria de la flota: por cada ómnibus, sus viajes PROGRAMADO, VENTAS_CERRADAS y EN_CURSO ordenados por salida
+ * y por llegada, con origen y destino. Reemplaza las consultas por candidato de crearViaje/reasignarViaje
+ * (solapamiento, último viaje antes de una salida, próximo viaje después de una llegada) por búsquedas
+ * O(log n) en la agenda del ómnibus.
+ *
+ * Los cambios se aplican en cuanto se informan (así una transacción ve sus propios viajes nuevos y las demás
+ * evitan ese ómnibus mientras tanto) y se deshacen si la transacción se revierte. Las agendas se modifican
+ * en el lugar (O(log n) por cambio) con el cerrojo de escritura; las consultas toman el de lectura.
+ *
+ * Se carga al terminar de crear los singletons, antes de que arranque el servidor web: ninguna solicitud
+ * puede crear o reasignar un viaje con la agenda todavía vacía.
+ */
+@Service
+public class LineaTiempoFlotaService implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(LineaTiempoFlotaService.class);
+    // VENTAS_CERRADAS es la última hora antes de la salida: el ómnibus sigue comprometido con el viaje
+    private static final Set<EstadoViaje> ESTADOS_EN_AGENDA =
+            Set.of(EstadoViaje.PROGRAMADO, EstadoViaje.VENTAS_CERRADAS, EstadoViaje.EN_CURSO);
+
+    /**
+     * Un viaje en la agenda de su ómnibus.
+     */
+    public record Tramo(Integer viajeId, Long busId, LocalDateTime salida, LocalDateTime llegada,
+                        Long origenId, Long destinoId, EstadoViaje estado) {
+    }
+
+    private static final Comparator<Tramo> POR_SALIDA =
+            Comparator.comparing(Tramo::salida).thenComparing(Tramo::viajeId);
+    private static final Comparator<Tramo> POR_LLEGADA =
+            Comparator.comparing(Tramo::llegada).thenComparing(Tramo::viajeId);
+
+    // Los viajes activos de un ómnibus no se solapan entre sí (crearViaje y reasignarViaje lo verifican),
+    // así que ordenados por salida también quedan ordenados por llegada.
+    private record Agenda(NavigableSet<Tramo> porSalida, NavigableSet<Tramo> porLlegada) {
+
+        private static final Agenda VACIA = new Agenda(Collections.emptyNavigableSet(), Collections.emptyNavigableSet());
+
+        private static Agenda nueva() {
+            return new Agenda(new TreeSet<>(POR_SALIDA), new TreeSet<>(POR_LLEGADA));
+        }
+
+        private void agregar(Tramo tramo) {
+            porSalida.add(tramo);
+            porLlegada.add(tramo);
+        }
+
+        private void quitar(Tramo tramo) {
+            porSalida.remove(tramo);
+            porLlegada.remove(tramo);
+        }
+    }
+
+    // Lo que una transacción cambió de un viaje: el tramo antes de su primer cambio y el último que escribió
+    private record Cambio(Tramo original, Tramo escrito) {
+    }
+
+    private final ViajeRepository viajeRepository;
+    private final TransactionTemplate transaccionLectura;
+
+    private final ReentrantReadWriteLock cerrojo = new ReentrantReadWriteLock();
+    private final Map<Long, Agenda> agendas = new HashMap<>(); // Protegido por cerrojo
+    private final Map<Integer, Tramo> tramosPorViaje = new HashMap<>(); // Protegido por cerrojo
+
+    @Autowired
+    public LineaTiempoFlotaService(ViajeRepository viajeRepository, PlatformTransactionManager transactionManager) {
+        this.viajeRepository = viajeRepository;
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        // Llamada interna: no pasa por el proxy transaccional de cargar()
+        transaccionLectura.executeWithoutResult(estado -> cargar());
+    }
+
+    /**
+     * Reconstruye la agenda desde la base. La consulta y el reemplazo se hacen con el cerrojo de escritura
+     * tomado, así un {@link #actualizar} que llega durante la carga se aplica después y no se pierde.
+     */
+    @Transactional(readOnly = true)
+    public void cargar() {
+        int cantidad;
+        cerrojo.writeLock().lock();
+        try {
+            List<Viaje> activos = viajeRepository.findByEstadoIn(ESTADOS_EN_AGENDA);
+            agendas.clear();
+            tramosPorViaje.clear();
+            for (Viaje viaje : activos) {
+                fijar(viaje.getId(), tramoDe(viaje));
+            }
+            cantidad = activos.size();
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+        logger.info("Agenda de la flota cargada: {} viajes activos en {} ómnibus.", cantidad, agendas.size());
+    }
+
+    /**
+     * Primer viaje activo del ómnibus que se superpone con [inicio, fin), ignorando {@code excluirViajeId}.
+     */
+    public Optional<Tramo> buscarSolapamiento(Long busId, LocalDateTime inicio, LocalDateTime fin, Integer excluirViajeId) {
+        cerrojo.readLock().lock();
+        try {
+            Agenda agenda = agendas.getOrDefault(busId, Agenda.VACIA);
+            // El último que sale antes del fin es el único candidato: los anteriores terminan antes de que él salga
+            Tramo candidato = agenda.porSalida().lower(sonda(fin, Integer.MIN_VALUE));
+            while (candidato != null && candidato.viajeId().equals(excluirViajeId)) {
+                candidato = agenda.porSalida().lower(candidato);
+            }
+            return candidato != null && candidato.llegada().isAfter(inicio) ? Optional.of(candidato) : Optional.empty();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Viaje activo del ómnibus con la llegada más tardía anterior a {@code instante}: dónde estará el ómnibus.
+     */
+    public Optional<Tramo> ultimoConcluidoAntesDe(Long busId, LocalDateTime instante) {
+        cerrojo.readLock().lock();
+        try {
+            Agenda agenda = agendas.getOrDefault(busId, Agenda.VACIA);
+            return Optional.ofNullable(agenda.porLlegada().lower(sonda(instante, Integer.MIN_VALUE)));
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Primer viaje del ómnibus que sale después de {@code instante} y todavía no salió (PROGRAMADO o VENTAS_CERRADAS).
+     */
+    public Optional<Tramo> proximoProgramadoDespuesDe(Long busId, LocalDateTime instante) {
+        cerrojo.readLock().lock();
+        try {
+            Agenda agenda = agendas.getOrDefault(busId, Agenda.VACIA);
+            for (Tramo tramo : agenda.porSalida().tailSet(sonda(instante, Integer.MAX_VALUE), false)) {
+                if (tramo.estado() != EstadoViaje.EN_CURSO) {
+                    return Optional.of(tramo);
+                }
+            }
+            return Optional.empty();
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Todos los viajes activos del ómnibus, ordenados por salida.
+     */
+    public List<Tramo> tramosDe(Long busId) {
+        cerrojo.readLock().lock();
+        try {
+            return List.copyOf(agendas.getOrDefault(busId, Agenda.VACIA).porSalida());
+        } finally {
+            cerrojo.readLock().unlock();
+        }
+    }
+
+    /**
+     * Refleja el estado y el ómnibus actuales del viaje: lo agrega, lo mueve o lo quita de la agenda.
+     */
+    public void actualizar(Viaje viaje) {
+        Tramo nuevo = tramoDe(viaje);
+        Tramo anterior;
+        cerrojo.writeLock().lock();
+        try {
+            anterior = fijar(viaje.getId(), nuevo);
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+        recordarParaDeshacer(viaje.getId(), anterior, nuevo);
+    }
+
+    public void actualizar(Iterable<Viaje> viajes) {
+        viajes.forEach(this::actualizar);
+    }
+
+    /**
+     * Guarda, por transacción y por viaje, el tramo que tenía antes del primer cambio y el último que escribió,
+     * para restaurarlo si la transacción no se confirma.
+     */
+    @SuppressWarnings("unchecked")
+    private void recordarParaDeshacer(Integer viajeId, Tramo anterior, Tramo escrito) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Map<Integer, Cambio> cambios = (Map<Integer, Cambio>) TransactionSynchronizationManager.getResource(this);
+        if (cambios == null) {
+            Map<Integer, Cambio> deEstaTransaccion = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, deEstaTransaccion);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int estado) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(LineaTiempoFlotaService.this);
+                    if (estado != STATUS_COMMITTED) {
+                        deshacer(deEstaTransaccion);
+                    }
+                }
+            });
+            cambios = deEstaTransaccion;
+        }
+        cambios.merge(viajeId, new Cambio(anterior, escrito), (primero, ultimo) -> new Cambio(primero.original(), ultimo.escrito()));
+    }
+
+    // Si otra transacción cambió el viaje después, su valor (ya confirmado o todavía en curso) es el que vale
+    private void deshacer(Map<Integer, Cambio> cambios) {
+        cerrojo.writeLock().lock();
+        try {
+            cambios.forEach((viajeId, cambio) -> {
+                if (Objects.equals(tramosPorViaje.get(viajeId), cambio.escrito())) {
+                    fijar(viajeId, cambio.original());
+                } else {
+                    logger.debug("Viaje ID {}: cambiado por otra transacción, no se restaura su tramo anterior.", viajeId);
+                }
+            });
+        } finally {
+            cerrojo.writeLock().unlock();
+        }
+    }
+
+    // Debe llamarse con el cerrojo de escritura tomado. Devuelve el tramo que tenía el viaje (o null).
+    private Tramo fijar(Integer viajeId, Tramo nuevo) {
+        Tramo anterior = nuevo != null ? tramosPorViaje.put(viajeId, nuevo) : tramosPorViaje.remove(viajeId);
+        if (anterior != null) {
+            Agenda agenda = agendas.get(anterior.busId());
+            agenda.quitar(anterior);
+            if (agenda.porSalida().isEmpty()) {
+                agendas.remove(anterior.busId());
+            }
+        }
+        if (nuevo != null) {
+            agendas.computeIfAbsent(nuevo.busId(), bus -> Agenda.nueva()).agregar(nuevo);
+        }
+        return anterior;
+    }
+
+    private static Tramo tramoDe(Viaje viaje) {
+        if (!ESTADOS_EN_AGENDA.contains(viaje.getEstado()) || viaje.getBusAsignado() == null) {
+            return null;
+        }
+        return new Tramo(viaje.getId(), viaje.getBusAsignado().getId(), viaje.getFechaHoraSalida(), viaje.getFechaHoraLlegada(),
+                viaje.getOrigen().getId(), viaje.getDestino().getId(), viaje.getEstado());
+    }
+
+    private static Tramo sonda(LocalDateTime instante, int viajeId) {
+        return new Tramo(viajeId, null, instante, instante, null, null, null);
+    }
+}
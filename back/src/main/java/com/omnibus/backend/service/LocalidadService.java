@@ -15,10 +15,13 @@ import java.util.Optional; // Para el ejemplo de obtenerPorId
 public class LocalidadService { // Es una CLASE
 
     private final LocalidadRepository localidadRepository;
+    private final AutocompletadoLocalidadesService autocompletadoLocalidadesService;
 
     @Autowired
-    public LocalidadService(LocalidadRepository localidadRepository) {
+    public LocalidadService(LocalidadRepository localidadRepository,
+                            AutocompletadoLocalidadesService autocompletadoLocalidadesService) {
         this.localidadRepository = localidadRepository;
+        this.autocompletadoLocalidadesService = autocompletadoLocalidadesService;
     }
 
     @Transactional
@@ -33,7 +36,16 @@ public class LocalidadService { // Es una CLASE
         nuevaLocalidad.setDepartamento(createLocalidadDTO.getDepartamento().trim());
         nuevaLocalidad.setDireccion(createLocalidadDTO.getDireccion().trim());
 
-        return localidadRepository.save(nuevaLocalidad);
+        Localidad guardada = localidadRepository.save(nuevaLocalidad);
+        autocompletadoLocalidadesService.agregar(guardada);
+        return guardada;
+    }
+
+    /**
+     * Autocompletado por prefijo de nombre o departamento, sin distinguir mayúsculas ni tildes.
+     */
+    public List<Localidad> autocompletar(String texto, int limite) {
+        return autocompletadoLocalidadesService.buscar(texto, limite);
     }
 
     // --- MÉTODO NECESARIO PARA LISTAR TODAS LAS LOCALIDADES ---
@@ -1,7 +1,11 @@
 package com.omnibus.backend.service;
 
 import com.omnibus.backend.dto.CreateOmnibusDTO;
+import com.omnibus.backend.dto.InactividadConReasignacionDTO;
+import com.omnibus.backend.dto.OmnibusDisponibleDTO;
 import com.omnibus.backend.dto.OmnibusStatsDTO;
+import com.omnibus.backend.dto.ReasignacionPropuestaDTO;
+import com.omnibus.backend.dto.ViajeNoReasignadoDTO;
 import com.omnibus.backend.exception.BusConViajesAsignadosException;
 import com.omnibus.backend.model.*;
 import com.omnibus.backend.repository.LocalidadRepository;
@@ -14,10 +18,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,14 +37,20 @@ public class OmnibusService {
     private final OmnibusRepository omnibusRepository;
     private final LocalidadRepository localidadRepository;
     private final ViajeRepository viajeRepository;
+    private final LineaTiempoFlotaService lineaTiempoFlotaService;
+    private final ViajeService viajeService;
 
     @Autowired
     public OmnibusService(OmnibusRepository omnibusRepository,
                           LocalidadRepository localidadRepository,
-                          ViajeRepository viajeRepository) {
+                          ViajeRepository viajeRepository,
+                          LineaTiempoFlotaService lineaTiempoFlotaService,
+                          ViajeService viajeService) {
         this.omnibusRepository = omnibusRepository;
         this.localidadRepository = localidadRepository;
         this.viajeRepository = viajeRepository;
+        this.lineaTiempoFlotaService = lineaTiempoFlotaService;
+        this.viajeService = viajeService;
     }
 
     @Transactional
@@ -112,6 +128,98 @@ public class OmnibusService {
         return omnibusRepository.save(omnibus);
     }
 
+    /**
+     * Como {@link #marcarOmnibusInactivo}, pero los viajes PROGRAMADOS que se solapan con la inactividad se pasan
+     * a otros ómnibus en lugar de rechazar el pedido. Los reemplazos se eligen en una sola pasada cronológica
+     * (mismas reglas que al crear un viaje, más capacidad para los pasajes ya vendidos) y se aplican todos juntos.
+     * Es todo o nada: si algún viaje queda sin cubrir no se reasigna ninguno ni se programa la inactividad, y el
+     * resultado informa los reemplazos encontrados y los viajes que los impiden.
+     */
+    @Transactional
+    public InactividadConReasignacionDTO marcarOmnibusInactivoConReasignacion(Long omnibusId, LocalDateTime inicioInactividad,
+                                                                           LocalDateTime finInactividad, EstadoBus nuevoEstado) {
+        logger.info("Programando inactividad con reasignación para ómnibus {} como {} de {} a {}", omnibusId, nuevoEstado, inicioInactividad, finInactividad);
+
+        if (nuevoEstado != EstadoBus.EN_MANTENIMIENTO && nuevoEstado != EstadoBus.FUERA_DE_SERVICIO) {
+            throw new IllegalArgumentException("El nuevo estado para inactividad debe ser EN_MANTENIMIENTO o FUERA_DE_SERVICIO.");
+        }
+        if (inicioInactividad.isAfter(finInactividad) || inicioInactividad.isEqual(finInactividad)) {
+            throw new IllegalArgumentException("La fecha y hora de inicio de inactividad debe ser anterior a la fecha y hora de fin.");
+        }
+
+        Omnibus omnibus = omnibusRepository.findById(omnibusId)
+                .orElseThrow(() -> new EntityNotFoundException("Ómnibus no encontrado con ID: " + omnibusId));
+
+        List<Viaje> viajesConflictivos = viajeRepository.findOverlappingTrips(
+                omnibus,
+                inicioInactividad,
+                finInactividad,
+                Arrays.asList(EstadoViaje.PROGRAMADO, EstadoViaje.VENTAS_CERRADAS, EstadoViaje.EN_CURSO)
+        );
+        viajesConflictivos.sort(Comparator.comparing(Viaje::getFechaHoraSalida).thenComparing(Viaje::getId));
+
+        List<Omnibus> candidatos = omnibusRepository.findByEstadoInOrderByIdAsc(
+                        Arrays.asList(EstadoBus.OPERATIVO, EstadoBus.ASIGNADO_A_VIAJE)).stream()
+                .filter(bus -> !bus.getId().equals(omnibusId))
+                .collect(Collectors.toList());
+        PasadaAsignacion pasada = new PasadaAsignacion(lineaTiempoFlotaService, candidatos);
+
+        Map<Viaje, Omnibus> reasignaciones = new LinkedHashMap<>();
+        List<ViajeNoReasignadoDTO> noReasignados = new ArrayList<>();
+        for (Viaje viaje : viajesConflictivos) {
+            if (viaje.getEstado() != EstadoViaje.PROGRAMADO) {
+                noReasignados.add(noReasignado(viaje, "El viaje está " + viaje.getEstado() + " y no se puede reasignar."));
+                continue;
+            }
+            int asientosOcupados = omnibus.getCapacidadAsientos() - viaje.getAsientosDisponibles();
+            PasadaAsignacion.Eleccion eleccion = pasada.asignar(viaje.getFechaHoraSalida(), viaje.getFechaHoraLlegada(),
+                    viaje.getOrigen().getId(), viaje.getDestino().getId(), asientosOcupados);
+            if (eleccion.omnibus() != null) {
+                reasignaciones.put(viaje, eleccion.omnibus());
+            } else {
+                noReasignados.add(noReasignado(viaje, eleccion.algunoEnOrigen()
+                        ? "Los ómnibus que estarán en " + viaje.getOrigen().getNombre() + " tienen viajes superpuestos, inactividad programada, no cumplen los tiempos mínimos entre viajes o no tienen asientos para los " + asientosOcupados + " pasajes vendidos."
+                        : "Ningún otro ómnibus disponible estará en " + viaje.getOrigen().getNombre() + " a esa hora."));
+            }
+        }
+
+        List<ReasignacionPropuestaDTO> reasignados = reasignaciones.entrySet().stream()
+                .map(cambio -> new ReasignacionPropuestaDTO(
+                        cambio.getKey().getId(),
+                        cambio.getKey().getFechaHoraSalida(),
+                        cambio.getKey().getOrigen().getNombre(),
+                        cambio.getKey().getDestino().getNombre(),
+                        omnibus.getId(),
+                        omnibus.getMatricula(),
+                        cambio.getValue().getId(),
+                        cambio.getValue().getMatricula()))
+                .collect(Collectors.toList());
+        if (!noReasignados.isEmpty()) {
+            // La pasada solo consulta la agenda: sin aplicar nada, la flota queda como estaba
+            logger.warn("Ómnibus {}: {} viajes sin reemplazo; no se reasignó ninguno y la inactividad no se programó.",
+                    omnibusId, noReasignados.size());
+            return new InactividadConReasignacionDTO(omnibus, false, reasignados, noReasignados);
+        }
+
+        viajeService.reasignarEnLote(reasignaciones);
+
+        // Sin viajes pendientes vuelve a estar libre, igual que al reasignar un viaje a mano
+        if (omnibus.getEstado() == EstadoBus.ASIGNADO_A_VIAJE && lineaTiempoFlotaService.tramosDe(omnibusId).isEmpty()) {
+            omnibus.setEstado(EstadoBus.OPERATIVO);
+        }
+        omnibus.setEstadoProgramado(nuevoEstado);
+        omnibus.setInicioInactividadProgramada(inicioInactividad);
+        omnibus.setFinInactividadProgramada(finInactividad);
+        logger.info("Ómnibus {}: {} viajes reasignados, inactividad programada.", omnibusId, reasignados.size());
+        Omnibus actualizado = omnibusRepository.save(omnibus);
+        return new InactividadConReasignacionDTO(actualizado, true, reasignados, noReasignados);
+    }
+
+    private static ViajeNoReasignadoDTO noReasignado(Viaje viaje, String motivo) {
+        return new ViajeNoReasignadoDTO(viaje.getId(), viaje.getFechaHoraSalida(),
+                viaje.getOrigen().getNombre(), viaje.getDestino().getNombre(), motivo);
+    }
+
     @Transactional
     public Omnibus marcarOmnibusOperativo(Long omnibusId) {
         Omnibus omnibus = omnibusRepository.findById(omnibusId)
@@ -137,6 +245,54 @@ public class OmnibusService {
         return omnibusRepository.findByEstado(estado);
     }
 
+    /**
+     * Ómnibus OPERATIVO sin viajes ni inactividad programada en [desde, hasta], con dónde estarán al inicio
+     * y cuánto margen tienen hasta su próximo viaje. Los horarios salen de la agenda en memoria de la flota.
+     *
+     * @param localidadId Si no es null, solo los que estarán en esa localidad al inicio de la ventana.
+     */
+    @Transactional(readOnly = true)
+    public List<OmnibusDisponibleDTO> buscarDisponibles(LocalDateTime desde, LocalDateTime hasta, Long localidadId) {
+        if (!hasta.isAfter(desde)) {
+            throw new IllegalArgumentException("El fin de la ventana debe ser posterior al inicio.");
+        }
+        Map<Long, Localidad> localidades = localidadRepository.findAll().stream()
+                .collect(Collectors.toMap(Localidad::getId, Function.identity()));
+
+        List<OmnibusDisponibleDTO> disponibles = new ArrayList<>();
+        for (Omnibus omnibus : omnibusRepository.findByEstadoConLocalidad(EstadoBus.OPERATIVO)) {
+            if (omnibus.getInicioInactividadProgramada() != null && omnibus.getFinInactividadProgramada() != null
+                    && omnibus.getInicioInactividadProgramada().isBefore(hasta)
+                    && omnibus.getFinInactividadProgramada().isAfter(desde)) {
+                continue;
+            }
+            if (lineaTiempoFlotaService.buscarSolapamiento(omnibus.getId(), desde, hasta, null).isPresent()) {
+                continue;
+            }
+            Optional<LineaTiempoFlotaService.Tramo> anterior = lineaTiempoFlotaService.ultimoConcluidoAntesDe(omnibus.getId(), desde);
+            Localidad ubicacion = anterior.map(tramo -> localidades.get(tramo.destinoId())).orElse(omnibus.getLocalidadActual());
+            if (localidadId != null && !localidadId.equals(ubicacion.getId())) {
+                continue;
+            }
+            Optional<LineaTiempoFlotaService.Tramo> proximo = lineaTiempoFlotaService.proximoProgramadoDespuesDe(omnibus.getId(), hasta);
+            disponibles.add(new OmnibusDisponibleDTO(
+                    omnibus.getId(),
+                    omnibus.getMatricula(),
+                    omnibus.getCapacidadAsientos(),
+                    ubicacion.getId(),
+                    ubicacion.getNombre(),
+                    anterior.map(LineaTiempoFlotaService.Tramo::llegada).orElse(null),
+                    proximo.map(LineaTiempoFlotaService.Tramo::viajeId).orElse(null),
+                    proximo.map(LineaTiempoFlotaService.Tramo::salida).orElse(null),
+                    proximo.map(tramo -> localidades.get(tramo.origenId()).getNombre()).orElse(null),
+                    proximo.map(tramo -> Duration.between(hasta, tramo.salida()).toMinutes()).orElse(null)));
+        }
+        // Primero los que tienen más margen (sin próximo viaje = margen ilimitado)
+        disponibles.sort(Comparator.comparing(OmnibusDisponibleDTO::getMinutosHolgura, Comparator.nullsFirst(Comparator.reverseOrder()))
+                .thenComparing(OmnibusDisponibleDTO::getOmnibusId));
+        return disponibles;
+    }
+
     public List<OmnibusStatsDTO> obtenerDatosParaEstadisticas() {
         List<Omnibus> omnibusLista = omnibusRepository.findAll();
         return omnibusLista.stream().map(omnibus -> new OmnibusStatsDTO(
@@ -0,0 +1,457 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.dto.PropuestaAsignacionDTO;
+import com.omnibus.backend.dto.ReasignacionPropuestaDTO;
+import com.omnibus.backend.model.EstadoBus;
+import com.omnibus.backend.model.Omnibus;
+import com.omnibus.backend.model.Viaje;
+import com.omnibus.backend.repository.OmnibusRepository;
+import com.omnibus.backend.repository.ViajeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static com.omnibus.backend.service.ViajeService.MIN_BUFFER_MISMA_LOCALIDAD_ENTRE_VIAJES;
+import static com.omnibus.backend.service.ViajeService.MIN_BUFFER_OPERATIVO_POST_LLEGADA;
+
+/**
+ * Propuesta de reasignación de ómnibus para los viajes PROGRAMADO de un horizonte.
+ *
+ * crearViaje se queda con el primer ómnibus que cumple las reglas; con el tiempo la flota queda fragmentada
+ * (muchos ómnibus con pocos viajes y huecos largos). Este servicio vuelve a planificar el horizonte completo:
+ * <ol>
+ *   <li>Pasada voraz en orden de salida: cada viaje se queda en su ómnibus si ya está en uso y puede tomarlo;
+ *       si no, va al ómnibus en uso con el menor tiempo ocioso previo. Solo si ninguno puede se suma otro.</li>
+ *   <li>Búsqueda local: se intenta vaciar cada ómnibus, empezando por los que tienen menos viajes, repartiendo
+ *       sus viajes entre los demás ómnibus en uso.</li>
+ *   <li>Se intercambian cadenas completas entre ómnibus equivalentes para que la mayor cantidad posible de viajes
+ *       conserve su ómnibus actual.</li>
+ * </ol>
+ * Los viajes fuera del horizonte, los VENTAS_CERRADAS y los EN_CURSO quedan fijos (salen de la agenda de la
+ * flota). Un viaje que ninguna asignación puede ubicar se fija en su ómnibus actual y se vuelve a planificar.
+ * El resultado es solo la diferencia con la asignación actual; no se modifica nada.
+ */
+@Service
+public class OptimizadorAsignacionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OptimizadorAsignacionService.class);
+    public static final int HORIZONTE_POR_DEFECTO_DIAS = 14;
+    public static final int MAX_HORIZONTE_DIAS = 92;
+
+    private static final Set<EstadoBus> ESTADOS_ASIGNABLES = Set.of(EstadoBus.OPERATIVO, EstadoBus.ASIGNADO_A_VIAJE);
+
+    // Un viaje en la cadena de un ómnibus. Los fijos no se mueven en la planificación.
+    private record Item(Integer viajeId, LocalDateTime salida, LocalDateTime llegada, Long origenId, Long destinoId,
+                        int asientosOcupados, boolean fijo) {
+
+        private Item fijado() {
+            return new Item(viajeId, salida, llegada, origenId, destinoId, asientosOcupados, true);
+        }
+    }
+
+    private static final Comparator<Item> POR_SALIDA =
+            Comparator.comparing(Item::salida).thenComparing(Item::viajeId);
+
+    // Asignación en construcción: viajes de cada ómnibus ordenados por salida
+    private static final class Plan {
+        private final Map<Long, NavigableSet<Item>> cadenas = new HashMap<>();
+        private final Map<Integer, Long> asignacion = new HashMap<>();
+        private final Set<Long> enUso = new HashSet<>();
+
+        private NavigableSet<Item> cadena(Long busId) {
+            return cadenas.computeIfAbsent(busId, id -> new TreeSet<>(POR_SALIDA));
+        }
+
+        private void poner(Long busId, Item item) {
+            cadena(busId).add(item);
+            asignacion.put(item.viajeId(), busId);
+            enUso.add(busId);
+        }
+    }
+
+    private final ViajeRepository viajeRepository;
+    private final OmnibusRepository omnibusRepository;
+    private final LineaTiempoFlotaService lineaTiempoFlotaService;
+
+    @Autowired
+    public OptimizadorAsignacionService(ViajeRepository viajeRepository,
+                                        OmnibusRepository omnibusRepository,
+                                        LineaTiempoFlotaService lineaTiempoFlotaService) {
+        this.viajeRepository = viajeRepository;
+        this.omnibusRepository = omnibusRepository;
+        this.lineaTiempoFlotaService = lineaTiempoFlotaService;
+    }
+
+    /**
+     * @param desde Inicio del horizonte; null o anterior a ahora equivale a ahora.
+     * @param hasta Fin del horizonte; null equivale a {@value #HORIZONTE_POR_DEFECTO_DIAS} días desde el inicio.
+     * @throws IllegalArgumentException si el horizonte está vacío o supera {@value #MAX_HORIZONTE_DIAS} días.
+     */
+    @Transactional(readOnly = true)
+    public PropuestaAsignacionDTO proponer(LocalDateTime desde, LocalDateTime hasta) {
+        long inicioMs = System.currentTimeMillis();
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime inicio = desde == null || desde.isBefore(ahora) ? ahora : desde;
+        LocalDateTime fin = hasta != null ? hasta : inicio.plusDays(HORIZONTE_POR_DEFECTO_DIAS);
+        if (!fin.isAfter(inicio)) {
+            throw new IllegalArgumentException("El fin del horizonte debe ser posterior al inicio.");
+        }
+        if (Duration.between(inicio, fin).compareTo(Duration.ofDays(MAX_HORIZONTE_DIAS)) > 0) {
+            throw new IllegalArgumentException("El horizonte no puede superar " + MAX_HORIZONTE_DIAS + " días.");
+        }
+
+        Map<Long, Omnibus> flota = new LinkedHashMap<>();
+        omnibusRepository.findAllConLocalidad().forEach(bus -> flota.put(bus.getId(), bus));
+        Map<Integer, Viaje> movibles = new LinkedHashMap<>();
+        viajeRepository.findProgramadosEntre(inicio, fin).forEach(viaje -> movibles.put(viaje.getId(), viaje));
+
+        // Asignación actual: viajes del horizonte desde la base, el resto (fijos) desde la agenda de la flota
+        Plan actual = new Plan();
+        for (Viaje viaje : movibles.values()) {
+            Omnibus bus = viaje.getBusAsignado();
+            actual.poner(bus.getId(), new Item(viaje.getId(), viaje.getFechaHoraSalida(), viaje.getFechaHoraLlegada(),
+                    viaje.getOrigen().getId(), viaje.getDestino().getId(),
+                    bus.getCapacidadAsientos() - viaje.getAsientosDisponibles(), false));
+        }
+        for (Long busId : flota.keySet()) {
+            for (LineaTiempoFlotaService.Tramo tramo : lineaTiempoFlotaService.tramosDe(busId)) {
+                if (!movibles.containsKey(tramo.viajeId())) {
+                    actual.poner(busId, new Item(tramo.viajeId(), tramo.salida(), tramo.llegada(),
+                            tramo.origenId(), tramo.destinoId(), 0, true));
+                }
+            }
+        }
+
+        Set<Integer> fijados = new HashSet<>();
+        fijarSinAlternativa(actual, flota, fijados);
+        Plan propuesto;
+        while (true) {
+            List<Integer> sinUbicar = new ArrayList<>();
+            propuesto = planificar(actual, flota, fijados, inicio, fin, sinUbicar);
+            if (sinUbicar.isEmpty()) {
+                break;
+            }
+            logger.debug("Optimización: {} viajes sin ubicar, se fijan en su ómnibus actual y se replanifica.", sinUbicar.size());
+            fijados.addAll(sinUbicar);
+            fijarSinAlternativa(actual, flota, fijados);
+        }
+        vaciarOmnibus(propuesto, flota, inicio, fin);
+        conservarOmnibus(propuesto, actual, flota, inicio, fin);
+
+        List<ReasignacionPropuestaDTO> cambios = new ArrayList<>();
+        for (Viaje viaje : movibles.values()) {
+            Long propuestoId = propuesto.asignacion.get(viaje.getId());
+            if (!propuestoId.equals(viaje.getBusAsignado().getId())) {
+                cambios.add(new ReasignacionPropuestaDTO(viaje.getId(), viaje.getFechaHoraSalida(),
+                        viaje.getOrigen().getNombre(), viaje.getDestino().getNombre(),
+                        viaje.getBusAsignado().getId(), viaje.getBusAsignado().getMatricula(),
+                        propuestoId, flota.get(propuestoId).getMatricula()));
+            }
+        }
+        PropuestaAsignacionDTO resultado = new PropuestaAsignacionDTO(inicio, fin, movibles.size(), fijados.size(),
+                omnibusUsados(actual, inicio, fin), omnibusUsados(propuesto, inicio, fin),
+                minutosOciosos(actual, inicio, fin), minutosOciosos(propuesto, inicio, fin),
+                System.currentTimeMillis() - inicioMs, cambios);
+        logger.info("Optimización de asignaciones {} - {}: {} viajes, {} cambios, ómnibus {} → {}, minutos ociosos {} → {}, {} ms.",
+                inicio, fin, movibles.size(), cambios.size(), resultado.getOmnibusUsadosActual(), resultado.getOmnibusUsadosPropuesto(),
+                resultado.getMinutosOciososActual(), resultado.getMinutosOciososPropuesto(), resultado.getDuracionMs());
+        return resultado;
+    }
+
+    /**
+     * Pasada voraz: arranca con los viajes fijos (y fijados) en su ómnibus y ubica el resto en orden de salida.
+     */
+    private Plan planificar(Plan actual, Map<Long, Omnibus> flota, Set<Integer> fijados,
+                            LocalDateTime inicio, LocalDateTime fin, List<Integer> sinUbicar) {
+        Plan plan = new Plan();
+        List<Item> pendientes = new ArrayList<>();
+        actual.cadenas.forEach((busId, cadena) -> {
+            for (Item item : cadena) {
+                if (item.fijo() || fijados.contains(item.viajeId())) {
+                    plan.cadena(busId).add(item.fijo() ? item : item.fijado());
+                    plan.asignacion.put(item.viajeId(), busId);
+                    if (enHorizonte(item, inicio, fin)) {
+                        plan.enUso.add(busId);
+                    }
+                } else {
+                    pendientes.add(item);
+                }
+            }
+        });
+        pendientes.sort(POR_SALIDA);
+        for (Item item : pendientes) {
+            Long busId = elegir(plan, flota, item, actual.asignacion.get(item.viajeId()), null, true);
+            if (busId == null) {
+                sinUbicar.add(item.viajeId());
+            } else {
+                plan.poner(busId, item);
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Búsqueda local: intenta repartir los viajes de cada ómnibus (de menos a más viajes) entre los demás en uso.
+     */
+    private void vaciarOmnibus(Plan plan, Map<Long, Omnibus> flota, LocalDateTime inicio, LocalDateTime fin) {
+        List<Long> candidatos = plan.enUso.stream()
+                .filter(busId -> plan.cadena(busId).stream().noneMatch(item -> item.fijo() && enHorizonte(item, inicio, fin)))
+                .sorted(Comparator.comparingLong((Long busId) -> plan.cadena(busId).stream().filter(item -> !item.fijo()).count())
+                        .thenComparing(Comparator.naturalOrder()))
+                .toList();
+        for (Long busId : candidatos) {
+            NavigableSet<Item> cadena = plan.cadena(busId);
+            List<Item> propios = cadena.stream().filter(item -> !item.fijo()).toList();
+            if (propios.isEmpty()) {
+                continue;
+            }
+            propios.forEach(cadena::remove);
+            // Sin sus viajes, los fijos de antes y de después del horizonte tienen que seguir encadenando
+            Item primero = propios.get(0);
+            if (!encadenable(flota.get(busId), cadena.lower(primero), cadena.higher(propios.get(propios.size() - 1)))) {
+                cadena.addAll(propios);
+                continue;
+            }
+            plan.enUso.remove(busId);
+            Map<Item, Long> movidos = new LinkedHashMap<>();
+            for (Item item : propios) {
+                Long destino = elegir(plan, flota, item, null, busId, false);
+                if (destino == null) {
+                    break;
+                }
+                plan.cadena(destino).add(item);
+                movidos.put(item, destino);
+            }
+            if (movidos.size() == propios.size()) {
+                movidos.forEach((item, destino) -> plan.asignacion.put(item.viajeId(), destino));
+            } else {
+                movidos.forEach((item, destino) -> plan.cadena(destino).remove(item));
+                cadena.addAll(propios);
+                plan.enUso.add(busId);
+            }
+        }
+    }
+
+    /**
+     * Mejor ómnibus para el viaje: primero los que ya están en uso; entre ellos el actual y si no, el de menor
+     * tiempo ocioso antes del viaje (y después el de menor id). Null si ninguno puede tomarlo.
+     */
+    private Long elegir(Plan plan, Map<Long, Omnibus> flota, Item item, Long actualId, Long excluirId, boolean permitirNuevos) {
+        Long elegido = null;
+        long[] mejor = null;
+        for (Omnibus bus : flota.values()) {
+            Long busId = bus.getId();
+            if (busId.equals(excluirId) || (!permitirNuevos && !plan.enUso.contains(busId)) || !puedeTomar(bus, item)) {
+                continue;
+            }
+            NavigableSet<Item> cadena = plan.cadena(busId);
+            Item anterior = cadena.lower(item);
+            if (!encadenable(bus, anterior, item) || !encadenable(bus, item, cadena.higher(item))) {
+                continue;
+            }
+            long[] puntaje = {
+                    plan.enUso.contains(busId) ? 0 : 1,
+                    busId.equals(actualId) ? 0 : 1,
+                    anterior != null ? Duration.between(anterior.llegada(), item.salida()).toMinutes() : Long.MAX_VALUE,
+                    busId
+            };
+            if (mejor == null || Arrays.compare(puntaje, mejor) < 0) {
+                mejor = puntaje;
+                elegido = busId;
+            }
+        }
+        return elegido;
+    }
+
+    /**
+     * Los ómnibus sin viajes fijos en el horizonte son intercambiables: se intercambian sus cadenas planificadas
+     * cuando así más viajes quedan en su ómnibus actual. No cambia cuántos ómnibus se usan ni los tiempos ociosos,
+     * solo evita reasignaciones que no aportan nada.
+     */
+    private void conservarOmnibus(Plan plan, Plan actual, Map<Long, Omnibus> flota, LocalDateTime inicio, LocalDateTime fin) {
+        Set<Long> libres = new LinkedHashSet<>();
+        for (Long busId : flota.keySet()) {
+            if (plan.cadena(busId).stream().noneMatch(item -> item.fijo() && enHorizonte(item, inicio, fin))) {
+                libres.add(busId);
+            }
+        }
+        // Cada intercambio aumenta la cantidad de viajes que conservan su ómnibus, así que el ciclo termina
+        boolean huboIntercambio = true;
+        while (huboIntercambio) {
+            huboIntercambio = false;
+            for (Long busId : libres) {
+                List<Item> propios = movibles(plan, busId);
+                if (propios.isEmpty()) {
+                    continue;
+                }
+                Map<Long, Long> porOmnibusActual = propios.stream()
+                        .collect(Collectors.groupingBy(item -> actual.asignacion.get(item.viajeId()), Collectors.counting()));
+                List<Long> candidatos = porOmnibusActual.entrySet().stream()
+                        .filter(entrada -> !entrada.getKey().equals(busId) && libres.contains(entrada.getKey()))
+                        .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+                        .map(Map.Entry::getKey)
+                        .toList();
+                for (Long otroId : candidatos) {
+                    List<Item> ajenos = movibles(plan, otroId);
+                    long ganancia = porOmnibusActual.get(otroId) + conservados(ajenos, busId, actual)
+                            - porOmnibusActual.getOrDefault(busId, 0L) - conservados(ajenos, otroId, actual);
+                    if (ganancia > 0 && puedeHacer(plan, flota.get(otroId), propios, ajenos)
+                            && puedeHacer(plan, flota.get(busId), ajenos, propios)) {
+                        intercambiar(plan, busId, propios, otroId, ajenos);
+                        huboIntercambio = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private static List<Item> movibles(Plan plan, Long busId) {
+        return plan.cadena(busId).stream().filter(item -> !item.fijo()).toList();
+    }
+
+    private static long conservados(List<Item> items, Long busId, Plan actual) {
+        return items.stream().filter(item -> busId.equals(actual.asignacion.get(item.viajeId()))).count();
+    }
+
+    /**
+     * Si el ómnibus puede hacer {@code nuevos} en lugar de {@code quitar} sin romper su cadena.
+     */
+    private static boolean puedeHacer(Plan plan, Omnibus bus, List<Item> nuevos, List<Item> quitar) {
+        if (nuevos.stream().anyMatch(item -> !puedeTomar(bus, item))) {
+            return false;
+        }
+        NavigableSet<Item> cadena = new TreeSet<>(plan.cadena(bus.getId()));
+        quitar.forEach(cadena::remove);
+        if (nuevos.isEmpty()) {
+            return quitar.isEmpty()
+                    || encadenable(bus, cadena.lower(quitar.get(0)), cadena.higher(quitar.get(quitar.size() - 1)));
+        }
+        cadena.addAll(nuevos);
+        Item anterior = cadena.lower(nuevos.get(0));
+        for (Item item : cadena.subSet(nuevos.get(0), true, nuevos.get(nuevos.size() - 1), true)) {
+            if (!encadenable(bus, anterior, item)) {
+                return false;
+            }
+            anterior = item;
+        }
+        return encadenable(bus, anterior, cadena.higher(anterior));
+    }
+
+    private static void intercambiar(Plan plan, Long busId, List<Item> propios, Long otroId, List<Item> ajenos) {
+        propios.forEach(plan.cadena(busId)::remove);
+        ajenos.forEach(plan.cadena(otroId)::remove);
+        ajenos.forEach(item -> plan.poner(busId, item));
+        propios.forEach(item -> plan.poner(otroId, item));
+        if (ajenos.isEmpty()) {
+            plan.enUso.remove(busId);
+        }
+    }
+
+    private static boolean puedeTomar(Omnibus bus, Item item) {
+        if (!ESTADOS_ASIGNABLES.contains(bus.getEstado()) || bus.getCapacidadAsientos() < item.asientosOcupados()) {
+            return false;
+        }
+        return bus.getInicioInactividadProgramada() == null || bus.getFinInactividadProgramada() == null
+                || !bus.getInicioInactividadProgramada().isBefore(item.llegada())
+                || !bus.getFinInactividadProgramada().isAfter(item.salida());
+    }
+
+    /**
+     * Reglas de crearViaje entre dos viajes consecutivos del ómnibus: el siguiente sale de donde llegó el anterior
+     * (o de la localidad actual si no hay anterior), con {@link ViajeService#MIN_BUFFER_OPERATIVO_POST_LLEGADA}
+     * de preparación, o {@link ViajeService#MIN_BUFFER_MISMA_LOCALIDAD_ENTRE_VIAJES} antes de un viaje fijo.
+     */
+    private static boolean encadenable(Omnibus bus, Item anterior, Item siguiente) {
+        if (siguiente == null) {
+            return true;
+        }
+        if (anterior == null) {
+            return bus.getLocalidadActual().getId().equals(siguiente.origenId());
+        }
+        if (!anterior.destinoId().equals(siguiente.origenId())) {
+            return false;
+        }
+        Duration buffer = siguiente.fijo() && !anterior.fijo()
+                ? MIN_BUFFER_MISMA_LOCALIDAD_ENTRE_VIAJES
+                : MIN_BUFFER_OPERATIVO_POST_LLEGADA;
+        return !anterior.llegada().plus(buffer).isAfter(siguiente.salida());
+    }
+
+    /**
+     * Sacar los viajes del horizonte deja juntos a los fijos que los rodeaban. Si esos fijos no encadenan entre sí,
+     * los viajes intermedios se fijan en su ómnibus: son los que llevan al ómnibus hasta su próximo viaje fijo.
+     */
+    private static void fijarSinAlternativa(Plan actual, Map<Long, Omnibus> flota, Set<Integer> fijados) {
+        actual.cadenas.forEach((busId, cadena) -> {
+            Omnibus bus = flota.get(busId);
+            Item fijoAnterior = null;
+            List<Item> intermedios = new ArrayList<>();
+            for (Item item : cadena) {
+                boolean fijo = item.fijo() || fijados.contains(item.viajeId());
+                if (!fijo) {
+                    intermedios.add(item);
+                    continue;
+                }
+                if (!intermedios.isEmpty() && (bus == null || !encadenable(bus, fijoAnterior, item.fijado()))) {
+                    intermedios.forEach(intermedio -> fijados.add(intermedio.viajeId()));
+                }
+                intermedios.clear();
+                fijoAnterior = item.fijado();
+            }
+            if (bus == null) {
+                intermedios.forEach(intermedio -> fijados.add(intermedio.viajeId()));
+            }
+        });
+    }
+
+    private static boolean enHorizonte(Item item, LocalDateTime inicio, LocalDateTime fin) {
+        return item.salida().isBefore(fin) && item.llegada().isAfter(inicio);
+    }
+
+    private static int omnibusUsados(Plan plan, LocalDateTime inicio, LocalDateTime fin) {
+        return (int) plan.cadenas.values().stream()
+                .filter(cadena -> cadena.stream().anyMatch(item -> enHorizonte(item, inicio, fin)))
+                .count();
+    }
+
+    // Tiempo dentro del horizonte en que los ómnibus en uso no están viajando
+    private static long minutosOciosos(Plan plan, LocalDateTime inicio, LocalDateTime fin) {
+        long horizonte = Duration.between(inicio, fin).toMinutes();
+        long total = 0;
+        for (NavigableSet<Item> cadena : plan.cadenas.values()) {
+            long viajando = 0;
+            boolean enUso = false;
+            for (Item item : cadena) {
+                if (enHorizonte(item, inicio, fin)) {
+                    enUso = true;
+                    LocalDateTime desde = item.salida().isBefore(inicio) ? inicio : item.salida();
+                    LocalDateTime hasta = item.llegada().isAfter(fin) ? fin : item.llegada();
+                    viajando += Duration.between(desde, hasta).toMinutes();
+                }
+            }
+            if (enUso) {
+                total += horizonte - viajando;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,123 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.model.Omnibus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.omnibus.backend.service.ViajeService.MIN_BUFFER_GENERAL_ENTRE_VIAJES_DIF_LOC;
+import static com.omnibus.backend.service.ViajeService.MIN_BUFFER_MISMA_LOCALIDAD_ENTRE_VIAJES;
+import static com.omnibus.backend.service.ViajeService.MIN_BUFFER_OPERATIVO_POST_LLEGADA;
+
+/**
+ * Asignación de ómnibus a varios viajes en una sola pasada, con las reglas de {@link ViajeService#crearViaje}:
+ * sin solapamientos, el ómnibus tiene que estar en el origen y se respetan los tiempos mínimos antes y después.
+ *
+ * Los viajes existentes salen de la agenda de la flota y los asignados en la pasada se recuerdan por ómnibus,
+ * así un mismo ómnibus puede encadenar varios. Los viajes se piden en orden de salida. Entre los ómnibus que
+ * pueden tomar un viaje se elige el que llegó más tarde al origen, y los que están libres desde antes quedan
+ * para los siguientes.
+ */
+class PasadaAsignacion {
+
+    /**
+     * Ómnibus elegido (null si ninguno puede) y si alguno iba a estar en el origen, para explicar el motivo.
+     */
+    record Eleccion(Omnibus omnibus, boolean algunoEnOrigen) {
+    }
+
+    // Último viaje de un ómnibus (existente o asignado en esta pasada) antes de una salida
+    private record Anterior(LocalDateTime llegada, Long destinoId) {
+    }
+
+    private final LineaTiempoFlotaService lineaTiempoFlotaService;
+    private final List<Omnibus> candidatos;
+    private final Map<Long, Anterior> asignados = new HashMap<>();
+
+    PasadaAsignacion(LineaTiempoFlotaService lineaTiempoFlotaService, List<Omnibus> candidatos) {
+        this.lineaTiempoFlotaService = lineaTiempoFlotaService;
+        this.candidatos = candidatos;
+    }
+
+    /**
+     * Elige el ómnibus para el viaje y, si hay uno, lo da por ocupado en esta pasada.
+     */
+    Eleccion asignar(LocalDateTime salida, LocalDateTime llegada, Long origenId, Long destinoId, int asientosOcupados) {
+        Omnibus elegido = null;
+        LocalDateTime llegadaAnteriorElegido = null;
+        boolean algunoEnOrigen = false;
+
+        for (Omnibus bus : candidatos) {
+            if (bus.getCapacidadAsientos() < asientosOcupados) {
+                continue;
+            }
+            Anterior anterior = anteriorA(bus, salida);
+            if (anterior == null || !anterior.destinoId().equals(origenId)) {
+                continue; // Solapa con un viaje asignado en esta pasada, o no estará en el origen
+            }
+            algunoEnOrigen = true;
+            if (!estaLibre(bus, salida, llegada, anterior, destinoId)) {
+                continue;
+            }
+            LocalDateTime llegadaAnterior = anterior.llegada() != null ? anterior.llegada() : LocalDateTime.MIN;
+            if (elegido == null || llegadaAnterior.isAfter(llegadaAnteriorElegido)) {
+                elegido = bus;
+                llegadaAnteriorElegido = llegadaAnterior;
+            }
+        }
+        if (elegido != null) {
+            asignados.put(elegido.getId(), new Anterior(llegada, destinoId));
+        }
+        return new Eleccion(elegido, algunoEnOrigen);
+    }
+
+    Set<Long> omnibusAsignados() {
+        return asignados.keySet();
+    }
+
+    /**
+     * Dónde y desde cuándo está el ómnibus antes de la salida: el más tardío entre su último viaje existente y el
+     * último asignado en esta pasada, o su localidad actual si no tiene ninguno. Null si el asignado solapa.
+     */
+    private Anterior anteriorA(Omnibus bus, LocalDateTime salida) {
+        Anterior asignado = asignados.get(bus.getId());
+        if (asignado != null && !asignado.llegada().isBefore(salida)) {
+            return null;
+        }
+        Optional<LineaTiempoFlotaService.Tramo> existente = lineaTiempoFlotaService.ultimoConcluidoAntesDe(bus.getId(), salida);
+        if (existente.isPresent() && (asignado == null || existente.get().llegada().isAfter(asignado.llegada()))) {
+            return new Anterior(existente.get().llegada(), existente.get().destinoId());
+        }
+        if (asignado != null) {
+            return asignado;
+        }
+        return new Anterior(null, bus.getLocalidadActual().getId());
+    }
+
+    private boolean estaLibre(Omnibus bus, LocalDateTime salida, LocalDateTime llegada, Anterior anterior, Long destinoId) {
+        if (bus.getInicioInactividadProgramada() != null && bus.getFinInactividadProgramada() != null
+                && bus.getInicioInactividadProgramada().isBefore(llegada)
+                && bus.getFinInactividadProgramada().isAfter(salida)) {
+            return false;
+        }
+        if (anterior.llegada() != null && anterior.llegada().plus(MIN_BUFFER_OPERATIVO_POST_LLEGADA).isAfter(salida)) {
+            return false;
+        }
+        if (lineaTiempoFlotaService.buscarSolapamiento(bus.getId(), salida, llegada, null).isPresent()) {
+            return false;
+        }
+        Optional<LineaTiempoFlotaService.Tramo> proximo = lineaTiempoFlotaService.proximoProgramadoDespuesDe(bus.getId(), llegada);
+        if (proximo.isPresent()) {
+            Duration bufferNecesario = destinoId.equals(proximo.get().origenId())
+                    ? MIN_BUFFER_MISMA_LOCALIDAD_ENTRE_VIAJES
+                    : MIN_BUFFER_GENERAL_ENTRE_VIAJES_DIF_LOC;
+            return !llegada.plus(bufferNecesario).isAfter(proximo.get().salida());
+        }
+        return true;
+    }
+}
@@ -0,0 +1,309 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.dto.ItinerarioDTO;
+import com.omnibus.backend.dto.TramoItinerarioDTO;
+import com.omnibus.backend.model.DisponibilidadRutaDia;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Búsqueda de itinerarios con combinaciones (Connection Scan).
+ *
+ * Las localidades son paradas y cada viaje PROGRAMADO es una conexión origen → destino. Las conexiones
+ * se guardan en memoria en un arreglo ordenado por hora de salida; una consulta lo recorre una sola vez
+ * desde la hora pedida, sin tocar la base. El arreglo se reemplaza completo en cada cambio
+ * (copy-on-write), así las consultas leen siempre una versión consistente sin bloquearse.
+ *
+ * Se carga desde el modelo de lectura de disponibilidad y {@link DisponibilidadRutaDiaService} le avisa
+ * altas, cambios de estado y de asientos; los cambios se aplican tras el commit.
+ */
+@Service
+public class PlanificadorItinerariosService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlanificadorItinerariosService.class);
+    public static final int MAX_TRANSBORDOS = 3;
+    // Solo se consideran salidas dentro de este plazo desde la hora pedida.
+    private static final Duration HORIZONTE = Duration.ofHours(48);
+    private static final Comparator<Conexion> POR_SALIDA =
+            Comparator.comparingLong((Conexion c) -> c.salida).thenComparingInt(c -> c.viajeId);
+
+    private volatile Red red = new Red(new Conexion[0], Map.of());
+    private final Map<Integer, Integer> asientosLibres = new ConcurrentHashMap<>();
+
+    /**
+     * Itinerarios de origen a destino saliendo desde {@code desde}: el que llega antes con un solo viaje,
+     * y cada alternativa con más transbordos solo si llega estrictamente antes que las anteriores.
+     *
+     * @param maxTransbordos Cantidad máxima de cambios de ómnibus (0 = solo viajes directos).
+     * @param minConexionMinutos Tiempo mínimo entre la llegada de un tramo y la salida del siguiente.
+     * @param pasajeros Asientos libres que debe tener cada tramo.
+     */
+    public List<ItinerarioDTO> buscar(Long origenId, Long destinoId, LocalDateTime desde,
+                                      int maxTransbordos, int minConexionMinutos, int pasajeros) {
+        if (origenId.equals(destinoId)) {
+            throw new IllegalArgumentException("El origen y el destino deben ser distintos.");
+        }
+        if (maxTransbordos < 0 || maxTransbordos > MAX_TRANSBORDOS) {
+            throw new IllegalArgumentException("La cantidad de transbordos debe estar entre 0 y " + MAX_TRANSBORDOS + ".");
+        }
+        if (minConexionMinutos < 0 || pasajeros < 1) {
+            throw new IllegalArgumentException("El tiempo de conexión no puede ser negativo y debe haber al menos un pasajero.");
+        }
+
+        Red actual = red;
+        Integer origen = actual.indices.get(origenId);
+        Integer destino = actual.indices.get(destinoId);
+        if (origen == null || destino == null) {
+            return List.of();
+        }
+
+        int tramosMax = maxTransbordos + 1;
+        int paradas = actual.indices.size();
+        long conexionMinima = minConexionMinutos * 60L;
+        long inicio = segundos(desde);
+        long limite = inicio + HORIZONTE.toSeconds();
+
+        // llegada[k][parada]: llegada más temprana usando exactamente k viajes; previa[k][parada]: último viaje usado.
+        long[][] llegada = new long[tramosMax + 1][paradas];
+        Conexion[][] previa = new Conexion[tramosMax + 1][paradas];
+        for (long[] fila : llegada) {
+            Arrays.fill(fila, Long.MAX_VALUE);
+        }
+        long mejorLlegada = Long.MAX_VALUE;
+
+        Conexion[] conexiones = actual.conexiones;
+        for (int i = primeraDesde(conexiones, inicio); i < conexiones.length; i++) {
+            Conexion c = conexiones[i];
+            // Ninguna conexión posterior puede mejorar lo ya encontrado.
+            if (c.salida > limite || c.salida >= mejorLlegada) {
+                break;
+            }
+            if (c.destino == origen || asientosLibres.getOrDefault(c.viajeId, 0) < pasajeros) {
+                continue;
+            }
+            for (int k = 1; k <= tramosMax; k++) {
+                boolean alcanzable = k == 1
+                        ? c.origen == origen
+                        : llegada[k - 1][c.origen] != Long.MAX_VALUE && llegada[k - 1][c.origen] + conexionMinima <= c.salida;
+                if (alcanzable && c.llegada < llegada[k][c.destino]) {
+                    llegada[k][c.destino] = c.llegada;
+                    previa[k][c.destino] = c;
+                    if (c.destino == destino) {
+                        mejorLlegada = Math.min(mejorLlegada, c.llegada);
+                    }
+                }
+            }
+        }
+
+        List<ItinerarioDTO> itinerarios = new ArrayList<>();
+        long mejorAnterior = Long.MAX_VALUE;
+        for (int k = 1; k <= tramosMax; k++) {
+            if (llegada[k][destino] < mejorAnterior) {
+                mejorAnterior = llegada[k][destino];
+                itinerarios.add(armarItinerario(previa, k, destino));
+            }
+        }
+        return itinerarios;
+    }
+
+    /**
+     * Reemplaza la red completa (arranque o reconstrucción del modelo de lectura).
+     */
+    public synchronized void cargar(Collection<DisponibilidadRutaDia> filas) {
+        Map<Long, Integer> indices = new HashMap<>();
+        List<Conexion> conexiones = new ArrayList<>(filas.size());
+        asientosLibres.clear();
+        for (DisponibilidadRutaDia fila : filas) {
+            conexiones.add(aConexion(fila, indices));
+            asientosLibres.put(fila.getViajeId(), fila.getAsientosLibres());
+        }
+        Conexion[] ordenadas = conexiones.toArray(new Conexion[0]);
+        Arrays.sort(ordenadas, POR_SALIDA);
+        red = new Red(ordenadas, indices);
+        logger.info("Red de combinaciones cargada con {} viajes entre {} localidades.", ordenadas.length, indices.size());
+    }
+
+    public void agregarViaje(DisponibilidadRutaDia fila) {
+        despuesDelCommit(() -> agregar(fila));
+    }
+
+    /**
+     * Alta en bloque (horarios recurrentes): una sola copia de la red para todos los viajes.
+     */
+    public void agregarViajes(Collection<DisponibilidadRutaDia> filas) {
+        List<DisponibilidadRutaDia> copia = List.copyOf(filas);
+        despuesDelCommit(() -> agregar(copia));
+    }
+
+    /**
+     * Quita viajes que dejaron de estar a la venta (ventas cerradas, en curso, finalizados, cancelados).
+     */
+    public void quitarViajes(Collection<Integer> viajeIds) {
+        Set<Integer> ids = Set.copyOf(viajeIds);
+        despuesDelCommit(() -> quitar(ids));
+    }
+
+    public void sumarAsientos(Integer viajeId, int delta) {
+        despuesDelCommit(() -> asientosLibres.computeIfPresent(viajeId, (id, libres) -> libres + delta));
+    }
+
+    public void fijarAsientos(Integer viajeId, int libres) {
+        despuesDelCommit(() -> asientosLibres.computeIfPresent(viajeId, (id, anterior) -> libres));
+    }
+
+    private synchronized void agregar(DisponibilidadRutaDia fila) {
+        Red actual = red;
+        Map<Long, Integer> indices = actual.indices;
+        if (!indices.containsKey(fila.getOrigenId()) || !indices.containsKey(fila.getDestinoId())) {
+            indices = new HashMap<>(indices);
+        }
+        Conexion nueva = aConexion(fila, indices);
+        Conexion[] sinAnterior = sinViajes(actual.conexiones, Set.of(nueva.viajeId));
+        int posicion = -Arrays.binarySearch(sinAnterior, nueva, POR_SALIDA) - 1;
+        Conexion[] conexiones = new Conexion[sinAnterior.length + 1];
+        System.arraycopy(sinAnterior, 0, conexiones, 0, posicion);
+        conexiones[posicion] = nueva;
+        System.arraycopy(sinAnterior, posicion, conexiones, posicion + 1, sinAnterior.length - posicion);
+        asientosLibres.put(fila.getViajeId(), fila.getAsientosLibres());
+        red = new Red(conexiones, indices);
+    }
+
+    private synchronized void agregar(List<DisponibilidadRutaDia> filas) {
+        if (filas.isEmpty()) {
+            return;
+        }
+        Red actual = red;
+        Map<Long, Integer> indices = new HashMap<>(actual.indices);
+        List<Conexion> nuevas = filas.stream().map(fila -> aConexion(fila, indices)).toList();
+        Set<Integer> ids = nuevas.stream().map(c -> c.viajeId).collect(Collectors.toSet());
+        Conexion[] conexiones = Stream.concat(Arrays.stream(sinViajes(actual.conexiones, ids)), nuevas.stream())
+                .sorted(POR_SALIDA)
+                .toArray(Conexion[]::new);
+        filas.forEach(fila -> asientosLibres.put(fila.getViajeId(), fila.getAsientosLibres()));
+        red = new Red(conexiones, indices);
+    }
+
+    private synchronized void quitar(Set<Integer> viajeIds) {
+        Red actual = red;
+        red = new Red(sinViajes(actual.conexiones, viajeIds), actual.indices);
+        viajeIds.forEach(asientosLibres::remove);
+    }
+
+    private static Conexion[] sinViajes(Conexion[] conexiones, Set<Integer> viajeIds) {
+        return Arrays.stream(conexiones).filter(c -> !viajeIds.contains(c.viajeId)).toArray(Conexion[]::new);
+    }
+
+    private ItinerarioDTO armarItinerario(Conexion[][] previa, int tramos, int destino) {
+        LinkedList<TramoItinerarioDTO> resultado = new LinkedList<>();
+        double precioTotal = 0;
+        int parada = destino;
+        for (int k = tramos; k >= 1; k--) {
+            Conexion c = previa[k][parada];
+            resultado.addFirst(new TramoItinerarioDTO(c.viajeId, c.origenId, c.origenNombre, c.destinoId, c.destinoNombre,
+                    c.fechaSalida, c.fechaLlegada, c.precio, asientosLibres.getOrDefault(c.viajeId, 0)));
+            precioTotal += c.precio;
+            parada = c.origen;
+        }
+        LocalDateTime salida = resultado.getFirst().getFechaSalida();
+        LocalDateTime llegada = resultado.getLast().getFechaLlegada();
+        return new ItinerarioDTO(resultado, tramos - 1, salida, llegada,
+                Duration.between(salida, llegada).toMinutes(), precioTotal);
+    }
+
+    // Primera conexión que sale en o después del instante dado (búsqueda binaria).
+    private static int primeraDesde(Conexion[] conexiones, long instante) {
+        int bajo = 0;
+        int alto = conexiones.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (conexiones[medio].salida < instante) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private static Conexion aConexion(DisponibilidadRutaDia fila, Map<Long, Integer> indices) {
+        int origen = indices.computeIfAbsent(fila.getOrigenId(), id -> indices.size());
+        int destino = indices.computeIfAbsent(fila.getDestinoId(), id -> indices.size());
+        return new Conexion(fila.getViajeId(), origen, destino, fila.getOrigenId(), fila.getDestinoId(),
+                fila.getOrigenNombre(), fila.getDestinoNombre(), fila.getFechaHoraSalida(), fila.getFechaHoraLlegada(),
+                fila.getPrecio());
+    }
+
+    private static long segundos(LocalDateTime fecha) {
+        return fecha.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static void despuesDelCommit(Runnable cambio) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cambio.run();
+                }
+            });
+        } else {
+            cambio.run();
+        }
+    }
+
+    /**
+     * Versión inmutable de la red: conexiones ordenadas por salida e índice denso de cada localidad.
+     * Los índices solo crecen, así las conexiones ya creadas siguen siendo válidas en versiones nuevas.
+     */
+    private record Red(Conexion[] conexiones, Map<Long, Integer> indices) {
+    }
+
+    private static final class Conexion {
+        private final int viajeId;
+        private final int origen;
+        private final int destino;
+        private final long salida;
+        private final long llegada;
+        private final Long origenId;
+        private final Long destinoId;
+        private final String origenNombre;
+        private final String destinoNombre;
+        private final LocalDateTime fechaSalida;
+        private final LocalDateTime fechaLlegada;
+        private final double precio;
+
+        Conexion(int viajeId, int origen, int destino, Long origenId, Long destinoId, String origenNombre,
+                 String destinoNombre, LocalDateTime fechaSalida, LocalDateTime fechaLlegada, double precio) {
+            this.viajeId = viajeId;
+            this.origen = origen;
+            this.destino = destino;
+            this.salida = segundos(fechaSalida);
+            this.llegada = segundos(fechaLlegada);
+            this.origenId = origenId;
+            this.destinoId = destinoId;
+            this.origenNombre = origenNombre;
+            this.destinoNombre = destinoNombre;
+            this.fechaSalida = fechaSalida;
+            this.fechaLlegada = fechaLlegada;
+            this.precio = precio;
+        }
+    }
+}
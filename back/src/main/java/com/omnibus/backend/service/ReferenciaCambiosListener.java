@@ -0,0 +1,36 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.model.Localidad;
+import com.omnibus.backend.model.Omnibus;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA de {@link Localidad} y {@link Omnibus}: cualquier alta, cambio o baja (desde servicios,
+ * schedulers o importaciones) descarta el snapshot correspondiente de {@link SnapshotReferenciaService}.
+ * Hibernate obtiene la instancia del contexto de Spring.
+ */
+@Component
+public class ReferenciaCambiosListener {
+
+    // Se resuelve al primer evento: el listener se crea junto con el EntityManagerFactory
+    private final ObjectProvider<SnapshotReferenciaService> snapshotReferenciaService;
+
+    public ReferenciaCambiosListener(ObjectProvider<SnapshotReferenciaService> snapshotReferenciaService) {
+        this.snapshotReferenciaService = snapshotReferenciaService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void alCambiar(Object entidad) {
+        if (entidad instanceof Localidad) {
+            snapshotReferenciaService.getObject().invalidarLocalidades();
+        } else if (entidad instanceof Omnibus) {
+            snapshotReferenciaService.getObject().invalidarOmnibus();
+        }
+    }
+}
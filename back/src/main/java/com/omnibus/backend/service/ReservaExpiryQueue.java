@@ -0,0 +1,148 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.model.EstadoPasaje;
+import com.omnibus.backend.model.Pasaje;
+import com.omnibus.backend.repository.PasajeRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Motor de expiración de reservas temporales. Cada reserva se encola con su vencimiento exacto
+ * (fechaReserva + {@link ReservasCleanupService#MINUTOS_EXPIRACION}) en una {@link DelayQueue};
+ * un hilo dedicado la consume y libera en bloque todas las reservas vencidas en ese momento.
+ * El costo depende de la cantidad de reservas que vencen, no del tamaño de la tabla de pasajes.
+ *
+ * Al arrancar, la cola se reconstruye con las reservas RESERVADO existentes en la BD.
+ */
+@Component
+public class ReservaExpiryQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservaExpiryQueue.class);
+    private static final int MAX_PASAJES_POR_LOTE = 500;
+    private static final long REINTENTO_MS = 30_000;
+
+    private final PasajeRepository pasajeRepository;
+    private final ReservasCleanupService reservasCleanupService;
+    private final DelayQueue<ReservaPendiente> cola = new DelayQueue<>();
+    private volatile Thread hiloExpiracion;
+
+    @Autowired
+    public ReservaExpiryQueue(PasajeRepository pasajeRepository, ReservasCleanupService reservasCleanupService) {
+        this.pasajeRepository = pasajeRepository;
+        this.reservasCleanupService = reservasCleanupService;
+    }
+
+    /**
+     * Programa la expiración de una reserva recién creada. Si hay una transacción activa,
+     * la reserva se encola recién después del commit.
+     *
+     * @param pasajeIds IDs de los pasajes RESERVADO de la reserva.
+     * @param fechaReservaUtc La fecha de reserva guardada en los pasajes (UTC).
+     */
+    public void programar(Collection<Integer> pasajeIds, LocalDateTime fechaReservaUtc) {
+        ReservaPendiente reserva = new ReservaPendiente(List.copyOf(pasajeIds), vencimientoEnMillis(fechaReservaUtc));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cola.put(reserva);
+                }
+            });
+        } else {
+            cola.put(reserva);
+        }
+    }
+
+    public int reservasPendientes() {
+        return cola.size();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void iniciar() {
+        List<Pasaje> reservasActivas = pasajeRepository.findByEstado(EstadoPasaje.RESERVADO);
+        reservasActivas.stream()
+                .filter(p -> p.getFechaReserva() != null)
+                .collect(Collectors.groupingBy(Pasaje::getFechaReserva,
+                        Collectors.mapping(Pasaje::getId, Collectors.toList())))
+                .forEach((fechaReserva, ids) -> cola.put(new ReservaPendiente(ids, vencimientoEnMillis(fechaReserva))));
+        logger.info("Cola de expiración de reservas reconstruida con {} pasajes en estado RESERVADO.", reservasActivas.size());
+
+        hiloExpiracion = new Thread(this::procesarVencimientos, "reservas-expiry");
+        hiloExpiracion.setDaemon(true);
+        hiloExpiracion.start();
+    }
+
+    @PreDestroy
+    public void detener() {
+        Thread hilo = hiloExpiracion;
+        if (hilo != null) {
+            hilo.interrupt();
+        }
+    }
+
+    private void procesarVencimientos() {
+        while (!Thread.currentThread().isInterrupted()) {
+            List<ReservaPendiente> vencidas = new ArrayList<>();
+            try {
+                vencidas.add(cola.take());
+                cola.drainTo(vencidas);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            List<Integer> pasajeIds = vencidas.stream()
+                    .flatMap(r -> r.pasajeIds().stream())
+                    .collect(Collectors.toList());
+            for (int desde = 0; desde < pasajeIds.size(); desde += MAX_PASAJES_POR_LOTE) {
+                List<Integer> lote = pasajeIds.subList(desde, Math.min(desde + MAX_PASAJES_POR_LOTE, pasajeIds.size()));
+                try {
+                    int liberadas = reservasCleanupService.liberarReservas(lote);
+                    if (liberadas > 0) {
+                        logger.info("Expiraron {} reservas temporales.", liberadas);
+                    }
+                } catch (Exception e) {
+                    logger.error("Error al liberar {} reservas vencidas. Se reintentará en {} s. Causa: {}",
+                            lote.size(), REINTENTO_MS / 1000, e.getMessage(), e);
+                    cola.put(new ReservaPendiente(List.copyOf(lote), System.currentTimeMillis() + REINTENTO_MS));
+                }
+            }
+        }
+    }
+
+    private static long vencimientoEnMillis(LocalDateTime fechaReservaUtc) {
+        return fechaReservaUtc.plusMinutes(ReservasCleanupService.MINUTOS_EXPIRACION)
+                .toInstant(ZoneOffset.UTC)
+                .toEpochMilli();
+    }
+
+    private record ReservaPendiente(List<Integer> pasajeIds, long vencimientoMillis) implements Delayed {
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(vencimientoMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed otro) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), otro.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
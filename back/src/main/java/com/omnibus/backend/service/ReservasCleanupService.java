@@ -1,5 +1,6 @@
 package com.omnibus.backend.service;
 
+import com.omnibus.backend.dto.AsientosCambioDTO;
 import com.omnibus.backend.model.EstadoPasaje;
 import com.omnibus.backend.model.Pasaje;
 import com.omnibus.backend.model.Viaje;
@@ -13,6 +14,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -21,43 +24,74 @@ import java.util.stream.Collectors;
 public class ReservasCleanupService {
 
     private static final Logger logger = LoggerFactory.getLogger(ReservasCleanupService.class);
-    private static final int MINUTOS_EXPIRACION = 10;
+    public static final int MINUTOS_EXPIRACION = 10;
 
     @Autowired
     private PasajeRepository pasajeRepository;
     @Autowired
     private ViajeRepository viajeRepository;
+    @Autowired
+    private SeatInventory seatInventory;
+    @Autowired
+    private AsientosStreamService asientosStreamService;
+    @Autowired
+    private DisponibilidadRutaDiaService disponibilidadRutaDiaService;
 
-    // Se ejecuta cada minuto (60000 milisegundos)
-    @Scheduled(fixedRate = 60000)
+    /**
+     * Libera en bloque las reservas indicadas que sigan en estado RESERVADO.
+     * Las filas se bloquean antes de borrarlas, así una confirmación de compra concurrente
+     * o bien gana (y la reserva ya no está RESERVADO) o bien espera y luego no encuentra la reserva.
+     *
+     * @param pasajeIds IDs de pasajes cuya reserva venció.
+     * @return La cantidad de reservas efectivamente liberadas.
+     */
     @Transactional
-    public void limpiarReservasExpiradas() {
-        logger.info("--- Iniciando tarea de limpieza de reservas expiradas ---");
-        LocalDateTime tiempoExpiracion = LocalDateTime.now().minusMinutes(MINUTOS_EXPIRACION);
-
-        List<Pasaje> reservasExpiradas = pasajeRepository.findByEstadoAndFechaReservaBefore(EstadoPasaje.RESERVADO, tiempoExpiracion);
-
-        if (reservasExpiradas.isEmpty()) {
-            logger.info("No se encontraron reservas expiradas.");
-            return;
+    public int liberarReservas(Collection<Integer> pasajeIds) {
+        if (pasajeIds.isEmpty()) {
+            return 0;
+        }
+        List<Pasaje> reservasVencidas = pasajeRepository.findReservasParaLiberar(pasajeIds);
+        if (reservasVencidas.isEmpty()) {
+            return 0;
         }
 
-        logger.warn("Se encontraron {} reservas expiradas para limpiar.", reservasExpiradas.size());
-
-        // Agrupamos los pasajes por viaje para actualizar el contador de asientos eficientemente
-        Map<Viaje, Long> conteoPorViaje = reservasExpiradas.stream()
-                .collect(Collectors.groupingBy(Pasaje::getDatosViaje, Collectors.counting()));
+        // Agrupamos los asientos por viaje para actualizar contador e inventario una vez por viaje
+        Map<Integer, Viaje> viajes = reservasVencidas.stream()
+                .map(Pasaje::getDatosViaje)
+                .collect(Collectors.toMap(Viaje::getId, v -> v, (a, b) -> a));
+        Map<Integer, List<Integer>> asientosPorViaje = reservasVencidas.stream()
+                .collect(Collectors.groupingBy(p -> p.getDatosViaje().getId(),
+                        Collectors.mapping(Pasaje::getNumeroAsiento, Collectors.toList())));
 
-        // Eliminamos los pasajes expirados
-        pasajeRepository.deleteAll(reservasExpiradas);
+        pasajeRepository.deleteAllByIdInBatch(reservasVencidas.stream().map(Pasaje::getId).collect(Collectors.toList()));
 
-        // Actualizamos el contador de asientos disponibles para cada viaje afectado
-        conteoPorViaje.forEach((viaje, cantidad) -> {
-            logger.info("Liberando {} asientos para el viaje ID {}", cantidad, viaje.getId());
-            viaje.setAsientosDisponibles(viaje.getAsientosDisponibles() + cantidad.intValue());
-            viajeRepository.save(viaje);
+        asientosPorViaje.forEach((viajeId, asientos) -> {
+            logger.info("Liberando {} asientos para el viaje ID {}", asientos.size(), viajeId);
+            viajeRepository.incrementarAsientosDisponibles(viajeId, asientos.size());
+            // Liberamos los asientos en el inventario en memoria (se aplica tras el commit)
+            seatInventory.liberarAsientos(viajeId, asientos);
+            asientosStreamService.publicarCambio(viajeId, AsientosCambioDTO.TipoCambio.LIBERADO, asientos);
+            disponibilidadRutaDiaService.registrarCambioAsientos(viajes.get(viajeId), asientos.size());
         });
+        return reservasVencidas.size();
+    }
+
+    /**
+     * Red de seguridad: la expiración normal la hace {@link ReservaExpiryQueue} en el instante exacto.
+     * Este barrido solo recoge reservas que la cola no conocía (por ejemplo, creadas por otra instancia).
+     */
+    @Scheduled(fixedRate = 900000, initialDelay = 900000)
+    @Transactional
+    public void limpiarReservasExpiradas() {
+        LocalDateTime tiempoExpiracion = LocalDateTime.now(ZoneOffset.UTC).minusMinutes(MINUTOS_EXPIRACION);
+
+        List<Integer> reservasExpiradas = pasajeRepository.findIdsByEstadoAndFechaReservaBefore(EstadoPasaje.RESERVADO, tiempoExpiracion);
+        if (reservasExpiradas.isEmpty()) {
+            logger.debug("Barrido de reservas: no se encontraron reservas expiradas pendientes.");
+            return;
+        }
 
-        logger.info("--- Tarea de limpieza de reservas finalizada ---");
+        int liberadas = liberarReservas(reservasExpiradas);
+        logger.warn("Barrido de reservas: se liberaron {} reservas expiradas que no estaban en la cola de expiración.", liberadas);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,305 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.dto.TurnoSalaEsperaDTO;
+import com.omnibus.backend.dto.TurnoSalaEsperaDTO.EstadoTurno;
+import com.omnibus.backend.exception.SalaEsperaLlenaException;
+import com.omnibus.backend.repository.ViajeRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Sala de espera virtual por viaje (control de admisión).
+ *
+ * Solo {@code checkoutsPorViaje} clientes pueden estar reservando asientos de un mismo viaje a la vez;
+ * el resto espera en una cola FIFO acotada, en memoria, y consulta su turno con un token
+ * (posición y espera estimada). Así un viaje muy demandado no acapara el pool de conexiones
+ * y el resto de la API mantiene una latencia predecible.
+ *
+ * Sin contención (hay lugar y nadie esperando) la reserva pasa directo, sin necesidad de token.
+ * Los turnos que dejan de consultar o que fueron admitidos y no se usan vencen solos.
+ * Un turno ocupa a lo sumo un lugar: mientras su checkout está en curso no se puede usar para otro.
+ * La sala se crea con el primer turno de un viaje existente; consultar o liberar nunca la crean.
+ */
+@Service
+public class SalaEsperaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalaEsperaService.class);
+    private static final double TIEMPO_SERVICIO_INICIAL_MS = 2000;
+    private static final double PESO_NUEVA_MUESTRA = 0.2;
+
+    private final ConcurrentHashMap<Integer, SalaViaje> salas = new ConcurrentHashMap<>();
+    private final ViajeRepository viajeRepository;
+
+    @Value("${app.sala-espera.checkouts-por-viaje:8}")
+    private int checkoutsPorViaje;
+
+    @Value("${app.sala-espera.max-en-cola-por-viaje:1000}")
+    private int maxEnColaPorViaje;
+
+    @Value("${app.sala-espera.vigencia-admision-segundos:60}")
+    private long vigenciaAdmisionSegundos;
+
+    @Value("${app.sala-espera.inactividad-cola-segundos:30}")
+    private long inactividadColaSegundos;
+
+    @Autowired
+    public SalaEsperaService(ViajeRepository viajeRepository) {
+        this.viajeRepository = viajeRepository;
+    }
+
+    /**
+     * Pide un turno para el checkout de un viaje. Si hay lugar y nadie esperando, el turno sale ya ADMITIDO.
+     * @throws EntityNotFoundException si el viaje no existe.
+     * @throws SalaEsperaLlenaException si la cola del viaje está completa.
+     */
+    public TurnoSalaEsperaDTO solicitarTurno(Integer viajeId) {
+        return conSala(viajeId, sala -> sala.encolar(System.currentTimeMillis()));
+    }
+
+    /**
+     * Devuelve el estado actual del turno y renueva su vigencia.
+     * @throws IllegalArgumentException si el turno no existe o ya venció.
+     */
+    public TurnoSalaEsperaDTO consultarTurno(Integer viajeId, String token) {
+        TurnoSalaEsperaDTO turno = conSalaExistente(viajeId, sala -> sala.consultar(token, System.currentTimeMillis()));
+        if (turno == null) {
+            throw new IllegalArgumentException("El turno " + token + " no existe o venció. Solicite uno nuevo.");
+        }
+        return turno;
+    }
+
+    public void abandonarTurno(Integer viajeId, String token) {
+        conSalaExistente(viajeId, sala -> {
+            sala.liberar(token, System.currentTimeMillis());
+            return null;
+        });
+    }
+
+    /**
+     * Intenta ocupar un lugar de checkout para el viaje.
+     * Si el resultado está EN_CHECKOUT, el llamador debe invocar {@link #liberarLugar} al terminar.
+     * En cualquier otro caso el cliente quedó (o sigue) en la cola y el resultado indica su posición.
+     *
+     * @param token Token de un turno previo, o null si el cliente no pasó por la sala de espera.
+     * @throws EntityNotFoundException si el viaje no existe.
+     * @throws IllegalStateException si el turno ya tiene un checkout en curso.
+     * @throws SalaEsperaLlenaException si hay que encolarlo y la cola está completa.
+     */
+    public TurnoSalaEsperaDTO ocuparLugar(Integer viajeId, String token) {
+        return conSala(viajeId, sala -> sala.ocupar(token, System.currentTimeMillis()));
+    }
+
+    public void liberarLugar(Integer viajeId, String token) {
+        conSalaExistente(viajeId, sala -> {
+            sala.liberar(token, System.currentTimeMillis());
+            return null;
+        });
+    }
+
+    /**
+     * Vence turnos abandonados, admite a los siguientes de cada cola y descarta las salas vacías.
+     */
+    @Scheduled(fixedRate = 5000)
+    public void depurarSalas() {
+        long ahora = System.currentTimeMillis();
+        salas.forEach((viajeId, sala) -> {
+            synchronized (sala) {
+                sala.depurar(ahora);
+                if (sala.estaVacia()) {
+                    sala.cerrada = true;
+                    salas.remove(viajeId, sala);
+                }
+            }
+        });
+    }
+
+    private <T> T conSala(Integer viajeId, Function<SalaViaje, T> operacion) {
+        // Solo se consulta la base al abrir la sala: mientras existe, el viaje ya fue validado.
+        if (!salas.containsKey(viajeId) && !viajeRepository.existsById(viajeId)) {
+            throw new EntityNotFoundException("Viaje no encontrado con ID: " + viajeId);
+        }
+        while (true) {
+            SalaViaje sala = salas.computeIfAbsent(viajeId, SalaViaje::new);
+            synchronized (sala) {
+                // Si la depuración la descartó mientras tanto, se toma la nueva instancia.
+                if (!sala.cerrada) {
+                    return operacion.apply(sala);
+                }
+            }
+        }
+    }
+
+    // Sin sala no hay turnos: la operación no se ejecuta y se devuelve null.
+    private <T> T conSalaExistente(Integer viajeId, Function<SalaViaje, T> operacion) {
+        SalaViaje sala = salas.get(viajeId);
+        if (sala == null) {
+            return null;
+        }
+        synchronized (sala) {
+            // Si la depuración la descartó, sus turnos ya no existen.
+            return sala.cerrada ? null : operacion.apply(sala);
+        }
+    }
+
+    /**
+     * Estado de la sala de un viaje. Todos los accesos se hacen sincronizados sobre la instancia.
+     */
+    private final class SalaViaje {
+        private final Integer viajeId;
+        private final LinkedHashMap<String, Turno> enEspera = new LinkedHashMap<>(); // Orden de llegada
+        private final Map<String, Turno> admitidos = new HashMap<>(); // ADMITIDO o EN_CHECKOUT
+        private double tiempoServicioMs = TIEMPO_SERVICIO_INICIAL_MS; // Promedio móvil del tiempo de checkout
+        private boolean cerrada;
+
+        SalaViaje(Integer viajeId) {
+            this.viajeId = viajeId;
+        }
+
+        TurnoSalaEsperaDTO encolar(long ahora) {
+            depurar(ahora);
+            Turno turno = new Turno(UUID.randomUUID().toString(), ahora);
+            if (enEspera.isEmpty() && admitidos.size() < checkoutsPorViaje) {
+                turno.estado = EstadoTurno.ADMITIDO;
+                admitidos.put(turno.token, turno);
+                return aDTO(turno, 0);
+            }
+            if (enEspera.size() >= maxEnColaPorViaje) {
+                long reintentar = Math.max(1, esperaEstimadaSegundos(enEspera.size()) / 2);
+                logger.warn("Sala de espera del viaje ID {} llena ({} en cola).", viajeId, enEspera.size());
+                throw new SalaEsperaLlenaException("La sala de espera para este viaje está completa. Intente nuevamente en unos segundos.", reintentar);
+            }
+            enEspera.put(turno.token, turno);
+            return aDTO(turno, enEspera.size());
+        }
+
+        TurnoSalaEsperaDTO consultar(String token, long ahora) {
+            depurar(ahora);
+            Turno admitido = admitidos.get(token);
+            if (admitido != null) {
+                admitido.ultimoContacto = ahora;
+                return aDTO(admitido, 0);
+            }
+            Turno esperando = enEspera.get(token);
+            if (esperando == null) {
+                return null;
+            }
+            esperando.ultimoContacto = ahora;
+            return aDTO(esperando, posicionDe(token));
+        }
+
+        TurnoSalaEsperaDTO ocupar(String token, long ahora) {
+            depurar(ahora);
+            if (token != null) {
+                Turno admitido = admitidos.get(token);
+                if (admitido != null) {
+                    if (admitido.estado == EstadoTurno.EN_CHECKOUT) {
+                        throw new IllegalStateException("Ya hay una reserva en curso con este turno. Espere a que termine.");
+                    }
+                    admitido.estado = EstadoTurno.EN_CHECKOUT;
+                    admitido.ultimoContacto = ahora;
+                    admitido.inicioCheckout = ahora;
+                    return aDTO(admitido, 0);
+                }
+                if (enEspera.containsKey(token)) {
+                    return consultar(token, ahora);
+                }
+            }
+            // Sin turno válido: pasa directo si no hay contención, si no se lo encola.
+            TurnoSalaEsperaDTO nuevo = encolar(ahora);
+            if (nuevo.getEstado() == EstadoTurno.ADMITIDO) {
+                return ocupar(nuevo.getToken(), ahora);
+            }
+            return nuevo;
+        }
+
+        void liberar(String token, long ahora) {
+            if (token == null) {
+                return;
+            }
+            Turno turno = admitidos.remove(token);
+            if (turno == null) {
+                enEspera.remove(token);
+                return;
+            }
+            if (turno.estado == EstadoTurno.EN_CHECKOUT) {
+                double duracion = ahora - turno.inicioCheckout;
+                tiempoServicioMs = (1 - PESO_NUEVA_MUESTRA) * tiempoServicioMs + PESO_NUEVA_MUESTRA * duracion;
+            }
+            promover(ahora);
+        }
+
+        void depurar(long ahora) {
+            long limiteCola = ahora - inactividadColaSegundos * 1000;
+            enEspera.values().removeIf(t -> t.ultimoContacto < limiteCola);
+
+            long limiteAdmision = ahora - vigenciaAdmisionSegundos * 1000;
+            // Un checkout en curso se libera siempre en un finally; el límite amplio es solo una red de seguridad.
+            long limiteCheckout = ahora - 10 * vigenciaAdmisionSegundos * 1000;
+            admitidos.values().removeIf(t -> t.estado == EstadoTurno.ADMITIDO
+                    ? t.ultimoContacto < limiteAdmision
+                    : t.inicioCheckout < limiteCheckout);
+            promover(ahora);
+        }
+
+        boolean estaVacia() {
+            return enEspera.isEmpty() && admitidos.isEmpty();
+        }
+
+        private void promover(long ahora) {
+            Iterator<Turno> siguientes = enEspera.values().iterator();
+            while (admitidos.size() < checkoutsPorViaje && siguientes.hasNext()) {
+                Turno turno = siguientes.next();
+                siguientes.remove();
+                turno.estado = EstadoTurno.ADMITIDO;
+                turno.ultimoContacto = ahora; // La vigencia de la admisión corre desde ahora
+                admitidos.put(turno.token, turno);
+            }
+        }
+
+        private int posicionDe(String token) {
+            int posicion = 1;
+            for (String t : enEspera.keySet()) {
+                if (t.equals(token)) {
+                    return posicion;
+                }
+                posicion++;
+            }
+            return posicion;
+        }
+
+        private long esperaEstimadaSegundos(int posicion) {
+            return (long) Math.ceil(posicion * tiempoServicioMs / checkoutsPorViaje / 1000);
+        }
+
+        private TurnoSalaEsperaDTO aDTO(Turno turno, int posicion) {
+            long espera = posicion == 0 ? 0 : esperaEstimadaSegundos(posicion);
+            long consultarEn = posicion == 0 ? 0 : Math.max(1, Math.min(10, espera / 2));
+            return new TurnoSalaEsperaDTO(turno.token, viajeId, turno.estado, posicion, espera, consultarEn);
+        }
+    }
+
+    private static final class Turno {
+        private final String token;
+        private EstadoTurno estado = EstadoTurno.EN_ESPERA;
+        private long ultimoContacto;
+        private long inicioCheckout;
+
+        Turno(String token, long ahora) {
+            this.token = token;
+            this.ultimoContacto = ahora;
+        }
+    }
+}
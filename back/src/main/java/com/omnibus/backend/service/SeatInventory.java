@@ -0,0 +1,226 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.model.EstadoPasaje;
+import com.omnibus.backend.model.Omnibus;
+import com.omnibus.backend.model.Pasaje;
+import com.omnibus.backend.model.Viaje;
+import com.omnibus.backend.repository.PasajeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * Inventario de asientos en memoria: un bitmap compacto por viaje (un bit por asiento).
+ * El bitmap se carga de forma perezosa desde la BD la primera vez que se consulta un viaje
+ * y a partir de ahí las comprobaciones de disponibilidad se resuelven sin ir a la base de datos.
+ *
+ * Los asientos se reclaman en memoria de forma atómica (todo o nada) y la persistencia
+ * la sigue haciendo el servicio que llama (write-through). Si la transacción que reclamó
+ * los asientos hace rollback, se liberan automáticamente.
+ */
+@Component
+public class SeatInventory {
+
+    private static final Logger logger = LoggerFactory.getLogger(SeatInventory.class);
+    private static final List<EstadoPasaje> ESTADOS_OCUPADOS = List.of(EstadoPasaje.VENDIDO, EstadoPasaje.RESERVADO);
+
+    private final PasajeRepository pasajeRepository;
+    private final ConcurrentHashMap<Integer, MapaAsientos> mapasPorViaje = new ConcurrentHashMap<>();
+    private final List<BiConsumer<Integer, List<Integer>>> avisosDeReversion = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public SeatInventory(PasajeRepository pasajeRepository) {
+        this.pasajeRepository = pasajeRepository;
+    }
+
+    /**
+     * Reclama todos los asientos indicados para el viaje o ninguno.
+     * @throws IllegalArgumentException si algún número de asiento está fuera de la capacidad del ómnibus.
+     * @throws IllegalStateException si algún asiento ya está ocupado.
+     */
+    public void reclamarAsientos(Viaje viaje, Collection<Integer> numerosAsiento) {
+        MapaAsientos mapa = obtenerMapa(viaje);
+        mapa.reclamar(numerosAsiento);
+
+        // Si la transacción que escribe los pasajes falla, el bitmap no debe quedar marcado.
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<Integer> reclamados = List.copyOf(numerosAsiento);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        logger.info("Rollback detectado. Liberando asientos {} del viaje ID {} en el inventario.", reclamados, viaje.getId());
+                        mapa.liberar(reclamados);
+                        avisosDeReversion.forEach(aviso -> aviso.accept(viaje.getId(), reclamados));
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Registra una acción que recibe el viaje y los asientos de cada reclamo revertido por rollback,
+     * después de que se liberan del bitmap. Mientras la transacción estaba abierta esos asientos
+     * se vieron ocupados y nunca se van a confirmar.
+     */
+    public void alRevertirReclamo(BiConsumer<Integer, List<Integer>> aviso) {
+        avisosDeReversion.add(aviso);
+    }
+
+    /**
+     * Libera asientos de un viaje (devoluciones, reservas expiradas).
+     * Si hay una transacción activa, la liberación se aplica recién después del commit
+     * para no ofrecer un asiento que la BD todavía considera ocupado.
+     */
+    public void liberarAsientos(Integer viajeId, Collection<Integer> numerosAsiento) {
+        if (numerosAsiento.isEmpty()) {
+            return;
+        }
+        List<Integer> aLiberar = List.copyOf(numerosAsiento);
+        Runnable liberacion = () -> {
+            MapaAsientos mapa = mapasPorViaje.get(viajeId);
+            if (mapa != null) {
+                mapa.liberar(aLiberar);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    liberacion.run();
+                }
+            });
+        } else {
+            liberacion.run();
+        }
+    }
+
+    public boolean estaOcupado(Viaje viaje, int numeroAsiento) {
+        return obtenerMapa(viaje).estaOcupado(numeroAsiento);
+    }
+
+    public Set<Integer> obtenerAsientosOcupados(Viaje viaje) {
+        return obtenerMapa(viaje).ocupados();
+    }
+
+    public int obtenerCapacidad(Viaje viaje) {
+        return obtenerMapa(viaje).capacidad;
+    }
+
+    /**
+     * Descarta el bitmap de un viaje. Se vuelve a cargar desde la BD en el próximo acceso.
+     * Se usa cuando cambia la capacidad (reasignación de ómnibus) o el viaje deja de vender.
+     */
+    public void invalidar(Integer viajeId) {
+        if (mapasPorViaje.remove(viajeId) != null) {
+            logger.debug("Inventario de asientos del viaje ID {} invalidado.", viajeId);
+        }
+    }
+
+    private MapaAsientos obtenerMapa(Viaje viaje) {
+        return mapasPorViaje.computeIfAbsent(viaje.getId(), id -> cargarMapa(viaje));
+    }
+
+    private MapaAsientos cargarMapa(Viaje viaje) {
+        Omnibus bus = viaje.getBusAsignado();
+        if (bus == null) {
+            throw new IllegalStateException("El viaje ID " + viaje.getId() + " no tiene un ómnibus asignado.");
+        }
+        MapaAsientos mapa = new MapaAsientos(bus.getCapacidadAsientos());
+        List<Pasaje> activos = pasajeRepository.findByDatosViajeAndEstadoIn(viaje, ESTADOS_OCUPADOS);
+        for (Pasaje pasaje : activos) {
+            mapa.marcarCargado(pasaje.getNumeroAsiento());
+        }
+        logger.info("Inventario de asientos cargado para viaje ID {}: {} de {} asientos ocupados.",
+                viaje.getId(), activos.size(), bus.getCapacidadAsientos());
+        return mapa;
+    }
+
+    /**
+     * Bitmap de asientos de un viaje. El bit (n - 1) representa al asiento n.
+     */
+    static final class MapaAsientos {
+        private final int capacidad;
+        private final long[] bits;
+
+        MapaAsientos(int capacidad) {
+            this.capacidad = capacidad;
+            this.bits = new long[(capacidad + 63) >>> 6];
+        }
+
+        synchronized void reclamar(Collection<Integer> numerosAsiento) {
+            for (Integer numero : numerosAsiento) {
+                validarRango(numero);
+            }
+            List<Integer> reclamados = new ArrayList<>(numerosAsiento.size());
+            for (Integer numero : numerosAsiento) {
+                if (get(numero)) {
+                    // Deshacemos lo reclamado en esta misma llamada para mantener el todo o nada.
+                    reclamados.forEach(n -> set(n, false));
+                    throw new IllegalStateException("El asiento " + numero + " ya no está disponible.");
+                }
+                set(numero, true);
+                reclamados.add(numero);
+            }
+        }
+
+        synchronized void liberar(Collection<Integer> numerosAsiento) {
+            for (Integer numero : numerosAsiento) {
+                if (numero != null && numero >= 1 && numero <= capacidad) {
+                    set(numero, false);
+                }
+            }
+        }
+
+        synchronized void marcarCargado(Integer numero) {
+            if (numero != null && numero >= 1 && numero <= capacidad) {
+                set(numero, true);
+            }
+        }
+
+        synchronized boolean estaOcupado(int numero) {
+            return numero >= 1 && numero <= capacidad && get(numero);
+        }
+
+        synchronized Set<Integer> ocupados() {
+            Set<Integer> resultado = new TreeSet<>();
+            for (int i = 0; i < bits.length; i++) {
+                long palabra = bits[i];
+                while (palabra != 0) {
+                    int bit = Long.numberOfTrailingZeros(palabra);
+                    resultado.add((i << 6) + bit + 1);
+                    palabra &= palabra - 1;
+                }
+            }
+            return resultado;
+        }
+
+        private void validarRango(Integer numero) {
+            if (numero == null || numero < 1 || numero > capacidad) {
+                throw new IllegalArgumentException("Número de asiento " + numero + " es inválido.");
+            }
+        }
+
+        private boolean get(int numero) {
+            int idx = numero - 1;
+            return (bits[idx >>> 6] & (1L << (idx & 63))) != 0;
+        }
+
+        private void set(int numero, boolean ocupado) {
+            int idx = numero - 1;
+            if (ocupado) {
+                bits[idx >>> 6] |= 1L << (idx & 63);
+            } else {
+                bits[idx >>> 6] &= ~(1L << (idx & 63));
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.omnibus.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.omnibus.backend.repository.LocalidadRepository;
+import com.omnibus.backend.repository.OmnibusRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Supplier;
+
+/**
+ * Listados de referencia (localidades y ómnibus) ya serializados a JSON, con su ETag.
+ *
+ * Cada listado se arma una vez y se reutiliza hasta que cambia una de sus entidades
+ * ({@link ReferenciaCambiosListener} avisa después del commit). El snapshot es inmutable y se reemplaza
+ * entero, y el ETag es un hash del contenido: dos instancias con los mismos datos responden el mismo ETag.
+ */
+@Service
+public class SnapshotReferenciaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotReferenciaService.class);
+
+    /**
+     * Cuerpo JSON listo para escribir en la respuesta y su ETag fuerte (entre comillas).
+     */
+    public record Snapshot(byte[] cuerpo, String etag) {
+    }
+
+    private final class Listado {
+        private final String nombre;
+        private final Supplier<Object> datos;
+        private volatile Snapshot actual;
+
+        private Listado(String nombre, Supplier<Object> datos) {
+            this.nombre = nombre;
+            this.datos = datos;
+        }
+
+        private Snapshot obtener() {
+            Snapshot snapshot = actual;
+            if (snapshot != null) {
+                return snapshot;
+            }
+            // Se arma con el monitor tomado: una invalidación posterior al commit espera a que termine
+            // y la descarta, así nunca queda publicado un snapshot leído antes del cambio.
+            synchronized (this) {
+                if (actual == null) {
+                    actual = serializar(nombre, datos.get());
+                }
+                return actual;
+            }
+        }
+
+        private synchronized void invalidar() {
+            actual = null;
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Listado localidades;
+    private final Listado omnibus;
+
+    @Autowired
+    public SnapshotReferenciaService(ObjectMapper objectMapper,
+                                     LocalidadRepository localidadRepository,
+                                     OmnibusRepository omnibusRepository) {
+        this.objectMapper = objectMapper;
+        this.localidades = new Listado("localidades", localidadRepository::findAll);
+        this.omnibus = new Listado("omnibus", omnibusRepository::findAllConLocalidad);
+    }
+
+    public Snapshot obtenerLocalidades() {
+        return localidades.obtener();
+    }
+
+    public Snapshot obtenerOmnibus() {
+        return omnibus.obtener();
+    }
+
+    public void invalidarLocalidades() {
+        invalidarDespuesDelCommit(localidades);
+    }
+
+    public void invalidarOmnibus() {
+        invalidarDespuesDelCommit(omnibus);
+    }
+
+    private void invalidarDespuesDelCommit(Listado listado) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    listado.invalidar();
+                }
+            });
+        } else {
+            listado.invalidar();
+        }
+    }
+
+    private Snapshot serializar(String nombre, Object datos) {
+        try {
+            byte[] cuerpo = objectMapper.writeValueAsBytes(datos);
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(cuerpo);
+            String etag = "\"" + nombre + "-" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+            logger.info("Snapshot de {} armado: {} bytes, ETag {}.", nombre, cuerpo.length, etag);
+            return new Snapshot(cuerpo, etag);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No se pudo armar el snapshot de " + nombre + ".", e);
+        }
+    }
+}
@@ -2,8 +2,11 @@ package com.omnibus.backend.service;
 
 import com.omnibus.backend.dto.*;
 import com.omnibus.backend.model.*;
+import com.omnibus.backend.repository.CursorBusquedaViajes;
+import com.omnibus.backend.repository.CursorViaje;
 import com.omnibus.backend.repository.LocalidadRepository;
 import com.omnibus.backend.repository.OmnibusRepository;
+import com.omnibus.backend.repository.OrdenBusquedaViajes;
 import com.omnibus.backend.repository.PasajeRepository;
 import com.omnibus.backend.repository.ViajeRepository;
 import jakarta.persistence.EntityNotFoundException;
@@ -11,39 +14,57 @@ import jakarta.persistence.criteria.Predicate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 public class ViajeService {
 
     private static final Logger logger = LoggerFactory.getLogger(ViajeService.class);
+    public static final int TAMANO_PAGINA_POR_DEFECTO = 50;
+    public static final int MAX_TAMANO_PAGINA = 200;
+    // Posición anterior a cualquier viaje: primera página del listado completo
 
-    private static final Duration MIN_BUFFER_GENERAL_ENTRE_VIAJES_DIF_LOC = Duration.ofHours(12);
-    private static final Duration MIN_BUFFER_MISMA_LOCALIDAD_ENTRE_VIAJES = Duration.ofHours(2);
-    private static final Duration MIN_BUFFER_OPERATIVO_POST_LLEGADA = Duration.ofMinutes(30);
+    static final Duration MIN_BUFFER_GENERAL_ENTRE_VIAJES_DIF_LOC = Duration.ofHours(12);
+    static final Duration MIN_BUFFER_MISMA_LOCALIDAD_ENTRE_VIAJES = Duration.ofHours(2);
+    static final Duration MIN_BUFFER_OPERATIVO_POST_LLEGADA = Duration.ofMinutes(30);
 
     private final ViajeRepository viajeRepository;
     private final LocalidadRepository localidadRepository;
     private final OmnibusRepository omnibusRepository;
     private final PasajeRepository pasajeRepository;
+    private final SeatInventory seatInventory;
+    private final AsientosStreamService asientosStreamService;
+    private final DisponibilidadRutaDiaService disponibilidadRutaDiaService;
+    private final LineaTiempoFlotaService lineaTiempoFlotaService;
 
     @Autowired
     public ViajeService(ViajeRepository viajeRepository,
                         LocalidadRepository localidadRepository,
                         OmnibusRepository omnibusRepository,
-                        PasajeRepository pasajeRepository) {
+                        PasajeRepository pasajeRepository,
+                        SeatInventory seatInventory,
+                        AsientosStreamService asientosStreamService,
+                        DisponibilidadRutaDiaService disponibilidadRutaDiaService,
+                        LineaTiempoFlotaService lineaTiempoFlotaService) {
         this.viajeRepository = viajeRepository;
         this.localidadRepository = localidadRepository;
         this.omnibusRepository = omnibusRepository;
         this.pasajeRepository = pasajeRepository;
+        this.seatInventory = seatInventory;
+        this.asientosStreamService = asientosStreamService;
+        this.disponibilidadRutaDiaService = disponibilidadRutaDiaService;
+        this.lineaTiempoFlotaService = lineaTiempoFlotaService;
     }
 
     @Transactional
@@ -77,41 +98,34 @@ public class ViajeService {
             throw new NoBusDisponibleException("No hay ómnibus en estado OPERATIVO en el sistema.");
         }
 
+        // Horarios y ubicaciones de cada candidato salen de la agenda en memoria de la flota, sin consultas por ómnibus.
         Omnibus busSeleccionado = null;
         for (Omnibus busCandidato : busesPotenciales) {
             logger.debug("Evaluando bus candidato para NUEVO VIAJE: {} (ID: {})", busCandidato.getMatricula(), busCandidato.getId());
 
-            List<Viaje> viajesConflictivosDirectos = viajeRepository.findOverlappingTrips(
-                    busCandidato,
-                    salidaNuevoViajeDT,
-                    llegadaNuevoViajeDT,
-                    Arrays.asList(EstadoViaje.PROGRAMADO, EstadoViaje.EN_CURSO)
-            );
-            if (!viajesConflictivosDirectos.isEmpty()) {
-                logger.debug("Bus {} tiene conflicto horario directo con viaje ID {}.", busCandidato.getMatricula(), viajesConflictivosDirectos.get(0).getId());
+            Optional<LineaTiempoFlotaService.Tramo> conflictoDirecto = lineaTiempoFlotaService.buscarSolapamiento(
+                    busCandidato.getId(), salidaNuevoViajeDT, llegadaNuevoViajeDT, null);
+            if (conflictoDirecto.isPresent()) {
+                logger.debug("Bus {} tiene conflicto horario directo con viaje ID {}.", busCandidato.getMatricula(), conflictoDirecto.get().viajeId());
                 continue;
             }
 
-            Localidad ubicacionPrevistaDelBusParaNuevoViaje = busCandidato.getLocalidadActual();
+            Long ubicacionPrevistaDelBusParaNuevoViajeId = busCandidato.getLocalidadActual().getId();
             LocalDateTime horaLlegadaUltimoViajeDT = null;
 
-            List<Viaje> ultimosViajesActivosList = viajeRepository.findUltimoViajeActivoConcluidoAntesDe(
-                    busCandidato,
-                    salidaNuevoViajeDT,
-                    Arrays.asList(EstadoViaje.PROGRAMADO, EstadoViaje.EN_CURSO)
-            );
-
-            if (!ultimosViajesActivosList.isEmpty()) {
-                Viaje ultimoViajeActivoBus = ultimosViajesActivosList.get(0);
-                ubicacionPrevistaDelBusParaNuevoViaje = ultimoViajeActivoBus.getDestino();
-                horaLlegadaUltimoViajeDT = ultimoViajeActivoBus.getFechaHoraLlegada();
-                logger.debug("Último viaje del bus {}: ID {}, llega a {} a las {}", busCandidato.getMatricula(), ultimoViajeActivoBus.getId(), ubicacionPrevistaDelBusParaNuevoViaje.getNombre(), horaLlegadaUltimoViajeDT);
+            Optional<LineaTiempoFlotaService.Tramo> ultimoViajeActivo = lineaTiempoFlotaService.ultimoConcluidoAntesDe(
+                    busCandidato.getId(), salidaNuevoViajeDT);
+
+            if (ultimoViajeActivo.isPresent()) {
+                ubicacionPrevistaDelBusParaNuevoViajeId = ultimoViajeActivo.get().destinoId();
+                horaLlegadaUltimoViajeDT = ultimoViajeActivo.get().llegada();
+                logger.debug("Último viaje del bus {}: ID {}, llega a localidad ID {} a las {}", busCandidato.getMatricula(), ultimoViajeActivo.get().viajeId(), ubicacionPrevistaDelBusParaNuevoViajeId, horaLlegadaUltimoViajeDT);
             } else {
-                logger.debug("Bus {} no tiene viajes previos activos. Ubicación actual: {}", busCandidato.getMatricula(), ubicacionPrevistaDelBusParaNuevoViaje.getNombre());
+                logger.debug("Bus {} no tiene viajes previos activos. Ubicación actual: localidad ID {}", busCandidato.getMatricula(), ubicacionPrevistaDelBusParaNuevoViajeId);
             }
 
-            if (!ubicacionPrevistaDelBusParaNuevoViaje.getId().equals(origenNuevoViaje.getId())) {
-                logger.debug("Bus {} no estará en la localidad de origen {} para el nuevo viaje. Estará en {}", busCandidato.getMatricula(), origenNuevoViaje.getNombre(), ubicacionPrevistaDelBusParaNuevoViaje.getNombre());
+            if (!ubicacionPrevistaDelBusParaNuevoViajeId.equals(origenNuevoViaje.getId())) {
+                logger.debug("Bus {} no estará en la localidad de origen {} para el nuevo viaje. Estará en localidad ID {}", busCandidato.getMatricula(), origenNuevoViaje.getNombre(), ubicacionPrevistaDelBusParaNuevoViajeId);
                 continue;
             }
 
@@ -123,19 +137,16 @@ public class ViajeService {
                 }
             }
 
-            List<Viaje> proximosViajesProgramadosList = viajeRepository.findProximoViajeProgramadoComenzandoDespuesDe(
-                    busCandidato,
-                    llegadaNuevoViajeDT,
-                    Arrays.asList(EstadoViaje.PROGRAMADO)
-            );
+            Optional<LineaTiempoFlotaService.Tramo> proximoViaje = lineaTiempoFlotaService.proximoProgramadoDespuesDe(
+                    busCandidato.getId(), llegadaNuevoViajeDT);
 
-            if (!proximosViajesProgramadosList.isEmpty()) {
-                Viaje proximoViajeAsignado = proximosViajesProgramadosList.get(0);
-                LocalDateTime salidaProximoViajeAsignadoDT = proximoViajeAsignado.getFechaHoraSalida();
-                logger.debug("Próximo viaje del bus {}: ID {}, sale de {} a las {}", busCandidato.getMatricula(), proximoViajeAsignado.getId(), proximoViajeAsignado.getOrigen().getNombre(), salidaProximoViajeAsignadoDT);
+            if (proximoViaje.isPresent()) {
+                LineaTiempoFlotaService.Tramo proximoViajeAsignado = proximoViaje.get();
+                LocalDateTime salidaProximoViajeAsignadoDT = proximoViajeAsignado.salida();
+                logger.debug("Próximo viaje del bus {}: ID {}, sale de localidad ID {} a las {}", busCandidato.getMatricula(), proximoViajeAsignado.viajeId(), proximoViajeAsignado.origenId(), salidaProximoViajeAsignadoDT);
 
                 Duration bufferNecesario;
-                if (destinoNuevoViaje.getId().equals(proximoViajeAsignado.getOrigen().getId())) {
+                if (destinoNuevoViaje.getId().equals(proximoViajeAsignado.origenId())) {
                     bufferNecesario = MIN_BUFFER_MISMA_LOCALIDAD_ENTRE_VIAJES;
                 } else {
                     bufferNecesario = MIN_BUFFER_GENERAL_ENTRE_VIAJES_DIF_LOC;
@@ -172,6 +183,7 @@ public class ViajeService {
         omnibusRepository.save(busSeleccionado);
 
         Viaje viajeGuardado = viajeRepository.save(nuevoViaje);
+        disponibilidadRutaDiaService.registrarViaje(viajeGuardado);
         logger.info("Viaje creado ID: {}. Precio: {}. Bus asignado: {} (ID: {})",
                 viajeGuardado.getId(), viajeGuardado.getPrecio(), busSeleccionado.getMatricula(), busSeleccionado.getId());
         return mapToViajeResponseDTO(viajeGuardado);
@@ -201,6 +213,8 @@ public class ViajeService {
 
         viaje.setEstado(EstadoViaje.FINALIZADO);
         viajeRepository.save(viaje);
+        viajeRepository.incrementarVersionAsientos(List.of(viajeId));
+        disponibilidadRutaDiaService.registrarCambioEstado(List.of(viaje));
 
         Localidad destinoViaje = viaje.getDestino();
         bus.setLocalidadActual(destinoViaje);
@@ -244,16 +258,10 @@ public class ViajeService {
                     ") para los pasajes ya vendidos (" + pasajesVendidos + ").");
         }
 
-        List<Viaje> viajesConflictivosNuevoBus = viajeRepository
-                .findOverlappingTripsExcludingId(
-                        nuevoOmnibus,
-                        viaje.getFechaHoraSalida(),
-                        viaje.getFechaHoraLlegada(),
-                        Arrays.asList(EstadoViaje.PROGRAMADO, EstadoViaje.EN_CURSO),
-                        viaje.getId()
-                );
-        if (!viajesConflictivosNuevoBus.isEmpty()) {
-            throw new NoBusDisponibleException("El nuevo ómnibus (ID: " + nuevoOmnibusId + ") tiene conflicto horario directo con otro viaje (ID: " + viajesConflictivosNuevoBus.get(0).getId() + ").");
+        Optional<LineaTiempoFlotaService.Tramo> conflictoNuevoBus = lineaTiempoFlotaService.buscarSolapamiento(
+                nuevoOmnibus.getId(), viaje.getFechaHoraSalida(), viaje.getFechaHoraLlegada(), viaje.getId());
+        if (conflictoNuevoBus.isPresent()) {
+            throw new NoBusDisponibleException("El nuevo ómnibus (ID: " + nuevoOmnibusId + ") tiene conflicto horario directo con otro viaje (ID: " + conflictoNuevoBus.get().viajeId() + ").");
         }
 
         if (omnibusAnterior != null) {
@@ -267,10 +275,48 @@ public class ViajeService {
         omnibusRepository.save(nuevoOmnibus);
 
         Viaje viajeActualizado = viajeRepository.save(viaje);
+        // La capacidad del bitmap depende del ómnibus: se recarga en el próximo acceso.
+        viajeRepository.incrementarVersionAsientos(List.of(viajeId));
+        seatInventory.invalidar(viajeId);
+        asientosStreamService.invalidar(viajeId);
+        disponibilidadRutaDiaService.registrarCambioOmnibus(viaje);
         logger.info("Viaje ID {} reasignado a ómnibus ID {}. Asientos disponibles ahora: {}", viajeId, nuevoOmnibusId, viajeActualizado.getAsientosDisponibles());
         return mapToViajeResponseDTO(viajeActualizado);
     }
 
+    /**
+     * Cambia el ómnibus de varios viajes PROGRAMADOS con una actualización en lote. Las reglas de reasignación
+     * (ubicación, capacidad, solapamientos) las verifica quien arma el mapa; acá solo se aplica el cambio.
+     * Los ómnibus anteriores no cambian de estado: pueden seguir teniendo otros viajes.
+     *
+     * @return Los viajes releídos con el ómnibus nuevo y sus asientos disponibles.
+     */
+    @Transactional
+    public List<Viaje> reasignarEnLote(Map<Viaje, Omnibus> reasignaciones) throws IllegalStateException {
+        if (reasignaciones.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Omnibus> nuevosAsignados = reasignaciones.values().stream()
+                .filter(bus -> bus.getEstado() == EstadoBus.OPERATIVO)
+                .distinct()
+                .collect(Collectors.toList());
+        nuevosAsignados.forEach(bus -> bus.setEstado(EstadoBus.ASIGNADO_A_VIAJE));
+        omnibusRepository.saveAll(nuevosAsignados);
+
+        List<Integer> ids = reasignaciones.keySet().stream().map(Viaje::getId).collect(Collectors.toList());
+        viajeRepository.reasignarOmnibusEnLote(reasignaciones);
+        List<Viaje> actualizados = viajeRepository.findAllById(ids);
+
+        // La capacidad del bitmap depende del ómnibus: se recarga en el próximo acceso.
+        ids.forEach(id -> {
+            seatInventory.invalidar(id);
+            asientosStreamService.invalidar(id);
+        });
+        disponibilidadRutaDiaService.registrarCambiosOmnibus(actualizados);
+        logger.info("{} viajes reasignados en lote a {} ómnibus.", actualizados.size(), new HashSet<>(reasignaciones.values()).size());
+        return actualizados;
+    }
+
     public List<ViajeResponseDTO> obtenerViajesPorEstado(EstadoViaje estado) {
         logger.info("Buscando viajes con estado: {}", estado);
         List<Viaje> viajesEncontrados = viajeRepository.findByEstado(estado);
@@ -331,100 +377,45 @@ public class ViajeService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Búsqueda de viajes con disponibilidad de a una página; sin cursor devuelve la primera.
+     * El cursor es sobre (clave de orden, id), así que todos los órdenes admiten páginas siguientes;
+     * un cursor solo vale para el mismo orden con el que se generó.
+     */
     @Transactional(readOnly = true)
-    public List<ViajeConDisponibilidadDTO> buscarViajesConDisponibilidad(BusquedaViajesGeneralDTO criterios) {
+    public PaginaCursorDTO<ViajeConDisponibilidadDTO> buscarViajesConDisponibilidad(BusquedaViajesGeneralDTO criterios) {
         logger.debug("Buscando viajes con disponibilidad. Criterios: {}", criterios);
+        int tamano = tamanoPagina(criterios.getTamanoPagina());
+        // Se resuelve sobre el modelo de lectura por ruta y día; las búsquedas repetidas salen del caché.
+        OrdenBusquedaViajes orden = OrdenBusquedaViajes.desde(criterios.getSortBy());
+        CursorBusquedaViajes despuesDe = criterios.getCursor() != null
+                ? CursorBusquedaViajes.decodificar(criterios.getCursor(), orden) : null;
+        // Se pide una fila de más para saber si hay una página siguiente sin hacer un COUNT.
+        List<ViajeConDisponibilidadDTO> filas = disponibilidadRutaDiaService.buscar(criterios, despuesDe, tamano + 1);
+        return armarPagina(filas, tamano, ultimo -> CursorBusquedaViajes.de(orden, ultimo).codificar());
+    }
 
-        Specification<Viaje> spec = (root, query, criteriaBuilder) -> {
-            List<Predicate> predicates = new ArrayList<>();
-
-            if (criterios.getOrigenId() != null) {
-                predicates.add(criteriaBuilder.equal(root.get("origen").get("id"), criterios.getOrigenId()));
-            }
-            if (criterios.getDestinoId() != null) {
-                predicates.add(criteriaBuilder.equal(root.get("destino").get("id"), criterios.getDestinoId()));
-            }
-            if (criterios.getFechaDesde() != null) {
-                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("fechaHoraSalida"), criterios.getFechaDesde().atStartOfDay()));
-            }
-            if (criterios.getFechaHasta() != null) {
-                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("fechaHoraSalida"), criterios.getFechaHasta().plusDays(1).atStartOfDay()));
-            }
-            if (criterios.getEstado() != null) {
-                predicates.add(criteriaBuilder.equal(root.get("estado"), criterios.getEstado()));
-            } else {
-                predicates.add(criteriaBuilder.or(
-                        criteriaBuilder.equal(root.get("estado"), EstadoViaje.PROGRAMADO),
-                        criteriaBuilder.equal(root.get("estado"), EstadoViaje.EN_CURSO)
-                ));
-            }
-            predicates.add(criteriaBuilder.isNotNull(root.get("busAsignado")));
-            return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
-        };
-
-        List<Viaje> viajesFiltrados = viajeRepository.findAll(spec);
-        logger.debug("Viajes filtrados por BD: {}", viajesFiltrados.size());
-
-        List<ViajeConDisponibilidadDTO> dtos = viajesFiltrados.stream().map(viaje -> {
-            Omnibus omnibus = viaje.getBusAsignado();
-            if (omnibus == null) {
-                return null;
-            }
-            List<EstadoPasaje> estadosOcupados = Arrays.asList(EstadoPasaje.VENDIDO, EstadoPasaje.RESERVADO);
-            long asientosVendidosCount = pasajeRepository.countByDatosViajeAndEstadoIn(viaje, estadosOcupados);
-
-            return new ViajeConDisponibilidadDTO(
-                    viaje.getId(),
-                    viaje.getFechaHoraSalida(),
-                    viaje.getFechaHoraLlegada(),
-                    viaje.getOrigen().getNombre(),
-                    viaje.getDestino().getNombre(),
-                    omnibus.getMatricula(),
-                    omnibus.getCapacidadAsientos(),
-                    (int) asientosVendidosCount,
-                    viaje.getEstado(),
-                    viaje.getPrecio()
-            );
-        }).filter(Objects::nonNull).collect(Collectors.toList());
-
-        if (criterios.getMinAsientosDisponibles() != null) {
-            dtos = dtos.stream()
-                    .filter(dto -> dto.getAsientosDisponibles() >= criterios.getMinAsientosDisponibles())
-                    .collect(Collectors.toList());
-        }
-
-        // Lógica de ordenamiento
-        Comparator<ViajeConDisponibilidadDTO> comparator;
-        boolean ascending = criterios.getSortDir() == null || "asc".equalsIgnoreCase(criterios.getSortDir());
-
-        switch (criterios.getSortBy() != null ? criterios.getSortBy().toLowerCase() : "fechasalida") {
-            case "origennombre":
-                comparator = Comparator.comparing(ViajeConDisponibilidadDTO::getOrigenNombre, String.CASE_INSENSITIVE_ORDER);
-                break;
-            case "destinonombre":
-                comparator = Comparator.comparing(ViajeConDisponibilidadDTO::getDestinoNombre, String.CASE_INSENSITIVE_ORDER);
-                break;
-            case "asientosdisponibles":
-                comparator = Comparator.comparingInt(ViajeConDisponibilidadDTO::getAsientosDisponibles);
-                break;
-            case "precio":
-                comparator = Comparator.comparing(ViajeConDisponibilidadDTO::getPrecio, Comparator.nullsLast(Double::compareTo));
-                break;
-            case "fechasalida":
-            default:
-                comparator = Comparator.comparing(ViajeConDisponibilidadDTO::getFechaSalida, Comparator.nullsLast(LocalDateTime::compareTo));
-                break;
-        }
-
-        if (!ascending) {
-            comparator = comparator.reversed();
-        }
-        dtos.sort(comparator);
-        return dtos;
+    /**
+     * Versión actual del mapa de asientos del viaje (para ETag). Es una lectura por clave primaria
+     * de la tabla viaje; no consulta pasajes.
+     */
+    @Transactional(readOnly = true)
+    public long obtenerVersionAsientos(Integer viajeId) {
+        return viajeRepository.findVersionAsientosById(viajeId)
+                .orElseThrow(() -> new EntityNotFoundException("Viaje no encontrado con ID: " + viajeId));
     }
 
     @Transactional(readOnly = true)
     public ViajeDetalleConAsientosDTO obtenerDetallesViajeParaSeleccionAsientos(Integer viajeId) {
+        return obtenerDetallesViajeParaSeleccionAsientos(viajeId, false);
+    }
+
+    /**
+     * @param formatoBitmap Si es true, los asientos se devuelven como bitmaps en base64 ({@link MapaAsientosBitmapDTO})
+     *                      en lugar de la lista de números ocupados.
+     */
+    @Transactional(readOnly = true)
+    public ViajeDetalleConAsientosDTO obtenerDetallesViajeParaSeleccionAsientos(Integer viajeId, boolean formatoBitmap) {
         Viaje viaje = viajeRepository.findById(viajeId)
                 .orElseThrow(() -> new EntityNotFoundException("Viaje no encontrado con ID: " + viajeId));
 
@@ -436,14 +427,11 @@ public class ViajeService {
         }
 
         Omnibus omnibus = viaje.getBusAsignado();
-        List<EstadoPasaje> estadosOcupados = Arrays.asList(EstadoPasaje.VENDIDO, EstadoPasaje.RESERVADO);
-        Set<Integer> numerosAsientoOcupados = pasajeRepository.findByDatosViajeAndEstadoIn(viaje, estadosOcupados)
-                .stream()
-                .map(Pasaje::getNumeroAsiento)
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
-
-        return ViajeDetalleConAsientosDTO.builder()
+        // Solo número y estado de cada asiento: no se cargan entidades Pasaje.
+        List<PasajeRepository.AsientoOcupado> ocupados = pasajeRepository.findAsientosOcupadosByViajeId(
+                viajeId, List.of(EstadoPasaje.VENDIDO, EstadoPasaje.RESERVADO));
+
+        ViajeDetalleConAsientosDTO.ViajeDetalleConAsientosDTOBuilder detalle = ViajeDetalleConAsientosDTO.builder()
                 .id(viaje.getId())
                 .fecha(viaje.getFecha())
                 .horaSalida(viaje.getHoraSalida())
@@ -455,9 +443,20 @@ public class ViajeService {
 
                 .omnibusMatricula(omnibus.getMatricula())
                 .capacidadOmnibus(omnibus.getCapacidadAsientos())
-                .asientosDisponibles(viaje.getAsientosDisponibles())
-                .numerosAsientoOcupados(numerosAsientoOcupados)
-                .build();
+                .asientosDisponibles(viaje.getAsientosDisponibles());
+
+        if (formatoBitmap) {
+            Map<Boolean, List<Integer>> porEstado = ocupados.stream()
+                    .collect(Collectors.partitioningBy(asiento -> asiento.getEstado() == EstadoPasaje.RESERVADO,
+                            Collectors.mapping(PasajeRepository.AsientoOcupado::getNumeroAsiento, Collectors.toList())));
+            detalle.mapaAsientos(MapaAsientosBitmapDTO.desde(omnibus.getCapacidadAsientos(),
+                    porEstado.get(false), porEstado.get(true)));
+        } else {
+            detalle.numerosAsientoOcupados(ocupados.stream()
+                    .map(PasajeRepository.AsientoOcupado::getNumeroAsiento)
+                    .collect(Collectors.toSet()));
+        }
+        return detalle.build();
     }
 
     private ViajeResponseDTO mapToViajeResponseDTO(Viaje viaje) {
@@ -484,19 +483,42 @@ public class ViajeService {
         }
     }
 
-    public List<ViajePrecioDTO> listarTodosLosViajesConPrecio() {
-        List<Viaje> viajes = viajeRepository.findAll();
-        return viajes.stream().map(viaje -> new ViajePrecioDTO(
-                viaje.getId(),
-                viaje.getFecha(),
-                viaje.getHoraSalida(),
-                viaje.getHoraLlegada(),
-                viaje.getOrigen().getNombre(),
-                viaje.getDestino().getNombre(),
-                viaje.getBusAsignado().getMatricula(),
-                viaje.getAsientosDisponibles(),
-                viaje.getEstado(),
-                viaje.getPrecio()
-        )).collect(Collectors.toList());
+    /**
+     * Listado de viajes con precio paginado por cursor sobre (fechaHoraSalida, id); sin cursor devuelve la primera página.
+     * El costo de cada página no depende de cuántos viajes históricos haya antes. El listado completo está en
+     * {@link ExportacionViajesService}.
+     *
+     * @param desde  Sin cursor, el listado empieza en los viajes que salen ese día; si no se indica, hoy.
+     * @param estado Si se indica, solo viajes en ese estado.
+     */
+    @Transactional(readOnly = true)
+    public PaginaCursorDTO<ViajePrecioDTO> listarViajesConPrecioPaginado(Integer tamanoPagina, String cursor,
+                                                                       LocalDate desde, EstadoViaje estado) {
+        int tamano = tamanoPagina(tamanoPagina);
+        CursorViaje despuesDe = cursor != null
+                ? CursorViaje.decodificar(cursor)
+                : new CursorViaje((desde != null ? desde : LocalDate.now()).atStartOfDay(), 0);
+        List<ViajePrecioDTO> filas = viajeRepository.listarConPrecioDespuesDe(
+                despuesDe.fechaHoraSalida(), despuesDe.id(),
+                estado != null ? EnumSet.of(estado) : EnumSet.allOf(EstadoViaje.class), Limit.of(tamano + 1));
+        return armarPagina(filas, tamano,
+                ultimo -> new CursorViaje(LocalDateTime.of(ultimo.getFecha(), ultimo.getHoraSalida()), ultimo.getId()).codificar());
+    }
+
+    private int tamanoPagina(Integer solicitado) {
+        if (solicitado == null) {
+            return TAMANO_PAGINA_POR_DEFECTO;
+        }
+        if (solicitado < 1) {
+            throw new IllegalArgumentException("El tamaño de página debe ser al menos 1.");
+        }
+        return Math.min(solicitado, MAX_TAMANO_PAGINA);
+    }
+
+    private <T> PaginaCursorDTO<T> armarPagina(List<T> filas, int tamano, Function<T, String> cursorDe) {
+        boolean hayMas = filas.size() > tamano;
+        List<T> content = hayMas ? new ArrayList<>(filas.subList(0, tamano)) : filas;
+        String siguienteCursor = hayMas ? cursorDe.apply(content.get(content.size() - 1)) : null;
+        return new PaginaCursorDTO<>(content, tamano, siguienteCursor);
     }
 }
\ No newline at end of file
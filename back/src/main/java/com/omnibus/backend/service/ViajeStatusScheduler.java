@@ -15,6 +15,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @Service
 public class ViajeStatusScheduler {
@@ -33,6 +34,12 @@ public class ViajeStatusScheduler {
     @Autowired
     private FirebaseNotificationService firebaseNotificationService;
 
+    @Autowired
+    private SeatInventory seatInventory;
+
+    @Autowired
+    private DisponibilidadRutaDiaService disponibilidadRutaDiaService;
+
     @Autowired
     public ViajeStatusScheduler(ViajeRepository viajeRepository, OmnibusRepository omnibusRepository, PasajeRepository pasajeRepository, EmailService emailService) {
         this.viajeRepository = viajeRepository;
@@ -62,6 +69,8 @@ public class ViajeStatusScheduler {
                 finalizarViajeYLiberarBus(viaje);
             }
             viajeRepository.saveAll(viajesParaFinalizarDirecto);
+            viajeRepository.incrementarVersionAsientos(viajesParaFinalizarDirecto.stream().map(Viaje::getId).collect(Collectors.toList()));
+            disponibilidadRutaDiaService.registrarCambioEstado(viajesParaFinalizarDirecto);
         }
     }
 
@@ -75,6 +84,8 @@ public class ViajeStatusScheduler {
                 viaje.setEstado(EstadoViaje.EN_CURSO);
             }
             viajeRepository.saveAll(viajesParaIniciar);
+            viajeRepository.incrementarVersionAsientos(viajesParaIniciar.stream().map(Viaje::getId).collect(Collectors.toList()));
+            disponibilidadRutaDiaService.registrarCambioEstado(viajesParaIniciar);
         }
     }
 
@@ -87,11 +98,14 @@ public class ViajeStatusScheduler {
                 finalizarViajeYLiberarBus(viaje);
             }
             viajeRepository.saveAll(viajesParaFinalizar);
+            viajeRepository.incrementarVersionAsientos(viajesParaFinalizar.stream().map(Viaje::getId).collect(Collectors.toList()));
+            disponibilidadRutaDiaService.registrarCambioEstado(viajesParaFinalizar);
         }
     }
 
     private void finalizarViajeYLiberarBus(Viaje viaje) {
         viaje.setEstado(EstadoViaje.FINALIZADO);
+        seatInventory.invalidar(viaje.getId());
         Omnibus busAsignadoEnViaje = viaje.getBusAsignado();
         if (busAsignadoEnViaje == null || busAsignadoEnViaje.getId() == null) {
             logger.warn("...[ERROR] El viaje ID {} que se está finalizando no tiene un bus asignado o el bus no tiene ID. No se puede actualizar el bus.", viaje.getId());
@@ -163,6 +177,8 @@ public class ViajeStatusScheduler {
             }
             // Guarda todos los viajes modificados en la base de datos en una sola operación.
             viajeRepository.saveAll(viajesParaCerrarVentas);
+            viajeRepository.incrementarVersionAsientos(viajesParaCerrarVentas.stream().map(Viaje::getId).collect(Collectors.toList()));
+            disponibilidadRutaDiaService.registrarCambioEstado(viajesParaCerrarVentas);
             logger.info("[!] Proceso de cierre de ventas y notificación finalizado.");
         }
         // Si no se encuentran viajes, el método simplemente termina sin hacer nada, lo cual es correcto.
@@ -1,6 +1,7 @@
 // src/main/java/com/omnibus/backend/service/PasajeService.java
 package com.omnibus.backend.service;
 
+import com.omnibus.backend.dto.AsientosCambioDTO;
 import com.omnibus.backend.dto.CompraMultiplePasajesRequestDTO;
 import com.omnibus.backend.dto.CompraPasajeRequestDTO;
 import com.omnibus.backend.dto.PasajeResponseDTO;
@@ -13,6 +14,7 @@ import jakarta.persistence.EntityNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -41,6 +43,10 @@ public class pasajeService { // Corregido a PascalCase: PasajeService
     private final AsyncService asyncService;
     private final NotificacionService notificacionService;
     private final EmailService emailService;
+    private final SeatInventory seatInventory;
+    private final ReservaExpiryQueue reservaExpiryQueue;
+    private final AsientosStreamService asientosStreamService;
+    private final DisponibilidadRutaDiaService disponibilidadRutaDiaService;
 
     // --- CONSTRUCTOR ÚNICO Y CORREGIDO ---
     // Spring usará este constructor para inyectar TODAS las dependencias necesarias.
@@ -52,7 +58,11 @@ public class pasajeService { // Corregido a PascalCase: PasajeService
                          PrecioService precioService,
                          AsyncService asyncService,
                          NotificacionService notificacionService,
-                         EmailService emailService) {
+                         EmailService emailService,
+                         SeatInventory seatInventory,
+                         ReservaExpiryQueue reservaExpiryQueue,
+                         AsientosStreamService asientosStreamService,
+                         DisponibilidadRutaDiaService disponibilidadRutaDiaService) {
         this.pasajeRepository = pasajeRepository;
         this.viajeRepository = viajeRepository;
         this.usuarioRepository = usuarioRepository;
@@ -61,6 +71,10 @@ public class pasajeService { // Corregido a PascalCase: PasajeService
         this.asyncService = asyncService;
         this.notificacionService = notificacionService;
         this.emailService = emailService;
+        this.seatInventory = seatInventory;
+        this.reservaExpiryQueue = reservaExpiryQueue;
+        this.asientosStreamService = asientosStreamService;
+        this.disponibilidadRutaDiaService = disponibilidadRutaDiaService;
     }
 
     @Transactional
@@ -89,17 +103,16 @@ public class pasajeService { // Corregido a PascalCase: PasajeService
             throw new IllegalArgumentException("Número de asiento " + requestDTO.getNumeroAsiento() + " es inválido.");
         }
 
-        // --- CORRECCIÓN DE LA LÓGICA DE BÚSQUEDA ---
-        List<EstadoPasaje> estadosActivos = List.of(EstadoPasaje.VENDIDO, EstadoPasaje.RESERVADO);
-
-        pasajeRepository.findByDatosViajeAndNumeroAsientoAndEstadoIn(viaje, requestDTO.getNumeroAsiento(), estadosActivos)
-                .ifPresent(pasajeExistente -> {
-                    String mensajeError = "El asiento " + requestDTO.getNumeroAsiento() +
-                            " ya está ocupado (estado: " + pasajeExistente.getEstado() +
-                            ") para el viaje ID: " + viaje.getId();
-                    logger.warn(mensajeError);
-                    throw new IllegalStateException(mensajeError);
-                });
+        // --- RESERVA DEL ASIENTO EN EL INVENTARIO EN MEMORIA ---
+        // Se reclama en el bitmap del viaje (sin consultar la BD); si la transacción falla se libera solo.
+        try {
+            seatInventory.reclamarAsientos(viaje, List.of(requestDTO.getNumeroAsiento()));
+        } catch (IllegalStateException e) {
+            String mensajeError = "El asiento " + requestDTO.getNumeroAsiento() +
+                    " ya está ocupado para el viaje ID: " + viaje.getId();
+            logger.warn(mensajeError);
+            throw new IllegalStateException(mensajeError);
+        }
 
         logger.info("Asiento {} disponible. Procediendo a crear pasaje...", requestDTO.getNumeroAsiento());
 
@@ -114,10 +127,11 @@ public class pasajeService { // Corregido a PascalCase: PasajeService
         // Asumiendo que `CompraPasajeRequestDTO` tiene el campo `paypalTransactionId`.
         // nuevoPasaje.setPaypalTransactionId(requestDTO.getPaypalTransactionId());
 
-        viaje.setAsientosDisponibles(viaje.getAsientosDisponibles() - 1);
-        viajeRepository.save(viaje);
+        descontarAsientos(viaje, 1);
 
-        Pasaje pasajeGuardado = pasajeRepository.save(nuevoPasaje);
+        Pasaje pasajeGuardado = guardarPasajesActivos(List.of(nuevoPasaje)).get(0);
+        asientosStreamService.publicarCambio(viaje.getId(), AsientosCambioDTO.TipoCambio.VENDIDO, List.of(pasajeGuardado.getNumeroAsiento()));
+        disponibilidadRutaDiaService.registrarCambioAsientos(viaje, -1);
         logger.info("Pasaje ID {} creado exitosamente para viaje ID {} asiento {}, estado: VENDIDO",
                 pasajeGuardado.getId(), viaje.getId(), pasajeGuardado.getNumeroAsiento());
 
@@ -322,32 +336,29 @@ public class pasajeService { // Corregido a PascalCase: PasajeService
         Viaje viaje = viajeRepository.findById(requestDTO.getViajeId())
                 .orElseThrow(() -> new EntityNotFoundException("Viaje no encontrado con ID: " + requestDTO.getViajeId()));
 
-        List<Pasaje> pasajesAConfirmar = new ArrayList<>();
-        List<EstadoPasaje> estadosActivos = List.of(EstadoPasaje.VENDIDO, EstadoPasaje.RESERVADO);
+        Set<Integer> asientos = asientosSinRepetir(requestDTO.getNumerosAsiento());
 
-        for (Integer numeroAsiento : requestDTO.getNumerosAsiento()) {
-            Pasaje pasaje = pasajeRepository.findByDatosViajeAndNumeroAsientoAndEstado(viaje, numeroAsiento, EstadoPasaje.RESERVADO)
-                    .orElseThrow(() -> new IllegalStateException("La reserva para el asiento " + numeroAsiento + " no fue encontrada o expiró."));
+        // --- CONFIRMACIÓN EN BLOQUE: un único UPDATE de RESERVADO a VENDIDO para todos los asientos ---
+        // Se asigna el mismo ID de transacción a todos los pasajes de esta compra múltiple.
+        int confirmados = pasajeRepository.confirmarReservas(viaje, requestDTO.getClienteId(), asientos, requestDTO.getPaypalTransactionId());
 
-            // --- VALIDACIONES DE CONFIRMACIÓN ---
-            if (pasaje.getEstado() != EstadoPasaje.RESERVADO) {
-                throw new IllegalStateException("El asiento " + numeroAsiento + " no estaba reservado. Su estado es: " + pasaje.getEstado());
-            }
-            if (!pasaje.getCliente().getId().equals(requestDTO.getClienteId())) {
+        if (confirmados != asientos.size()) {
+            // Solo en el caso de error se consulta el detalle para distinguir la causa.
+            // La excepción revierte también las filas que sí se actualizaron.
+            List<Pasaje> reservasAjenas = pasajeRepository.findByDatosViajeAndNumeroAsientoInAndEstadoIn(
+                    viaje, asientos, List.of(EstadoPasaje.RESERVADO));
+            if (!reservasAjenas.isEmpty()) {
                 throw new SecurityException("Intento de comprar una reserva que no pertenece al usuario.");
             }
-
-            // --- ACTUALIZACIÓN ---
-            pasaje.setEstado(EstadoPasaje.VENDIDO);
-            pasaje.setFechaReserva(null); // Limpiamos la fecha de reserva
-            // Se asigna el mismo ID de transacción a todos los pasajes de esta compra múltiple.
-            pasaje.setPaypalTransactionId(requestDTO.getPaypalTransactionId());
-
-            pasajesAConfirmar.add(pasaje);
+            throw new IllegalStateException("La reserva para alguno de los asientos " + asientos + " no fue encontrada o expiró.");
         }
 
-        List<Pasaje> pasajesGuardados = pasajeRepository.saveAll(pasajesAConfirmar);
+        viajeRepository.incrementarVersionAsientos(List.of(viaje.getId()));
+
+        List<Pasaje> pasajesGuardados = pasajeRepository.findByDatosViajeAndNumeroAsientoInAndEstadoIn(
+                viaje, asientos, List.of(EstadoPasaje.VENDIDO));
         logger.info("¡Éxito! {} pasajes confirmados y movidos a VENDIDO.", pasajesGuardados.size());
+        asientosStreamService.publicarCambio(viaje.getId(), AsientosCambioDTO.TipoCambio.VENDIDO, asientos);
 
         return pasajesGuardados.stream()
                 .map(this::convertirAPasajeResponseDTO)
@@ -388,15 +399,9 @@ public class pasajeService { // Corregido a PascalCase: PasajeService
         // --- FIN: LÓGICA DE VALIDACIÓN DEL LÍMITE DE RESERVAS ---
 
 
-        // 2. Validar que los asientos no estén ya ocupados (SIN CAMBIOS)
-        List<EstadoPasaje> estadosActivos = List.of(EstadoPasaje.VENDIDO, EstadoPasaje.RESERVADO);
-
-        for (Integer numeroAsiento : requestDTO.getNumerosAsiento()) {
-            pasajeRepository.findByDatosViajeAndNumeroAsientoAndEstadoIn(viaje, numeroAsiento, estadosActivos)
-                    .ifPresent(p -> {
-                        throw new IllegalStateException("El asiento " + numeroAsiento + " ya no está disponible.");
-                    });
-        }
+        // 2. Reclamar los asientos en el inventario en memoria (todo o nada, sin consultas por asiento)
+        Set<Integer> asientos = asientosSinRepetir(requestDTO.getNumerosAsiento());
+        seatInventory.reclamarAsientos(viaje, asientos);
 
         // 3. Calcular el precio final usando el PrecioService (SIN CAMBIOS)
         double precioFinalConDescuento = precioService.calcularPrecioFinal(viaje.getPrecio(), cliente);
@@ -406,7 +411,7 @@ public class pasajeService { // Corregido a PascalCase: PasajeService
         List<Pasaje> pasajesReservados = new ArrayList<>();
         LocalDateTime fechaReserva = LocalDateTime.now(ZoneOffset.UTC);
 
-        for (Integer numeroAsiento : requestDTO.getNumerosAsiento()) {
+        for (Integer numeroAsiento : asientos) {
             Pasaje pasaje = new Pasaje();
             pasaje.setCliente(cliente);
             pasaje.setDatosViaje(viaje); // Asumo que se llama setViaje o similar
@@ -417,11 +422,15 @@ public class pasajeService { // Corregido a PascalCase: PasajeService
             pasajesReservados.add(pasaje);
         }
 
-        // 5. Actualizar el contador de asientos del viaje y guardar los pasajes (SIN CAMBIOS)
-        viaje.setAsientosDisponibles(viaje.getAsientosDisponibles() - requestDTO.getNumerosAsiento().size());
-        viajeRepository.save(viaje);
+        // 5. Descontar los asientos del viaje de forma atómica y guardar los pasajes
+        descontarAsientos(viaje, asientos.size());
+
+        List<Pasaje> pasajesGuardados = guardarPasajesActivos(pasajesReservados);
 
-        List<Pasaje> pasajesGuardados = pasajeRepository.saveAll(pasajesReservados);
+        // La reserva vence exactamente a los MINUTOS_EXPIRACION (se encola tras el commit)
+        reservaExpiryQueue.programar(pasajesGuardados.stream().map(Pasaje::getId).collect(Collectors.toList()), fechaReserva);
+        asientosStreamService.publicarCambio(viaje.getId(), AsientosCambioDTO.TipoCambio.RESERVADO, asientos);
+        disponibilidadRutaDiaService.registrarCambioAsientos(viaje, -asientos.size());
 
         // 6. Devolver los DTOs (SIN CAMBIOS)
         return pasajesGuardados.stream()
@@ -480,8 +489,10 @@ public class pasajeService { // Corregido a PascalCase: PasajeService
         pasaje.setPaypalRefundId(refundId);
         pasajeRepository.save(pasaje);
 
-        viaje.setAsientosDisponibles(viaje.getAsientosDisponibles() + 1);
-        viajeRepository.save(viaje);
+        viajeRepository.incrementarAsientosDisponibles(viaje.getId(), 1);
+        seatInventory.liberarAsientos(viaje.getId(), List.of(pasaje.getNumeroAsiento()));
+        asientosStreamService.publicarCambio(viaje.getId(), AsientosCambioDTO.TipoCambio.LIBERADO, List.of(pasaje.getNumeroAsiento()));
+        disponibilidadRutaDiaService.registrarCambioAsientos(viaje, 1);
 
         logger.info("Devolución exitosa para pasaje ID {}. Reembolsado: ${}. Nuevo estado: {}", pasajeId, montoAReembolsar, pasaje.getEstado());
 
@@ -513,6 +524,38 @@ public class pasajeService { // Corregido a PascalCase: PasajeService
     }
 
 
+    private Set<Integer> asientosSinRepetir(List<Integer> numerosAsiento) {
+        Set<Integer> asientos = new LinkedHashSet<>(numerosAsiento);
+        if (asientos.size() != numerosAsiento.size()) {
+            throw new IllegalArgumentException("La lista de asientos contiene números repetidos: " + numerosAsiento);
+        }
+        return asientos;
+    }
+
+    /**
+     * Descuenta asientos con un UPDATE condicional en la BD (sin leer y reescribir el contador).
+     * Si no quedan suficientes, la operación no afecta filas y se aborta la compra/reserva.
+     */
+    private void descontarAsientos(Viaje viaje, int cantidad) {
+        int filas = viajeRepository.decrementarAsientosDisponibles(viaje.getId(), cantidad);
+        if (filas == 0) {
+            throw new IllegalStateException("No hay asientos disponibles suficientes para el viaje ID: " + viaje.getId());
+        }
+    }
+
+    /**
+     * Inserta pasajes VENDIDO/RESERVADO. El índice único parcial (viaje_id, numero_asiento)
+     * rechaza un asiento ya ocupado aunque dos transacciones lo intenten a la vez.
+     */
+    private List<Pasaje> guardarPasajesActivos(List<Pasaje> pasajes) {
+        try {
+            return pasajeRepository.saveAll(pasajes);
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("Conflicto de asiento al guardar pasajes: {}", e.getMostSpecificCause().getMessage());
+            throw new IllegalStateException("Alguno de los asientos seleccionados ya fue ocupado por otra compra o reserva.");
+        }
+    }
+
     // --- NUEVO MÉTODO PARA BUSCAR UN PASAJE POR ID ---
     @Transactional(readOnly = true)
     public PasajeResponseDTO obtenerPasajePorId(Integer pasajeId) {
@@ -0,0 +1,147 @@
+-- Esquema inicial: las tablas tal como las generaba Hibernate (ddl-auto) a partir de las entidades.
+-- En bases existentes esta versión se toma como línea base y no se ejecuta
+-- (spring.flyway.baseline-on-migrate / baseline-version en application.properties),
+-- así que todo lo que se agregó después va en las migraciones siguientes.
+
+create table administradores_data (
+    usuario_id bigint not null,
+    area_responsabilidad varchar(100),
+    primary key (usuario_id)
+);
+
+create table clientes_data (
+    usuario_id bigint not null,
+    fcm_token varchar(255),
+    tipo_cliente varchar(255) not null check (tipo_cliente in ('COMUN','JUBILADO','ESTUDIANTE')),
+    primary key (usuario_id)
+);
+
+create table localidades (
+    id bigint generated by default as identity,
+    departamento varchar(255) not null,
+    direccion varchar(255) not null,
+    nombre varchar(255) not null,
+    primary key (id)
+);
+
+create table notificacion (
+    leida boolean not null,
+    fecha_creacion timestamp(6) not null,
+    id bigint generated by default as identity,
+    usuario_id bigint not null,
+    link varchar(255),
+    mensaje varchar(255) not null,
+    primary key (id)
+);
+
+create table omnibus (
+    capacidad_asientos integer not null check (capacidad_asientos>=1),
+    fin_inactividad_programada timestamp(6),
+    id bigint generated by default as identity,
+    inicio_inactividad_programada timestamp(6),
+    localidad_actual_id bigint not null,
+    matricula varchar(10) not null unique,
+    estado varchar(255) not null check (estado in ('OPERATIVO','EN_MANTENIMIENTO','FUERA_DE_SERVICIO','ASIGNADO_A_VIAJE','INACTIVO')),
+    estado_programado varchar(255) check (estado_programado in ('OPERATIVO','EN_MANTENIMIENTO','FUERA_DE_SERVICIO','ASIGNADO_A_VIAJE','INACTIVO')),
+    marca varchar(255) not null,
+    modelo varchar(255) not null,
+    primary key (id)
+);
+
+create table pasajes (
+    id integer generated by default as identity,
+    numero_asiento integer not null check (numero_asiento>=1),
+    precio float(53) not null,
+    viaje_id integer not null,
+    cliente_id bigint not null,
+    fecha_reserva timestamp(6),
+    estado varchar(50) not null check (estado in ('VENDIDO','RESERVADO','CANCELADO','UTILIZADO')),
+    paypal_refund_id varchar(50),
+    paypal_transaction_id varchar(50),
+    primary key (id)
+);
+
+create table usuarios (
+    ci integer not null unique,
+    fecha_nac date not null,
+    telefono integer not null,
+    fecha_creacion timestamp(6) not null,
+    id bigint generated by default as identity,
+    reset_password_token_expiry_date timestamp(6),
+    apellido varchar(100) not null,
+    email varchar(100) not null unique,
+    nombre varchar(100) not null,
+    reset_password_token varchar(100),
+    contrasenia varchar(255) not null,
+    primary key (id)
+);
+
+create table vendedores_data (
+    usuario_id bigint not null,
+    codigo_vendedor varchar(50) unique,
+    primary key (usuario_id)
+);
+
+create table viaje (
+    asientos_disponibles integer not null check (asientos_disponibles>=0),
+    id integer generated by default as identity,
+    pasajes_vendidos integer,
+    precio float(53) not null,
+    bus_asignado_id bigint not null,
+    destino_id bigint not null,
+    fecha_hora_llegada timestamp(6) not null,
+    fecha_hora_salida timestamp(6) not null,
+    origen_id bigint not null,
+    estado varchar(50) not null check (estado in ('PROGRAMADO','EN_CURSO','VENTAS_CERRADAS','FINALIZADO','CANCELADO')),
+    primary key (id)
+);
+
+alter table if exists administradores_data
+    add constraint FK4f1d7w9203dide2pfbnxnncgr
+    foreign key (usuario_id)
+    references usuarios;
+
+alter table if exists clientes_data
+    add constraint FKc0uel4x4tyu97bnvtanxf019u
+    foreign key (usuario_id)
+    references usuarios;
+
+alter table if exists notificacion
+    add constraint FKncwti6o9iuk7riq2u90bv807b
+    foreign key (usuario_id)
+    references usuarios;
+
+alter table if exists omnibus
+    add constraint FKufl5uond0l9awy264r59hdu
+    foreign key (localidad_actual_id)
+    references localidades;
+
+alter table if exists pasajes
+    add constraint FKqyap9s2itc0rslq1sodwwkgu4
+    foreign key (cliente_id)
+    references usuarios;
+
+alter table if exists pasajes
+    add constraint FK8tisgkuk1diacd9hxtrbnbq1j
+    foreign key (viaje_id)
+    references viaje;
+
+alter table if exists vendedores_data
+    add constraint FKfhqqt3p1ngitt7ors7lne0gd9
+    foreign key (usuario_id)
+    references usuarios;
+
+alter table if exists viaje
+    add constraint FKiesox8og0a6xfkacf1cxh8l62
+    foreign key (bus_asignado_id)
+    references omnibus;
+
+alter table if exists viaje
+    add constraint FKpk0n05aquks6tphb4o035fjs8
+    foreign key (destino_id)
+    references localidades;
+
+alter table if exists viaje
+    add constraint FKffkhl6dlpuwymny7pkkeo6o3u
+    foreign key (origen_id)
+    references localidades;
@@ -0,0 +1,4 @@
+-- Versión del mapa de asientos de cada viaje (ETag de detalles-asientos). La incrementan los UPDATE
+-- atómicos de ViajeRepository; los viajes existentes empiezan sin versión.
+-- IF NOT EXISTS: las bases que corrieron con ddl-auto=update ya pueden tener la columna.
+ALTER TABLE viaje ADD COLUMN IF NOT EXISTS version_asientos bigint;
@@ -0,0 +1,14 @@
+-- Respuestas guardadas por clave de idempotencia (comprar-multiple y devolucion).
+-- IF NOT EXISTS: las bases que corrieron con ddl-auto=update ya pueden tener la tabla.
+CREATE TABLE IF NOT EXISTS idempotencia_respuestas (
+    estado_http integer not null,
+    fecha_creacion timestamp(6) not null,
+    fecha_expiracion timestamp(6) not null,
+    clave varchar(200) not null,
+    cuerpo TEXT,
+    primary key (clave)
+);
+
+-- Limpieza periódica de las respuestas vencidas.
+CREATE INDEX IF NOT EXISTS idx_idempotencia_expiracion
+    ON idempotencia_respuestas (fecha_expiracion);
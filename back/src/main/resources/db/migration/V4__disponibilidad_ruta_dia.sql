@@ -0,0 +1,27 @@
+-- Modelo de lectura de la búsqueda de viajes: una fila por viaje con ruta, día y asientos libres.
+-- Se crea vacía; DisponibilidadRutaDiaService la reconstruye desde viaje al arrancar.
+-- IF NOT EXISTS: las bases que corrieron con ddl-auto=update ya pueden tener la tabla.
+CREATE TABLE IF NOT EXISTS disponibilidad_ruta_dia (
+    asientos_libres integer not null,
+    capacidad integer not null,
+    fecha date not null,
+    precio float(53) not null,
+    viaje_id integer not null,
+    destino_id bigint not null,
+    fecha_hora_llegada timestamp(6) not null,
+    fecha_hora_salida timestamp(6) not null,
+    origen_id bigint not null,
+    estado varchar(50) not null check (estado in ('PROGRAMADO','EN_CURSO','VENTAS_CERRADAS','FINALIZADO','CANCELADO')),
+    destino_nombre varchar(255) not null,
+    omnibus_matricula varchar(255) not null,
+    origen_nombre varchar(255) not null,
+    primary key (viaje_id)
+);
+
+-- Búsqueda por ruta y día, ordenada por salida.
+CREATE INDEX IF NOT EXISTS idx_disponibilidad_ruta_fecha
+    ON disponibilidad_ruta_dia (origen_id, destino_id, fecha, fecha_hora_salida);
+
+-- Carga del planificador de itinerarios (viajes programados desde ahora).
+CREATE INDEX IF NOT EXISTS idx_disponibilidad_salida
+    ON disponibilidad_ruta_dia (fecha_hora_salida, viaje_id);
@@ -0,0 +1,48 @@
+-- Índices de los caminos de acceso de ViajeRepository, PasajeRepository y NotificacionRepository.
+-- Los dos primeros ya existían en bases creadas con schema.sql, por eso IF NOT EXISTS.
+-- PlanesConsultasTest ejecuta EXPLAIN sobre cada consulta y falla si alguna recorre viaje o pasajes completa.
+
+-- Un asiento solo puede tener un pasaje activo (VENDIDO o RESERVADO) por viaje.
+-- Los pasajes CANCELADOS/UTILIZADOS quedan fuera del índice y no bloquean la reventa del asiento.
+CREATE UNIQUE INDEX IF NOT EXISTS ux_pasajes_viaje_asiento_activo
+    ON pasajes (viaje_id, numero_asiento)
+    WHERE estado IN ('VENDIDO', 'RESERVADO');
+
+-- Paginación por cursor de los listados de viajes: (fecha_hora_salida, id) es la clave del keyset.
+CREATE INDEX IF NOT EXISTS idx_viaje_salida_id
+    ON viaje (fecha_hora_salida, id);
+
+-- Agenda de un ómnibus: solapamientos al crear/reasignar y próximo viaje (por salida),
+-- último viaje concluido (por llegada). El estado se filtra sobre las pocas filas del ómnibus.
+CREATE INDEX IF NOT EXISTS idx_viaje_bus_salida
+    ON viaje (bus_asignado_id, fecha_hora_salida);
+
+CREATE INDEX IF NOT EXISTS idx_viaje_bus_llegada
+    ON viaje (bus_asignado_id, fecha_hora_llegada);
+
+-- ViajeStatusScheduler: viajes de un estado cuya salida o llegada ya pasó (o está por pasar).
+CREATE INDEX IF NOT EXISTS idx_viaje_estado_salida
+    ON viaje (estado, fecha_hora_salida);
+
+CREATE INDEX IF NOT EXISTS idx_viaje_estado_llegada
+    ON viaje (estado, fecha_hora_llegada);
+
+-- Pasajes de un viaje por estado y asiento: mapa de asientos, conteos, reserva y confirmación.
+-- Sin predicado parcial: las consultas reciben los estados como parámetro y el plan genérico
+-- de una sentencia preparada no podría usar un índice parcial por estado.
+CREATE INDEX IF NOT EXISTS idx_pasajes_viaje_estado_asiento
+    ON pasajes (viaje_id, estado, numero_asiento);
+
+-- Liberación de reservas vencidas: solo las reservas tienen fecha_reserva (al confirmar se anula),
+-- así que el índice contiene pocas filas y "fecha_reserva < ?" alcanza para que el planificador lo use.
+CREATE INDEX IF NOT EXISTS idx_pasajes_estado_fecha_reserva
+    ON pasajes (estado, fecha_reserva)
+    WHERE fecha_reserva IS NOT NULL;
+
+-- Historial de pasajes de un cliente.
+CREATE INDEX IF NOT EXISTS idx_pasajes_cliente
+    ON pasajes (cliente_id);
+
+-- Notificaciones de un usuario, de la más reciente a la más antigua.
+CREATE INDEX IF NOT EXISTS idx_notificacion_usuario_fecha
+    ON notificacion (usuario_id, fecha_creacion);
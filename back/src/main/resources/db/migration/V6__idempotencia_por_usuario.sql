@@ -0,0 +1,9 @@
+-- Las claves de idempotencia pasan a incluir al usuario autenticado y se guarda la huella del cuerpo de la
+-- solicitud: otra cuenta con la misma clave ya no recibe la respuesta ajena, y reusar una clave con otro
+-- cuerpo se rechaza. Las respuestas guardadas con el formato anterior no tienen huella; duran 24 horas,
+-- así que se descartan.
+DELETE FROM idempotencia_respuestas;
+
+ALTER TABLE idempotencia_respuestas ALTER COLUMN clave TYPE varchar(255);
+
+ALTER TABLE idempotencia_respuestas ADD COLUMN huella varchar(64) NOT NULL;
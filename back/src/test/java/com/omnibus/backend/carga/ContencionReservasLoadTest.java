@@ -0,0 +1,350 @@
+package com.omnibus.backend.carga;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.omnibus.backend.dto.CompraMultiplePasajesRequestDTO;
+import com.omnibus.backend.dto.PasajeResponseDTO;
+import com.omnibus.backend.model.*;
+import com.omnibus.backend.repository.LocalidadRepository;
+import com.omnibus.backend.repository.OmnibusRepository;
+import com.omnibus.backend.repository.UsuarioRepository;
+import com.omnibus.backend.repository.ViajeRepository;
+import com.omnibus.backend.service.DisponibilidadRutaDiaService;
+import com.omnibus.backend.service.EmailService;
+import com.omnibus.backend.service.PaypalService;
+import com.omnibus.backend.service.SeatInventory;
+import com.omnibus.backend.service.pasajeService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Arnés de contención de reservas: levanta el backend contra un PostgreSQL embebido, siembra un viaje
+ * y lanza N usuarios a la vez que reservan, confirman y devuelven asientos del mismo viaje.
+ *
+ * Informa throughput, latencias p50/p99 por operación, asientos vendidos dos veces y deriva del contador
+ * asientosDisponibles (y del inventario en memoria) respecto de los pasajes activos en la BD.
+ * Las dos últimas métricas deben ser siempre 0; el resto sirve de línea base para comparar cambios de concurrencia.
+ *
+ * Ejecución: mvn test -Pcarga -Dcarga.usuarios=500 -Dcarga.hilos=64 -Dcarga.capacidad=60
+ *            -Dcarga.asientosPorReserva=2 -Dcarga.probConfirmar=0.7 -Dcarga.probDevolver=0.2 -Dcarga.pool=20
+ */
+@Tag("carga")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        // Variables de entorno que application.properties espera y que no aplican a la prueba
+        "JWT_SECRET=clave-de-prueba-de-carga-con-longitud-suficiente-para-hmac-sha-256",
+        "MAIL_USERNAME=carga@localhost",
+        "MAIL_PASSWORD=",
+        // Sin SQL ni logs de negocio en consola: distorsionan las latencias medidas
+        "debug=false",
+        "spring.jpa.show-sql=false",
+        "logging.level.root=WARN",
+        "logging.level.com.omnibus.backend.carga=INFO"
+})
+class ContencionReservasLoadTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContencionReservasLoadTest.class);
+
+    private static final int USUARIOS = Integer.getInteger("carga.usuarios", 500);
+    private static final int HILOS = Integer.getInteger("carga.hilos", 64);
+    private static final int CAPACIDAD = Integer.getInteger("carga.capacidad", 60);
+    private static final int ASIENTOS_POR_RESERVA = Integer.getInteger("carga.asientosPorReserva", 2);
+    private static final double PROB_CONFIRMAR = Double.parseDouble(System.getProperty("carga.probConfirmar", "0.7"));
+    private static final double PROB_DEVOLVER = Double.parseDouble(System.getProperty("carga.probDevolver", "0.2"));
+    private static final int POOL = Integer.getInteger("carga.pool", 20);
+    private static final long SEMILLA = Long.getLong("carga.semilla", 42L);
+
+    @MockBean
+    private PaypalService paypalService;
+    @MockBean
+    private EmailService emailService;
+    @MockBean
+    private FirebaseApp firebaseApp;
+    @MockBean
+    private FirebaseMessaging firebaseMessaging;
+
+    @Autowired
+    private pasajeService pasajeService;
+    @Autowired
+    private SeatInventory seatInventory;
+    @Autowired
+    private DisponibilidadRutaDiaService disponibilidadRutaDiaService;
+    @Autowired
+    private LocalidadRepository localidadRepository;
+    @Autowired
+    private OmnibusRepository omnibusRepository;
+    @Autowired
+    private ViajeRepository viajeRepository;
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * PostgreSQL embebido y su pool como beans del contexto: así Spring cierra primero el pool
+     * (y JPA) y recién después detiene la base.
+     */
+    @TestConfiguration
+    static class BaseEmbebidaConfig {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres postgres) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl(postgres.getJdbcUrl("postgres", "postgres"));
+            dataSource.setUsername("postgres");
+            dataSource.setPassword("postgres");
+            dataSource.setMaximumPoolSize(POOL);
+            return dataSource;
+        }
+    }
+
+    @Test
+    void contencionSobreUnViaje() throws Exception {
+        when(paypalService.refundPayment(anyString(), anyDouble()))
+                .thenReturn(objectMapper.readTree("{\"status\":\"COMPLETED\",\"id\":\"REEMBOLSO-CARGA\"}"));
+
+        Viaje viaje = sembrarViaje();
+        disponibilidadRutaDiaService.registrarViaje(viaje);
+        List<Long> clientes = sembrarClientes();
+
+        Map<String, MetricasOperacion> metricas = new LinkedHashMap<>();
+        metricas.put("reservar", new MetricasOperacion());
+        metricas.put("confirmar", new MetricasOperacion());
+        metricas.put("devolver", new MetricasOperacion());
+
+        ExecutorService executor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<?>> tareas = new ArrayList<>();
+        for (int i = 0; i < USUARIOS; i++) {
+            Long clienteId = clientes.get(i);
+            Random random = new Random(SEMILLA + i);
+            tareas.add(executor.submit(() -> {
+                largada.await();
+                simularUsuario(viaje.getId(), clienteId, random, metricas);
+                return null;
+            }));
+        }
+
+        long inicio = System.nanoTime();
+        largada.countDown();
+        for (Future<?> tarea : tareas) {
+            tarea.get();
+        }
+        long duracionNanos = System.nanoTime() - inicio;
+        executor.shutdown();
+
+        long dobleVenta = contarAsientosDobleVenta(viaje.getId());
+        long activos = contarPasajesActivos(viaje.getId());
+        int disponibles = jdbcTemplate.queryForObject(
+                "SELECT asientos_disponibles FROM viaje WHERE id = ?", Integer.class, viaje.getId());
+        long derivaContador = (CAPACIDAD - activos) - disponibles;
+        long derivaInventario = seatInventory.obtenerAsientosOcupados(viaje).size() - activos;
+        int libresModeloLectura = jdbcTemplate.queryForObject(
+                "SELECT asientos_libres FROM disponibilidad_ruta_dia WHERE viaje_id = ?", Integer.class, viaje.getId());
+        long derivaModeloLectura = (CAPACIDAD - activos) - libresModeloLectura;
+
+        String reporte = generarReporte(metricas, duracionNanos, activos, disponibles, dobleVenta,
+                derivaContador, derivaInventario, derivaModeloLectura);
+        logger.info("\n{}", reporte);
+        guardarReporte(reporte);
+
+        assertEquals(0, dobleVenta, "Hay asientos con más de un pasaje activo.");
+        assertEquals(0, derivaContador, "asientosDisponibles no coincide con la capacidad menos los pasajes activos.");
+        assertEquals(0, derivaInventario, "El inventario en memoria no coincide con los pasajes activos.");
+        assertEquals(0, derivaModeloLectura, "El modelo de lectura de disponibilidad no coincide con los pasajes activos.");
+    }
+
+    /**
+     * Un usuario virtual: reserva asientos al azar y, según las probabilidades configuradas,
+     * confirma la compra y devuelve uno de los pasajes.
+     */
+    private void simularUsuario(Integer viajeId, Long clienteId, Random random, Map<String, MetricasOperacion> metricas) {
+        CompraMultiplePasajesRequestDTO solicitud = new CompraMultiplePasajesRequestDTO();
+        solicitud.setViajeId(viajeId);
+        solicitud.setClienteId(clienteId);
+        solicitud.setNumerosAsiento(asientosAlAzar(random));
+
+        List<PasajeResponseDTO> reservados = metricas.get("reservar")
+                .medir(() -> pasajeService.reservarAsientosTemporalmente(solicitud));
+        if (reservados == null || random.nextDouble() >= PROB_CONFIRMAR) {
+            return;
+        }
+
+        solicitud.setPaypalTransactionId("CARGA-" + clienteId);
+        List<PasajeResponseDTO> comprados = metricas.get("confirmar")
+                .medir(() -> pasajeService.comprarMultiplesPasajes(solicitud));
+        if (comprados == null || comprados.isEmpty() || random.nextDouble() >= PROB_DEVOLVER) {
+            return;
+        }
+
+        Integer pasajeId = comprados.get(0).getId();
+        metricas.get("devolver").medir(() -> pasajeService.procesarDevolucionPasaje(pasajeId));
+    }
+
+    private List<Integer> asientosAlAzar(Random random) {
+        Set<Integer> asientos = new LinkedHashSet<>();
+        while (asientos.size() < Math.min(ASIENTOS_POR_RESERVA, CAPACIDAD)) {
+            asientos.add(1 + random.nextInt(CAPACIDAD));
+        }
+        return new ArrayList<>(asientos);
+    }
+
+    private Viaje sembrarViaje() {
+        Localidad origen = localidadRepository.save(new Localidad("Carga Origen", "Montevideo", "Terminal 1"));
+        Localidad destino = localidadRepository.save(new Localidad("Carga Destino", "Canelones", "Terminal 2"));
+
+        Omnibus omnibus = new Omnibus();
+        omnibus.setMatricula(String.format("CRG%06d", System.currentTimeMillis() % 1_000_000));
+        omnibus.setMarca("Carga");
+        omnibus.setModelo("Contención");
+        omnibus.setCapacidadAsientos(CAPACIDAD);
+        omnibus.setEstado(EstadoBus.ASIGNADO_A_VIAJE);
+        omnibus.setLocalidadActual(origen);
+        omnibus = omnibusRepository.save(omnibus);
+
+        // Salida a 3 días para que las devoluciones estén dentro del plazo de 24 hs
+        LocalDateTime salida = LocalDateTime.now().plusDays(3).withNano(0);
+        Viaje viaje = Viaje.builder()
+                .fechaHoraSalida(salida)
+                .fechaHoraLlegada(salida.plusHours(3))
+                .origen(origen)
+                .destino(destino)
+                .busAsignado(omnibus)
+                .asientosDisponibles(CAPACIDAD)
+                .pasajesVendidos(0)
+                .estado(EstadoViaje.PROGRAMADO)
+                .precio(100.0)
+                .build();
+        return viajeRepository.save(viaje);
+    }
+
+    private List<Long> sembrarClientes() {
+        List<Usuario> clientes = new ArrayList<>(USUARIOS);
+        long sufijo = System.currentTimeMillis();
+        for (int i = 0; i < USUARIOS; i++) {
+            clientes.add(new Cliente("Usuario", "Carga " + i, 40_000_000 + i, "no-usada",
+                    "carga" + i + "-" + sufijo + "@localhost", 99_000_000 + i, LocalDate.of(1990, 1, 1), TipoCliente.COMUN));
+        }
+        return usuarioRepository.saveAll(clientes).stream().map(Usuario::getId).toList();
+    }
+
+    private long contarAsientosDobleVenta(Integer viajeId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT numero_asiento FROM pasajes " +
+                        "WHERE viaje_id = ? AND estado IN ('VENDIDO', 'RESERVADO') " +
+                        "GROUP BY numero_asiento HAVING COUNT(*) > 1) duplicados",
+                Long.class, viajeId);
+    }
+
+    private long contarPasajesActivos(Integer viajeId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM pasajes WHERE viaje_id = ? AND estado IN ('VENDIDO', 'RESERVADO')",
+                Long.class, viajeId);
+    }
+
+    private String generarReporte(Map<String, MetricasOperacion> metricas, long duracionNanos, long activos,
+                                  int disponibles, long dobleVenta, long derivaContador, long derivaInventario,
+                                  long derivaModeloLectura) {
+        double segundos = duracionNanos / 1e9;
+        int totalOperaciones = metricas.values().stream().mapToInt(MetricasOperacion::total).sum();
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== Contención de reservas ===\n");
+        sb.append(String.format(Locale.US, "usuarios=%d hilos=%d capacidad=%d asientosPorReserva=%d probConfirmar=%.2f probDevolver=%.2f pool=%d semilla=%d%n",
+                USUARIOS, HILOS, CAPACIDAD, ASIENTOS_POR_RESERVA, PROB_CONFIRMAR, PROB_DEVOLVER, POOL, SEMILLA));
+        sb.append(String.format(Locale.US, "duración=%.2f s  operaciones=%d  throughput=%.1f op/s%n",
+                segundos, totalOperaciones, totalOperaciones / segundos));
+        sb.append(String.format(Locale.US, "%-10s %8s %9s %7s %10s %10s %10s%n",
+                "operación", "ok", "conflicto", "error", "p50 (ms)", "p99 (ms)", "máx (ms)"));
+        metricas.forEach((nombre, m) -> sb.append(String.format(Locale.US, "%-10s %8d %9d %7d %10.2f %10.2f %10.2f%n",
+                nombre, m.ok.get(), m.conflictos.get(), m.errores.get(),
+                m.percentilMillis(0.50), m.percentilMillis(0.99), m.percentilMillis(1.0))));
+        sb.append(String.format("pasajes activos=%d  asientosDisponibles=%d%n", activos, disponibles));
+        sb.append(String.format("asientos con doble venta=%d  deriva del contador=%d  deriva del inventario=%d  deriva del modelo de lectura=%d%n",
+                dobleVenta, derivaContador, derivaInventario, derivaModeloLectura));
+        return sb.toString();
+    }
+
+    private void guardarReporte(String reporte) throws IOException {
+        Path directorio = Path.of("target", "carga");
+        Files.createDirectories(directorio);
+        String marca = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Files.writeString(directorio.resolve("contencion-reservas-" + marca + ".txt"), reporte);
+    }
+
+    /**
+     * Latencias y resultados de una operación. Las excepciones de negocio (asiento ocupado,
+     * reserva vencida) cuentan como conflicto; cualquier otra, como error.
+     */
+    private static final class MetricasOperacion {
+        private final ConcurrentLinkedQueue<Long> latenciasNanos = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger ok = new AtomicInteger();
+        private final AtomicInteger conflictos = new AtomicInteger();
+        private final AtomicInteger errores = new AtomicInteger();
+
+        <T> T medir(Supplier<T> operacion) {
+            long inicio = System.nanoTime();
+            try {
+                T resultado = operacion.get();
+                ok.incrementAndGet();
+                return resultado;
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                conflictos.incrementAndGet();
+                return null;
+            } catch (RuntimeException e) {
+                errores.incrementAndGet();
+                logger.warn("Error inesperado en la prueba de carga: {}", e.toString());
+                return null;
+            } finally {
+                latenciasNanos.add(System.nanoTime() - inicio);
+            }
+        }
+
+        int total() {
+            return ok.get() + conflictos.get() + errores.get();
+        }
+
+        double percentilMillis(double percentil) {
+            List<Long> ordenadas = new ArrayList<>(latenciasNanos);
+            if (ordenadas.isEmpty()) {
+                return 0;
+            }
+            Collections.sort(ordenadas);
+            int indice = (int) Math.ceil(percentil * ordenadas.size()) - 1;
+            return ordenadas.get(Math.max(0, Math.min(indice, ordenadas.size() - 1))) / 1e6;
+        }
+    }
+}
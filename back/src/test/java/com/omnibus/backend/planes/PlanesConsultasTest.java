@@ -0,0 +1,355 @@
+package com.omnibus.backend.planes;
+
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.omnibus.backend.dto.BusquedaViajesGeneralDTO;
+import com.omnibus.backend.model.EstadoPasaje;
+import com.omnibus.backend.model.EstadoViaje;
+import com.omnibus.backend.model.Omnibus;
+import com.omnibus.backend.model.Usuario;
+import com.omnibus.backend.model.Viaje;
+import com.omnibus.backend.repository.CursorBusquedaViajes;
+import com.omnibus.backend.repository.DisponibilidadRutaDiaRepository;
+import com.omnibus.backend.repository.NotificacionRepository;
+import com.omnibus.backend.repository.OmnibusRepository;
+import com.omnibus.backend.repository.OrdenBusquedaViajes;
+import com.omnibus.backend.repository.PasajeRepository;
+import com.omnibus.backend.repository.UsuarioRepository;
+import com.omnibus.backend.repository.ViajeRepository;
+import com.omnibus.backend.service.EmailService;
+import com.omnibus.backend.service.PaypalService;
+import com.zaxxer.hikari.HikariDataSource;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Regresión de planes de las consultas frecuentes: siembra un volumen realista (años de viajes finalizados,
+ * pocas semanas programadas, cientos de miles de pasajes), ejecuta cada método de repositorio, captura el SQL
+ * que genera Hibernate y lo pasa por EXPLAIN como plan genérico, que es el que usa el driver una vez que la
+ * sentencia queda preparada en el servidor.
+ *
+ * Falla si algún plan recorre completa una de las tablas grandes (viaje, pasajes, disponibilidad_ruta_dia,
+ * notificacion). Las tablas chicas (localidades, omnibus, usuarios) pueden leerse completas en un join.
+ *
+ * La siembra tarda cerca de un minuto, así que queda fuera de la corrida por defecto, como las pruebas de carga.
+ * Ejecución: mvn test -Pcarga -Dtest=PlanesConsultasTest
+ */
+@Tag("carga")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        // Variables de entorno que application.properties espera y que no aplican a la prueba
+        "JWT_SECRET=clave-de-prueba-de-planes-con-longitud-suficiente-para-hmac-sha-256",
+        "MAIL_USERNAME=planes@localhost",
+        "MAIL_PASSWORD=",
+        "debug=false",
+        "spring.jpa.show-sql=false",
+        "logging.level.root=WARN",
+        "logging.level.com.omnibus.backend.planes=INFO",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.omnibus.backend.planes.PlanesConsultasTest$CapturaSql"
+})
+class PlanesConsultasTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlanesConsultasTest.class);
+
+    private static final Set<String> TABLAS_GRANDES = Set.of("viaje", "pasajes", "disponibilidad_ruta_dia", "notificacion");
+    private static final Pattern RECORRIDO_COMPLETO = Pattern.compile("Seq Scan on (\\w+)");
+
+    private static final int LOCALIDADES = 120;
+    private static final int OMNIBUS = 300;
+    private static final int CLIENTES = 5_000;
+    private static final int VIAJES = 120_000;
+    private static final int PASAJES_POR_VIAJE = 4;
+
+    @MockBean
+    private PaypalService paypalService;
+    @MockBean
+    private EmailService emailService;
+    @MockBean
+    private FirebaseApp firebaseApp;
+    @MockBean
+    private FirebaseMessaging firebaseMessaging;
+
+    @Autowired
+    private ViajeRepository viajeRepository;
+    @Autowired
+    private PasajeRepository pasajeRepository;
+    @Autowired
+    private DisponibilidadRutaDiaRepository disponibilidadRepository;
+    @Autowired
+    private NotificacionRepository notificacionRepository;
+    @Autowired
+    private OmnibusRepository omnibusRepository;
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Guarda el SQL de cada sentencia que prepara Hibernate. Se registra por nombre de clase
+     * (hibernate.session_factory.statement_inspector), por eso el estado es estático.
+     */
+    public static class CapturaSql implements StatementInspector {
+
+        private static final List<String> SENTENCIAS = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public String inspect(String sql) {
+            SENTENCIAS.add(sql);
+            return sql;
+        }
+
+        static void limpiar() {
+            SENTENCIAS.clear();
+        }
+
+        static List<String> obtener() {
+            synchronized (SENTENCIAS) {
+                return new ArrayList<>(SENTENCIAS);
+            }
+        }
+    }
+
+    @TestConfiguration
+    static class BaseEmbebidaConfig {
+
+        @Bean(destroyMethod = "close")
+        EmbeddedPostgres embeddedPostgres() throws IOException {
+            return EmbeddedPostgres.start();
+        }
+
+        @Bean
+        DataSource dataSource(EmbeddedPostgres postgres) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setJdbcUrl(postgres.getJdbcUrl("postgres", "postgres"));
+            dataSource.setUsername("postgres");
+            dataSource.setPassword("postgres");
+            return dataSource;
+        }
+    }
+
+    @Test
+    void consultasFrecuentesUsanIndices() {
+        sembrar();
+
+        Omnibus bus = omnibusRepository.findById(7L).orElseThrow();
+        Viaje viaje = viajeRepository.findById(VIAJES - 500).orElseThrow();
+        Usuario cliente = usuarioRepository.findById(42L).orElseThrow();
+        LocalDateTime ahora = LocalDateTime.now();
+        List<EstadoViaje> activos = List.of(EstadoViaje.PROGRAMADO, EstadoViaje.EN_CURSO);
+        List<EstadoPasaje> ocupados = List.of(EstadoPasaje.VENDIDO, EstadoPasaje.RESERVADO);
+
+        Map<String, Runnable> consultas = new LinkedHashMap<>();
+        // ViajeRepository: agenda del ómnibus
+        consultas.put("viaje.findOverlappingTrips", () ->
+                viajeRepository.findOverlappingTrips(bus, ahora, ahora.plusHours(5), activos));
+        consultas.put("viaje.findOverlappingTripsExcludingId", () ->
+                viajeRepository.findOverlappingTripsExcludingId(bus, ahora, ahora.plusHours(5), activos, viaje.getId()));
+        consultas.put("viaje.findUltimoViajeActivoConcluidoAntesDe", () ->
+                viajeRepository.findUltimoViajeActivoConcluidoAntesDe(bus, ahora, activos));
+        consultas.put("viaje.findProximoViajeProgramadoComenzandoDespuesDe", () ->
+                viajeRepository.findProximoViajeProgramadoComenzandoDespuesDe(bus, ahora, activos));
+        consultas.put("viaje.findByBusAsignado_IdAndEstadoIn", () ->
+                viajeRepository.findByBusAsignado_IdAndEstadoIn(bus.getId(), activos));
+        // ViajeRepository: ViajeStatusScheduler
+        consultas.put("viaje.findTripsToCloseSales", () ->
+                viajeRepository.findTripsToCloseSales(ahora, ahora.plusHours(1)));
+        consultas.put("viaje.findTripsToStart", () -> viajeRepository.findTripsToStart(ahora));
+        consultas.put("viaje.findScheduledTripsToStart", () -> viajeRepository.findScheduledTripsToStart(ahora));
+        consultas.put("viaje.findOngoingTripsToFinish", () -> viajeRepository.findOngoingTripsToFinish(ahora));
+        consultas.put("viaje.findScheduledTripsToFinishDirectly", () ->
+                viajeRepository.findScheduledTripsToFinishDirectly(ahora));
+        // ViajeRepository: optimización de asignaciones
+        consultas.put("viaje.findProgramadosEntre", () ->
+                viajeRepository.findProgramadosEntre(ahora, ahora.plusDays(1)));
+        // ViajeRepository: listado paginado
+        consultas.put("viaje.listarConPrecioDespuesDe", () ->
+                viajeRepository.listarConPrecioDespuesDe(ahora, 0, EnumSet.allOf(EstadoViaje.class), Limit.of(50)));
+        // PasajeRepository: asientos de un viaje, reserva y confirmación
+        consultas.put("pasajes.findAsientosOcupadosByViajeId", () ->
+                pasajeRepository.findAsientosOcupadosByViajeId(viaje.getId(), ocupados));
+        consultas.put("pasajes.countByDatosViajeAndEstadoIn", () ->
+                pasajeRepository.countByDatosViajeAndEstadoIn(viaje, ocupados));
+        consultas.put("pasajes.countByDatosViajeAndClienteAndEstado", () ->
+                pasajeRepository.countByDatosViajeAndClienteAndEstado(viaje, cliente, EstadoPasaje.RESERVADO));
+        consultas.put("pasajes.findByDatosViajeAndNumeroAsientoAndEstadoIn", () ->
+                pasajeRepository.findByDatosViajeAndNumeroAsientoAndEstadoIn(viaje, 3, ocupados));
+        consultas.put("pasajes.findByDatosViajeAndNumeroAsientoAndEstado", () ->
+                pasajeRepository.findByDatosViajeAndNumeroAsientoAndEstado(viaje, 3, EstadoPasaje.RESERVADO));
+        consultas.put("pasajes.findByDatosViajeAndNumeroAsientoInAndEstadoIn", () ->
+                pasajeRepository.findByDatosViajeAndNumeroAsientoInAndEstadoIn(viaje, List.of(1, 2, 3), ocupados));
+        consultas.put("pasajes.findByDatosViajeId", () -> pasajeRepository.findByDatosViajeId(viaje.getId()));
+        consultas.put("pasajes.findByClienteId", () -> pasajeRepository.findByClienteId(cliente.getId()));
+        // PasajeRepository: liberación de reservas vencidas
+        consultas.put("pasajes.findIdsByEstadoAndFechaReservaBefore", () ->
+                pasajeRepository.findIdsByEstadoAndFechaReservaBefore(EstadoPasaje.RESERVADO, ahora.minusMinutes(10)));
+        consultas.put("pasajes.findByEstadoAndFechaReservaBefore", () ->
+                pasajeRepository.findByEstadoAndFechaReservaBefore(EstadoPasaje.RESERVADO, ahora.minusMinutes(10)));
+        // Búsqueda y calendario sobre el modelo de lectura
+        consultas.put("disponibilidad.buscarConDisponibilidad", () ->
+                disponibilidadRepository.buscarConDisponibilidad(criteriosRuta(), null, 20));
+        consultas.put("disponibilidad.buscarConDisponibilidad (página siguiente por precio)", () -> {
+            BusquedaViajesGeneralDTO criterios = criteriosRuta();
+            criterios.setSortBy("precio");
+            disponibilidadRepository.buscarConDisponibilidad(criterios,
+                    new CursorBusquedaViajes(OrdenBusquedaViajes.PRECIO, 600.0, 0), 20);
+        });
+        consultas.put("disponibilidad.resumirPorDia", () ->
+                disponibilidadRepository.resumirPorDia(1L, 2L, LocalDate.now(), LocalDate.now().plusDays(30)));
+        consultas.put("notificacion.findByUsuarioOrderByFechaCreacionDesc", () ->
+                notificacionRepository.findByUsuarioOrderByFechaCreacionDesc(cliente));
+
+        List<String> fallas = new ArrayList<>();
+        consultas.forEach((nombre, consulta) -> {
+            CapturaSql.limpiar();
+            transactionTemplate.executeWithoutResult(estado -> consulta.run());
+            List<String> sentencias = CapturaSql.obtener();
+            assertFalse(sentencias.isEmpty(), nombre + " no ejecutó ninguna sentencia.");
+            for (String sql : sentencias) {
+                String plan = explicarPlanGenerico(sql);
+                logger.info("{}\n{}", nombre, plan);
+                Matcher recorrido = RECORRIDO_COMPLETO.matcher(plan);
+                while (recorrido.find()) {
+                    if (TABLAS_GRANDES.contains(recorrido.group(1))) {
+                        fallas.add(nombre + ": Seq Scan on " + recorrido.group(1) + "\n" + sql + "\n" + plan);
+                    }
+                }
+            }
+        });
+
+        assertTrue(fallas.isEmpty(), "Consultas que recorren una tabla completa:\n\n" + String.join("\n\n", fallas));
+    }
+
+    private BusquedaViajesGeneralDTO criteriosRuta() {
+        BusquedaViajesGeneralDTO criterios = new BusquedaViajesGeneralDTO();
+        criterios.setOrigenId(1L);
+        criterios.setDestinoId(2L);
+        criterios.setFechaDesde(LocalDate.now());
+        criterios.setFechaHasta(LocalDate.now().plusDays(2));
+        return criterios;
+    }
+
+    /**
+     * EXPLAIN del plan genérico de la sentencia: se prepara con parámetros $n y se fuerza
+     * plan_cache_mode = force_generic_plan, así el plan no depende de los valores (se pasan NULL).
+     */
+    private String explicarPlanGenerico(String sql) {
+        String preparada = numerarParametros(sql);
+        int parametros = contarParametros(preparada);
+        return jdbcTemplate.execute((ConnectionCallback<String>) conexion -> {
+            try (Statement sentencia = conexion.createStatement()) {
+                sentencia.execute("SET plan_cache_mode = force_generic_plan");
+                sentencia.execute("PREPARE consulta_plan AS " + preparada);
+                StringBuilder plan = new StringBuilder();
+                String valores = parametros == 0 ? "" : "(" + String.join(", ", Collections.nCopies(parametros, "NULL")) + ")";
+                try (ResultSet filas = sentencia.executeQuery("EXPLAIN EXECUTE consulta_plan" + valores)) {
+                    while (filas.next()) {
+                        plan.append(filas.getString(1)).append('\n');
+                    }
+                } finally {
+                    sentencia.execute("DEALLOCATE consulta_plan");
+                    sentencia.execute("RESET plan_cache_mode");
+                }
+                return plan.toString();
+            }
+        });
+    }
+
+    // Reemplaza cada ? de JDBC (fuera de literales) por $1, $2, ...
+    private static String numerarParametros(String sql) {
+        StringBuilder resultado = new StringBuilder();
+        boolean enLiteral = false;
+        int numero = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '\'') {
+                enLiteral = !enLiteral;
+            }
+            if (c == '?' && !enLiteral) {
+                resultado.append('$').append(++numero);
+            } else {
+                resultado.append(c);
+            }
+        }
+        return resultado.toString();
+    }
+
+    private static int contarParametros(String sql) {
+        Matcher parametro = Pattern.compile("\\$(\\d+)").matcher(sql);
+        int maximo = 0;
+        while (parametro.find()) {
+            maximo = Math.max(maximo, Integer.parseInt(parametro.group(1)));
+        }
+        return maximo;
+    }
+
+    /**
+     * Dos años de historia: los viajes pasados están FINALIZADO, los de las próximas semanas PROGRAMADO
+     * y unos pocos alrededor de ahora en curso o con ventas cerradas. Cada viaje tiene algunos pasajes;
+     * solo una fracción chica son reservas con fecha_reserva.
+     */
+    private void sembrar() {
+        jdbcTemplate.update("INSERT INTO localidades (id, nombre, departamento, direccion) " +
+                "SELECT g, 'Localidad ' || g, 'Departamento ' || (g % 19), 'Terminal ' || g " +
+                "FROM generate_series(1, ?) g", LOCALIDADES);
+        jdbcTemplate.update("INSERT INTO omnibus (id, matricula, marca, modelo, capacidad_asientos, estado, localidad_actual_id) " +
+                "SELECT g, 'BUS' || g, 'Marca', 'Modelo', 45, 'OPERATIVO', 1 + g % ? FROM generate_series(1, ?) g",
+                LOCALIDADES, OMNIBUS);
+        jdbcTemplate.update("INSERT INTO usuarios (id, nombre, apellido, ci, contrasenia, email, telefono, fecha_nac, fecha_creacion) " +
+                "SELECT g, 'Nombre', 'Apellido', 10000000 + g, 'x', 'cliente' || g || '@planes.uy', 90000000 + g, " +
+                "DATE '1990-01-01', now() FROM generate_series(1, ?) g", CLIENTES);
+        jdbcTemplate.update("INSERT INTO clientes_data (usuario_id, tipo_cliente) " +
+                "SELECT g, 'COMUN' FROM generate_series(1, ?) g", CLIENTES);
+        // Salidas cada ~9 minutos desde hace dos años hasta unas semanas adelante
+        jdbcTemplate.update("INSERT INTO viaje (id, origen_id, destino_id, bus_asignado_id, fecha_hora_salida, fecha_hora_llegada, " +
+                "asientos_disponibles, pasajes_vendidos, precio, estado, version_asientos) " +
+                "SELECT g, 1 + g % ?, 1 + (g * 7 + 1) % ?, 1 + g % ?, s, s + INTERVAL '4 hours', 41, 4, 500 + g % 300, " +
+                "CASE WHEN s + INTERVAL '4 hours' < now() THEN 'FINALIZADO' WHEN s < now() THEN 'EN_CURSO' " +
+                "WHEN s < now() + INTERVAL '1 hour' THEN 'VENTAS_CERRADAS' ELSE 'PROGRAMADO' END, 0 " +
+                "FROM generate_series(1, ?) g, LATERAL (SELECT now() - INTERVAL '700 days' + g * INTERVAL '9 minutes' AS s) t",
+                LOCALIDADES, LOCALIDADES, OMNIBUS, VIAJES);
+        jdbcTemplate.update("INSERT INTO pasajes (cliente_id, viaje_id, numero_asiento, precio, estado, fecha_reserva) " +
+                "SELECT 1 + (v.id * 31 + a) % ?, v.id, a, v.precio, " +
+                "CASE WHEN v.estado = 'FINALIZADO' THEN (CASE WHEN a = 1 THEN 'CANCELADO' ELSE 'UTILIZADO' END) " +
+                "WHEN v.estado = 'PROGRAMADO' AND a = 1 AND v.id % 10 = 0 THEN 'RESERVADO' ELSE 'VENDIDO' END, " +
+                "CASE WHEN v.estado = 'PROGRAMADO' AND a = 1 AND v.id % 10 = 0 THEN now() - (v.id % 20) * INTERVAL '1 minute' END " +
+                "FROM viaje v, generate_series(1, ?) a", CLIENTES, PASAJES_POR_VIAJE);
+        jdbcTemplate.update("INSERT INTO notificacion (usuario_id, mensaje, leida, fecha_creacion) " +
+                "SELECT 1 + g % ?, 'Notificación ' || g, g % 3 = 0, now() - g * INTERVAL '1 minute' " +
+                "FROM generate_series(1, ?) g", CLIENTES, CLIENTES * 20);
+        transactionTemplate.executeWithoutResult(estado -> disponibilidadRepository.poblarDesdeViajes());
+        jdbcTemplate.execute("ANALYZE");
+    }
+}
@@ -0,0 +1,36 @@
+package com.omnibus.backend.repository;
+
+import com.omnibus.backend.dto.ViajeConDisponibilidadDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CursorBusquedaViajesTest {
+
+    private static ViajeConDisponibilidadDTO viaje(int id, String origen, double precio) {
+        return new ViajeConDisponibilidadDTO(id, LocalDateTime.of(2026, 3, 1, 8, 30), LocalDateTime.of(2026, 3, 1, 12, 0),
+                origen, "Montevideo", "ABC1234", 45, 5, null, precio);
+    }
+
+    @Test
+    void conservaElValorDeCadaOrden() {
+        ViajeConDisponibilidadDTO ultimo = viaje(17, "Río|Branco", 550.5);
+        for (OrdenBusquedaViajes orden : OrdenBusquedaViajes.values()) {
+            CursorBusquedaViajes cursor = CursorBusquedaViajes.de(orden, ultimo);
+            assertEquals(cursor, CursorBusquedaViajes.decodificar(cursor.codificar(), orden));
+        }
+        assertEquals("río|branco", CursorBusquedaViajes.de(OrdenBusquedaViajes.ORIGEN_NOMBRE, ultimo).valor());
+    }
+
+    @Test
+    void rechazaCursoresDeOtroOrdenOInvalidos() {
+        String porPrecio = CursorBusquedaViajes.de(OrdenBusquedaViajes.PRECIO, viaje(3, "Salto", 100)).codificar();
+        assertThrows(IllegalArgumentException.class,
+                () -> CursorBusquedaViajes.decodificar(porPrecio, OrdenBusquedaViajes.FECHA_SALIDA));
+        assertThrows(IllegalArgumentException.class,
+                () -> CursorBusquedaViajes.decodificar("no-es-un-cursor", OrdenBusquedaViajes.PRECIO));
+    }
+}
@@ -0,0 +1,102 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.model.EstadoViaje;
+import com.omnibus.backend.model.Localidad;
+import com.omnibus.backend.model.Omnibus;
+import com.omnibus.backend.model.Viaje;
+import com.omnibus.backend.repository.ViajeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Deshacer de la agenda de la flota cuando una transacción se revierte. La transacción se simula con la
+ * sincronización de Spring en el hilo de la prueba; los cambios sin sincronización activa cuentan como
+ * confirmados.
+ */
+class LineaTiempoFlotaServiceTest {
+
+    private static final LocalDate DIA = LocalDate.now().plusDays(7);
+
+    private final LineaTiempoFlotaService lineaTiempo =
+            new LineaTiempoFlotaService(mock(ViajeRepository.class), mock(PlatformTransactionManager.class));
+    private final Localidad montevideo = localidad(1L);
+    private final Localidad salto = localidad(2L);
+
+    @AfterEach
+    void limpiarSincronizacion() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void elRollbackRestauraElTramoAnterior() {
+        lineaTiempo.actualizar(viaje(omnibus(1L)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        lineaTiempo.actualizar(viaje(omnibus(2L)));
+        assertEquals(1, lineaTiempo.tramosDe(2L).size());
+        revertir();
+
+        assertEquals(1, lineaTiempo.tramosDe(1L).size());
+        assertTrue(lineaTiempo.tramosDe(2L).isEmpty());
+    }
+
+    @Test
+    void elRollbackNoPisaElCambioDeOtraTransaccion() {
+        lineaTiempo.actualizar(viaje(omnibus(1L)));
+
+        TransactionSynchronizationManager.initSynchronization();
+        lineaTiempo.actualizar(viaje(omnibus(2L)));
+        List<TransactionSynchronization> revertida = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // Otra transacción mueve el viaje al ómnibus 3 y confirma antes de que la primera termine
+        lineaTiempo.actualizar(viaje(omnibus(3L)));
+        revertida.forEach(sincronizacion -> sincronizacion.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertTrue(lineaTiempo.tramosDe(1L).isEmpty());
+        assertTrue(lineaTiempo.tramosDe(2L).isEmpty());
+        assertEquals(1, lineaTiempo.tramosDe(3L).size());
+    }
+
+    private static void revertir() {
+        List<TransactionSynchronization> sincronizaciones = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        sincronizaciones.forEach(sincronizacion -> sincronizacion.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+    }
+
+    private Viaje viaje(Omnibus bus) {
+        return Viaje.builder()
+                .id(10)
+                .fechaHoraSalida(DIA.atTime(8, 0))
+                .fechaHoraLlegada(DIA.atTime(10, 0))
+                .origen(montevideo)
+                .destino(salto)
+                .busAsignado(bus)
+                .estado(EstadoViaje.PROGRAMADO)
+                .build();
+    }
+
+    private static Omnibus omnibus(Long id) {
+        Omnibus bus = new Omnibus();
+        bus.setId(id);
+        return bus;
+    }
+
+    private static Localidad localidad(Long id) {
+        Localidad localidad = new Localidad();
+        localidad.setId(id);
+        return localidad;
+    }
+}
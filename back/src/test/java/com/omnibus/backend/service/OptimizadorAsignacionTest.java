@@ -0,0 +1,188 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.dto.PropuestaAsignacionDTO;
+import com.omnibus.backend.dto.ReasignacionPropuestaDTO;
+import com.omnibus.backend.model.EstadoBus;
+import com.omnibus.backend.model.EstadoViaje;
+import com.omnibus.backend.model.Localidad;
+import com.omnibus.backend.model.Omnibus;
+import com.omnibus.backend.model.Viaje;
+import com.omnibus.backend.repository.OmnibusRepository;
+import com.omnibus.backend.repository.ViajeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Casos chicos y deterministas del optimizador de asignaciones, sin base de datos: los repositorios son mocks
+ * y la agenda de la flota se arma con {@link LineaTiempoFlotaService#actualizar}. En cada caso se verifica que la
+ * asignación propuesta respete las reglas de crearViaje (sin solapamientos, cada viaje sale de donde está el
+ * ómnibus y con el tiempo mínimo de preparación después de cada llegada).
+ */
+class OptimizadorAsignacionTest {
+
+    private static final Duration PREPARACION = Duration.ofMinutes(30);
+    private static final LocalDate DIA = LocalDate.now().plusDays(7);
+
+    private final Localidad montevideo = localidad(1L, "Montevideo");
+    private final Localidad salto = localidad(2L, "Salto");
+
+    private final List<Omnibus> flota = new ArrayList<>();
+    private final List<Viaje> viajes = new ArrayList<>();
+
+    @Test
+    void encadenaLaVueltaEnElOmnibusQueLlegoAlOrigen() {
+        Omnibus bus1 = omnibus(1L, montevideo, EstadoBus.ASIGNADO_A_VIAJE);
+        Omnibus bus2 = omnibus(2L, salto, EstadoBus.ASIGNADO_A_VIAJE);
+        viaje(1, montevideo, salto, 8, 0, 10, 0, bus1, EstadoViaje.PROGRAMADO);
+        viaje(2, salto, montevideo, 12, 0, 14, 0, bus2, EstadoViaje.PROGRAMADO);
+
+        PropuestaAsignacionDTO propuesta = proponer();
+
+        assertEquals(2, propuesta.getOmnibusUsadosActual());
+        assertEquals(1, propuesta.getOmnibusUsadosPropuesto());
+        assertEquals(1, propuesta.getCambios().size());
+        verificarReglas(propuesta);
+    }
+
+    @Test
+    void noEncadenaSinElTiempoDePreparacion() {
+        Omnibus bus1 = omnibus(1L, montevideo, EstadoBus.ASIGNADO_A_VIAJE);
+        Omnibus bus2 = omnibus(2L, salto, EstadoBus.ASIGNADO_A_VIAJE);
+        viaje(1, montevideo, salto, 8, 0, 10, 0, bus1, EstadoViaje.PROGRAMADO);
+        // Sale 20 minutos después de que bus1 llega a Salto
+        viaje(2, salto, montevideo, 10, 20, 12, 20, bus2, EstadoViaje.PROGRAMADO);
+
+        PropuestaAsignacionDTO propuesta = proponer();
+
+        assertEquals(2, propuesta.getOmnibusUsadosPropuesto());
+        assertTrue(propuesta.getCambios().isEmpty());
+        verificarReglas(propuesta);
+    }
+
+    @Test
+    void noEncadenaUnViajeQueSaleDeOtraLocalidad() {
+        Omnibus bus1 = omnibus(1L, montevideo, EstadoBus.ASIGNADO_A_VIAJE);
+        Omnibus bus2 = omnibus(2L, montevideo, EstadoBus.ASIGNADO_A_VIAJE);
+        viaje(1, montevideo, salto, 8, 0, 10, 0, bus1, EstadoViaje.PROGRAMADO);
+        // bus1 queda en Salto: no puede hacer otro viaje desde Montevideo
+        viaje(2, montevideo, salto, 12, 0, 14, 0, bus2, EstadoViaje.PROGRAMADO);
+
+        PropuestaAsignacionDTO propuesta = proponer();
+
+        assertEquals(2, propuesta.getOmnibusUsadosPropuesto());
+        assertTrue(propuesta.getCambios().isEmpty());
+        verificarReglas(propuesta);
+    }
+
+    @Test
+    void respetaLosViajesConVentasCerradas() {
+        Omnibus bus1 = omnibus(1L, montevideo, EstadoBus.ASIGNADO_A_VIAJE);
+        Omnibus bus3 = omnibus(3L, montevideo, EstadoBus.EN_MANTENIMIENTO);
+        // bus1 parece libre en Montevideo, pero sale en la próxima hora con las ventas ya cerradas
+        viaje(1, montevideo, salto, 8, 0, 10, 0, bus1, EstadoViaje.VENTAS_CERRADAS);
+        // bus3 no puede tomar viajes: este tiene que ir a otro ómnibus, y bus1 está ocupado
+        viaje(2, montevideo, salto, 9, 0, 11, 0, bus3, EstadoViaje.PROGRAMADO);
+
+        PropuestaAsignacionDTO propuesta = proponer();
+
+        assertTrue(propuesta.getCambios().isEmpty());
+        assertEquals(1, propuesta.getViajesFijos());
+        verificarReglas(propuesta);
+    }
+
+    private PropuestaAsignacionDTO proponer() {
+        ViajeRepository viajeRepository = mock(ViajeRepository.class);
+        OmnibusRepository omnibusRepository = mock(OmnibusRepository.class);
+        when(viajeRepository.findProgramadosEntre(any(), any())).thenReturn(viajes.stream()
+                .filter(viaje -> viaje.getEstado() == EstadoViaje.PROGRAMADO)
+                .collect(Collectors.toList()));
+        when(omnibusRepository.findAllConLocalidad()).thenReturn(flota);
+
+        LineaTiempoFlotaService lineaTiempo = new LineaTiempoFlotaService(viajeRepository, mock(PlatformTransactionManager.class));
+        lineaTiempo.actualizar(viajes);
+        return new OptimizadorAsignacionService(viajeRepository, omnibusRepository, lineaTiempo)
+                .proponer(DIA.atStartOfDay(), DIA.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * Aplica los cambios a la asignación actual y recorre los viajes de cada ómnibus en orden de salida.
+     */
+    private void verificarReglas(PropuestaAsignacionDTO propuesta) {
+        Map<Integer, Long> asignacion = new HashMap<>();
+        viajes.forEach(viaje -> asignacion.put(viaje.getId(), viaje.getBusAsignado().getId()));
+        for (ReasignacionPropuestaDTO cambio : propuesta.getCambios()) {
+            assertEquals(EstadoViaje.PROGRAMADO, buscarViaje(cambio.getViajeId()).getEstado(),
+                    "Solo se pueden mover viajes PROGRAMADO: " + cambio);
+            asignacion.put(cambio.getViajeId(), cambio.getOmnibusPropuestoId());
+        }
+        for (Omnibus bus : flota) {
+            List<Viaje> cadena = viajes.stream()
+                    .filter(viaje -> asignacion.get(viaje.getId()).equals(bus.getId()))
+                    .sorted(Comparator.comparing(Viaje::getFechaHoraSalida))
+                    .toList();
+            Long localidad = bus.getLocalidadActual().getId();
+            LocalDateTime libreDesde = null;
+            for (Viaje viaje : cadena) {
+                assertEquals(localidad, viaje.getOrigen().getId(),
+                        "El viaje " + viaje.getId() + " no sale de donde está el ómnibus " + bus.getId());
+                assertTrue(libreDesde == null || !libreDesde.plus(PREPARACION).isAfter(viaje.getFechaHoraSalida()),
+                        "El viaje " + viaje.getId() + " se solapa o no deja tiempo de preparación en el ómnibus " + bus.getId());
+                localidad = viaje.getDestino().getId();
+                libreDesde = viaje.getFechaHoraLlegada();
+            }
+        }
+    }
+
+    private Viaje buscarViaje(Integer id) {
+        return viajes.stream().filter(viaje -> viaje.getId().equals(id)).findFirst().orElseThrow();
+    }
+
+    private Omnibus omnibus(Long id, Localidad localidad, EstadoBus estado) {
+        Omnibus bus = new Omnibus();
+        bus.setId(id);
+        bus.setMatricula("SAB" + String.format("%04d", id));
+        bus.setCapacidadAsientos(40);
+        bus.setEstado(estado);
+        bus.setLocalidadActual(localidad);
+        flota.add(bus);
+        return bus;
+    }
+
+    private void viaje(int id, Localidad origen, Localidad destino, int horaSalida, int minutoSalida,
+                       int horaLlegada, int minutoLlegada, Omnibus bus, EstadoViaje estado) {
+        viajes.add(Viaje.builder()
+                .id(id)
+                .fechaHoraSalida(DIA.atTime(horaSalida, minutoSalida))
+                .fechaHoraLlegada(DIA.atTime(horaLlegada, minutoLlegada))
+                .origen(origen)
+                .destino(destino)
+                .busAsignado(bus)
+                .asientosDisponibles(bus.getCapacidadAsientos())
+                .pasajesVendidos(0)
+                .estado(estado)
+                .precio(100.0)
+                .build());
+    }
+
+    private static Localidad localidad(Long id, String nombre) {
+        Localidad localidad = new Localidad(nombre, nombre, "Terminal");
+        localidad.setId(id);
+        return localidad;
+    }
+}
@@ -0,0 +1,122 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.dto.ItinerarioDTO;
+import com.omnibus.backend.dto.TramoItinerarioDTO;
+import com.omnibus.backend.model.DisponibilidadRutaDia;
+import com.omnibus.backend.model.EstadoViaje;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Casos chicos de la búsqueda con combinaciones sobre una red armada a mano.
+ * Localidades: Montevideo (1), Durazno (2), Salto (3).
+ */
+class PlanificadorItinerariosServiceTest {
+
+    private static final long MONTEVIDEO = 1L;
+    private static final long DURAZNO = 2L;
+    private static final long SALTO = 3L;
+    private static final LocalDateTime DESDE = LocalDateTime.now().plusDays(7).withHour(6).withMinute(0).withSecond(0).withNano(0);
+
+    private final PlanificadorItinerariosService planificador = new PlanificadorItinerariosService();
+    private final List<DisponibilidadRutaDia> filas = new ArrayList<>();
+
+    @Test
+    void encuentraElViajeDirecto() {
+        viaje(1, MONTEVIDEO, SALTO, 2, 8, 40);
+        planificador.cargar(filas);
+
+        List<ItinerarioDTO> itinerarios = planificador.buscar(MONTEVIDEO, SALTO, DESDE, 2, 30, 1);
+
+        assertEquals(1, itinerarios.size());
+        assertEquals(0, itinerarios.get(0).getTransbordos());
+        assertEquals(List.of(1), viajes(itinerarios.get(0)));
+    }
+
+    @Test
+    void combinaSoloConElTiempoMinimoDeConexion() {
+        viaje(1, MONTEVIDEO, DURAZNO, 2, 4, 40);  // Llega a Durazno a las 10:00
+        viaje(2, DURAZNO, SALTO, 4 + 0.5, 7, 40); // Sale 30 minutos después
+        planificador.cargar(filas);
+
+        List<ItinerarioDTO> conTreinta = planificador.buscar(MONTEVIDEO, SALTO, DESDE, 1, 30, 1);
+        assertEquals(1, conTreinta.size());
+        assertEquals(1, conTreinta.get(0).getTransbordos());
+        assertEquals(List.of(1, 2), viajes(conTreinta.get(0)));
+
+        assertTrue(planificador.buscar(MONTEVIDEO, SALTO, DESDE, 1, 31, 1).isEmpty());
+        assertTrue(planificador.buscar(MONTEVIDEO, SALTO, DESDE, 0, 30, 1).isEmpty());
+    }
+
+    @Test
+    void ofreceLaCombinacionSoloSiLlegaAntesQueElDirecto() {
+        viaje(1, MONTEVIDEO, SALTO, 2, 10, 40);    // Directo: llega a las 16:00
+        viaje(2, MONTEVIDEO, DURAZNO, 1, 3, 40);
+        viaje(3, DURAZNO, SALTO, 4, 7, 40);        // Combinación: llega a las 13:00
+        viaje(4, MONTEVIDEO, DURAZNO, 1, 3, 40);
+        viaje(5, DURAZNO, SALTO, 5, 11, 40);       // Combinación más lenta que el directo
+        planificador.cargar(filas);
+
+        List<ItinerarioDTO> itinerarios = planificador.buscar(MONTEVIDEO, SALTO, DESDE, 1, 30, 1);
+
+        assertEquals(2, itinerarios.size());
+        assertEquals(List.of(1), viajes(itinerarios.get(0)));
+        assertEquals(List.of(2, 3), viajes(itinerarios.get(1)));
+    }
+
+    @Test
+    void ignoraLasSalidasFueraDelHorizonte() {
+        viaje(1, MONTEVIDEO, SALTO, 48 + 1, 48 + 7, 40);
+        planificador.cargar(filas);
+        assertTrue(planificador.buscar(MONTEVIDEO, SALTO, DESDE, 0, 30, 1).isEmpty());
+
+        viaje(2, MONTEVIDEO, SALTO, 47, 53, 40);
+        planificador.cargar(filas);
+        assertEquals(List.of(2), viajes(planificador.buscar(MONTEVIDEO, SALTO, DESDE, 0, 30, 1).get(0)));
+    }
+
+    @Test
+    void saltaLosTramosSinAsientosSuficientes() {
+        viaje(1, MONTEVIDEO, DURAZNO, 1, 3, 40);
+        viaje(2, DURAZNO, SALTO, 4, 7, 0);  // Completo
+        viaje(3, DURAZNO, SALTO, 5, 8, 2);  // Dos asientos libres
+        planificador.cargar(filas);
+
+        assertEquals(List.of(1, 3), viajes(planificador.buscar(MONTEVIDEO, SALTO, DESDE, 1, 30, 2).get(0)));
+        assertTrue(planificador.buscar(MONTEVIDEO, SALTO, DESDE, 1, 30, 3).isEmpty());
+
+        // Una devolución libera un asiento del viaje completo
+        planificador.sumarAsientos(2, 1);
+        assertEquals(List.of(1, 2), viajes(planificador.buscar(MONTEVIDEO, SALTO, DESDE, 1, 30, 1).get(0)));
+    }
+
+    private static List<Integer> viajes(ItinerarioDTO itinerario) {
+        return itinerario.getTramos().stream().map(TramoItinerarioDTO::getViajeId).toList();
+    }
+
+    // Salida y llegada en horas (con fracción) desde DESDE
+    private void viaje(int id, long origen, long destino, double salida, double llegada, int asientosLibres) {
+        LocalDateTime fechaSalida = DESDE.plusMinutes(Math.round(salida * 60));
+        filas.add(DisponibilidadRutaDia.builder()
+                .viajeId(id)
+                .origenId(origen)
+                .destinoId(destino)
+                .fecha(fechaSalida.toLocalDate())
+                .fechaHoraSalida(fechaSalida)
+                .fechaHoraLlegada(DESDE.plusMinutes(Math.round(llegada * 60)))
+                .origenNombre("L" + origen)
+                .destinoNombre("L" + destino)
+                .omnibusMatricula("SAB" + id)
+                .capacidad(40)
+                .asientosLibres(asientosLibres)
+                .estado(EstadoViaje.PROGRAMADO)
+                .precio(100.0)
+                .build());
+    }
+}
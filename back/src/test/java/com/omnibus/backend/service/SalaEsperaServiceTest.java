@@ -0,0 +1,66 @@
+package com.omnibus.backend.service;
+
+import com.omnibus.backend.dto.TurnoSalaEsperaDTO;
+import com.omnibus.backend.dto.TurnoSalaEsperaDTO.EstadoTurno;
+import com.omnibus.backend.repository.ViajeRepository;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Admisión de la sala de espera con un solo lugar de checkout por viaje.
+ */
+class SalaEsperaServiceTest {
+
+    private static final int VIAJE = 1;
+
+    private final ViajeRepository viajeRepository = mock(ViajeRepository.class);
+    private final SalaEsperaService salaEspera = new SalaEsperaService(viajeRepository);
+
+    @BeforeEach
+    void configurar() {
+        ReflectionTestUtils.setField(salaEspera, "checkoutsPorViaje", 1);
+        ReflectionTestUtils.setField(salaEspera, "maxEnColaPorViaje", 10);
+        ReflectionTestUtils.setField(salaEspera, "vigenciaAdmisionSegundos", 60L);
+        ReflectionTestUtils.setField(salaEspera, "inactividadColaSegundos", 30L);
+        when(viajeRepository.existsById(VIAJE)).thenReturn(true);
+    }
+
+    @Test
+    void unTurnoNoOcupaDosLugares() {
+        TurnoSalaEsperaDTO turno = salaEspera.solicitarTurno(VIAJE);
+        assertEquals(EstadoTurno.ADMITIDO, turno.getEstado());
+        assertEquals(EstadoTurno.EN_CHECKOUT, salaEspera.ocuparLugar(VIAJE, turno.getToken()).getEstado());
+
+        // Un reintento con el mismo token mientras el checkout sigue en curso se rechaza
+        assertThrows(IllegalStateException.class, () -> salaEspera.ocuparLugar(VIAJE, turno.getToken()));
+
+        // El único lugar sigue ocupado: otro cliente queda en la cola
+        TurnoSalaEsperaDTO otro = salaEspera.ocuparLugar(VIAJE, null);
+        assertEquals(EstadoTurno.EN_ESPERA, otro.getEstado());
+        assertEquals(1, otro.getPosicion());
+
+        // Al terminar el checkout el siguiente pasa
+        salaEspera.liberarLugar(VIAJE, turno.getToken());
+        assertEquals(EstadoTurno.EN_CHECKOUT, salaEspera.ocuparLugar(VIAJE, otro.getToken()).getEstado());
+    }
+
+    @Test
+    void noAbreSalasParaViajesInexistentes() {
+        when(viajeRepository.existsById(99)).thenReturn(false);
+
+        assertThrows(EntityNotFoundException.class, () -> salaEspera.solicitarTurno(99));
+        assertThrows(EntityNotFoundException.class, () -> salaEspera.ocuparLugar(99, null));
+        assertThrows(IllegalArgumentException.class, () -> salaEspera.consultarTurno(98, "token"));
+        salaEspera.abandonarTurno(98, "token");
+        verify(viajeRepository, never()).existsById(98);
+    }
+}
@@ -7,22 +7,24 @@ const TarifasHorarios = () => {
     const [viajesMostrados, setViajesMostrados] = useState([]);
     const [loading, setLoading] = useState(true);
     const [error, setError] = useState('');
+    // El listado viene de a una página; siguienteCursor permite pedir la próxima
+    const [siguienteCursor, setSiguienteCursor] = useState(null);
+    const [cargandoMas, setCargandoMas] = useState(false);
+
+    // Desde hoy y solo viajes programados: los anteriores ya no se pueden comprar
+    const pedirPagina = (cursor) => {
+        const hoy = new Date().toLocaleDateString('en-CA');
+        return obtenerListadoViajesConPrecio({ desde: hoy, estado: 'PROGRAMADO', cursor: cursor || undefined });
+    };
 
     useEffect(() => {
-        const cargarYFiltrarViajes = async () => {
+        const cargarViajes = async () => {
             try {
                 setLoading(true);
                 setError('');
-                const response = await obtenerListadoViajesConPrecio();
-                const todosLosViajes = response.data || [];
-
-                // --- LÓGICA DE FILTRADO EN EL FRONTEND ---
-                const viajesFiltrados = todosLosViajes.filter(
-                    viaje => viaje.estado === 'PROGRAMADO'
-                );
-
-                setViajesMostrados(viajesFiltrados);
-
+                const response = await pedirPagina(null);
+                setViajesMostrados(response.data?.content || []);
+                setSiguienteCursor(response.data?.siguienteCursor || null);
             } catch (err) {
                 console.error("Error al cargar tarifas y horarios:", err);
                 setError("No se pudieron cargar los datos de los viajes. Intente más tarde.");
@@ -31,9 +33,23 @@ const TarifasHorarios = () => {
             }
         };
 
-        cargarYFiltrarViajes();
+        cargarViajes();
     }, []);
 
+    const handleCargarMas = async () => {
+        setCargandoMas(true);
+        try {
+            const response = await pedirPagina(siguienteCursor);
+            setViajesMostrados(prev => [...prev, ...(response.data?.content || [])]);
+            setSiguienteCursor(response.data?.siguienteCursor || null);
+        } catch (err) {
+            console.error("Error al cargar más tarifas y horarios:", err);
+            setError("No se pudieron cargar más viajes. Intente más tarde.");
+        } finally {
+            setCargandoMas(false);
+        }
+    };
+
     const formatDate = (fecha) => {
         const dateObj = new Date(fecha);
         dateObj.setMinutes(dateObj.getMinutes() + dateObj.getTimezoneOffset());
@@ -85,6 +101,11 @@ const TarifasHorarios = () => {
                         )}
                         </tbody>
                     </table>
+                    {siguienteCursor && (
+                        <button className="btn-cargar-mas" onClick={handleCargarMas} disabled={cargandoMas}>
+                            {cargandoMas ? 'Cargando...' : 'Ver más viajes'}
+                        </button>
+                    )}
                 </div>
             )}
         </div>
@@ -1,11 +1,12 @@
 // src/components/cliente/ClienteSeleccionAsientos.js
-import React, { useState, useEffect } from 'react';
+import React, { useState, useEffect, useRef } from 'react';
 import { useNavigate, useParams, useLocation } from 'react-router-dom';
 import { useAuth } from '../../AuthContext';
 import {
     obtenerDetallesViajeConAsientos,
     obtenerAsientosOcupados,
-    reservarAsientosTemporalmente
+    reservarAsientosTemporalmente,
+    abandonarTurnoSalaEspera
 } from '../../services/api';
 import './ClienteSeleccionAsientosPage.css';
 
@@ -23,6 +24,10 @@ const ClienteSeleccionAsientos = () => {
     const [loading, setLoading] = useState(true);
     const [error, setError] = useState(null);
     const [isReserving, setIsReserving] = useState(false);
+    // Turno en la sala de espera cuando el viaje tiene mucha demanda (respuesta 429 del backend)
+    const [salaEspera, setSalaEspera] = useState(null);
+    const tokenTurnoRef = useRef(null);
+    const esperaCanceladaRef = useRef(false);
 
     const parsedViajeId = parseInt(viajeIdFromParams, 10);
 
@@ -49,6 +54,29 @@ const ClienteSeleccionAsientos = () => {
         cargarDatos();
     }, [parsedViajeId]);
 
+    // Si el usuario se va de la página mientras espera, se libera su lugar en la cola.
+    useEffect(() => {
+        return () => {
+            esperaCanceladaRef.current = true;
+            if (tokenTurnoRef.current) {
+                abandonarTurnoSalaEspera(parsedViajeId, tokenTurnoRef.current).catch(() => {});
+                tokenTurnoRef.current = null;
+            }
+        };
+    }, [parsedViajeId]);
+
+    const esperar = (segundos) => new Promise(resolve => setTimeout(resolve, Math.max(1, segundos) * 1000));
+
+    const handleCancelarEspera = () => {
+        esperaCanceladaRef.current = true;
+        if (tokenTurnoRef.current) {
+            abandonarTurnoSalaEspera(parsedViajeId, tokenTurnoRef.current).catch(() => {});
+            tokenTurnoRef.current = null;
+        }
+        setSalaEspera(null);
+        setIsReserving(false);
+    };
+
     const handleSeleccionarAsiento = (numeroAsiento) => {
         if (asientosOcupados.includes(numeroAsiento)) return;
         setAsientosSeleccionados(prev => {
@@ -74,6 +102,7 @@ const ClienteSeleccionAsientos = () => {
     }
 
     setIsReserving(true);
+    esperaCanceladaRef.current = false;
     try {
         const reservaDTO = {
             viajeId: parsedViajeId,
@@ -81,7 +110,23 @@ const ClienteSeleccionAsientos = () => {
             numerosAsiento: asientosSeleccionados,
         };
 
-        const response = await reservarAsientosTemporalmente(reservaDTO);
+        // Mientras el backend responda 429 seguimos en la sala de espera: se reintenta con el mismo turno
+        // cuando indica el servidor, así no se pierde la posición en la cola.
+        let response = null;
+        while (!response) {
+            try {
+                response = await reservarAsientosTemporalmente(reservaDTO, tokenTurnoRef.current);
+            } catch (err) {
+                if (err.response?.status !== 429) throw err;
+                const turno = err.response.data?.turno || {};
+                tokenTurnoRef.current = err.response.headers?.['x-turno-sala-espera'] || turno.token || tokenTurnoRef.current;
+                setSalaEspera(turno);
+                await esperar(turno.consultarEnSegundos || parseInt(err.response.headers?.['retry-after'], 10) || 2);
+                if (esperaCanceladaRef.current) return;
+            }
+        }
+        tokenTurnoRef.current = null;
+        setSalaEspera(null);
         const { expiracion } = response.data;
 
         const asientosString = asientosSeleccionados.join(',');
@@ -95,6 +140,14 @@ const ClienteSeleccionAsientos = () => {
             }
         });
     } catch (error) {
+        setSalaEspera(null);
+        tokenTurnoRef.current = null;
+        if (error.response?.status === 503) {
+            // La sala de espera está completa: no se obtuvo turno
+            const reintentar = error.response.headers?.['retry-after'];
+            alert(`${error.response.data?.message || 'Hay demasiada demanda para este viaje.'}${reintentar ? ` Intente nuevamente en ${reintentar} segundos.` : ''}`);
+            return;
+        }
         // --- INICIO DE LA SECCIÓN CORREGIDA ---
         const errorMessage = error.response?.data?.message || "Ocurrió un error al procesar su solicitud.";
         
@@ -188,8 +241,18 @@ const ClienteSeleccionAsientos = () => {
                         className="btn-continuar-checkout"
                         disabled={isReserving}
                     >
-                        {isReserving ? 'Reservando...' : 'Continuar y Pagar'}
+                        {salaEspera ? 'En sala de espera...' : isReserving ? 'Reservando...' : 'Continuar y Pagar'}
                     </button>
+                    {salaEspera && (
+                        <div className="loading-mensaje">
+                            <p>Hay mucha demanda para este viaje. Está en la sala de espera.</p>
+                            {salaEspera.posicion != null && <p>Su posición en la fila: <strong>{salaEspera.posicion}</strong></p>}
+                            {salaEspera.esperaEstimadaSegundos != null && (
+                                <p>Espera estimada: {Math.ceil(salaEspera.esperaEstimadaSegundos / 60)} min</p>
+                            )}
+                            <button onClick={handleCancelarEspera} className="btn-cancelar-espera">Salir de la fila</button>
+                        </div>
+                    )}
                 </div>
             ) : (
                 <p className="mensaje-seleccionar-asiento">Por favor, elija hasta {MAX_ASIENTOS} asientos del mapa.</p>
@@ -1,7 +1,7 @@
 // src/pages/vendedor/VendedorEstadisticasViaje.js
 
 import React, { useState, useEffect } from 'react';
-import { obtenerListadoViajesConPrecio } from '../../services/api';
+import { exportarListadoViajesConPrecio } from '../../services/api';
 
 // Importaciones para PDF
 import jsPDF from 'jspdf';
@@ -35,8 +35,7 @@ const VendedorEstadisticasViaje = () => {
             try {
                 setLoading(true);
                 setError(null);
-                const response = await obtenerListadoViajesConPrecio();
-                const viajes = response.data;
+                const viajes = await exportarListadoViajesConPrecio();
 
                 if (viajes && viajes.length > 0) {
                     const precios = viajes.map(v => v.precio).filter(p => typeof p === 'number');
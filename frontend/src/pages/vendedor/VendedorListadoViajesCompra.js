@@ -6,6 +6,11 @@ import { buscarViajesConDisponibilidad, obtenerTodasLasLocalidades } from '../..
 import './ListadoViajes.css';
 import { useAuth } from '../../AuthContext';
 
+// Solo se envían al backend los filtros con valor
+const criteriosActivos = (currentFilters) => Object.fromEntries(
+    Object.entries(currentFilters).filter(([, value]) => value !== '' && value !== null)
+);
+
 const VendedorListadoViajesCompra = () => {
     const navigate = useNavigate();
     const location = useLocation();
@@ -13,6 +18,9 @@ const VendedorListadoViajesCompra = () => {
     const [searchParams, setSearchParams] = useSearchParams();
 
     const [viajes, setViajes] = useState([]);
+    // El backend devuelve de a una página; con siguienteCursor se piden las siguientes
+    const [siguienteCursor, setSiguienteCursor] = useState(null);
+    const [cargandoMas, setCargandoMas] = useState(false);
     const [localidades, setLocalidades] = useState([]);
     const [loading, setLoading] = useState(true); // Empieza en true para la carga inicial
     const [error, setError] = useState(null);
@@ -45,19 +53,34 @@ const VendedorListadoViajesCompra = () => {
         setLoading(true);
         setError(null);
         try {
-            const criteriosActivos = Object.fromEntries(
-                Object.entries(currentFilters).filter(([, value]) => value !== '' && value !== null)
-            );
-            const response = await buscarViajesConDisponibilidad(criteriosActivos);
-            setViajes(Array.isArray(response.data) ? response.data : []);
+            const response = await buscarViajesConDisponibilidad(criteriosActivos(currentFilters));
+            setViajes(Array.isArray(response.data?.content) ? response.data.content : []);
+            setSiguienteCursor(response.data?.siguienteCursor || null);
         } catch (err) {
             setError(err.response?.data?.message || "Error al cargar viajes");
             setViajes([]);
+            setSiguienteCursor(null);
         } finally {
             setLoading(false);
         }
     }, []); // No depende de nada, recibe los filtros como argumento
 
+    // Agrega la página siguiente a la lista (mismos filtros y orden que la primera)
+    const handleCargarMas = async () => {
+        if (!siguienteCursor) return;
+        setCargandoMas(true);
+        try {
+            const response = await buscarViajesConDisponibilidad({ ...criteriosActivos(filtros), cursor: siguienteCursor });
+            const pagina = Array.isArray(response.data?.content) ? response.data.content : [];
+            setViajes(prev => [...prev, ...pagina]);
+            setSiguienteCursor(response.data?.siguienteCursor || null);
+        } catch (err) {
+            setError(err.response?.data?.message || "Error al cargar más viajes");
+        } finally {
+            setCargandoMas(false);
+        }
+    };
+
     // Dispara la búsqueda cuando los filtros cambian
     useEffect(() => {
         fetchViajes(filtros);
@@ -175,6 +198,11 @@ const VendedorListadoViajesCompra = () => {
                     </tbody>
                 </table>
             )}
+            {!loading && !error && siguienteCursor && (
+                <button className="btn-cargar-mas" onClick={handleCargarMas} disabled={cargandoMas}>
+                    {cargandoMas ? 'Cargando...' : 'Cargar más viajes'}
+                </button>
+            )}
         </div>
     );
 };
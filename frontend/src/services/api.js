@@ -409,13 +409,14 @@ export const getDashboardStatistics = async () => {
 
 // --- NUEVA FUNCIÓN PARA OBTENER EL LISTADO DE VIAJES CON PRECIOS ---
 /**
- * Obtiene un listado completo de todos los viajes con información resumida y precios.
- * Ideal para tablas de vista general para Vendedores o Administradores.
- * @returns {Promise<Object>} La respuesta de la API con la lista de ViajePrecioDTO.
+ * Obtiene una página del listado de viajes con información resumida y precios.
+ * Sin cursor devuelve la primera página; la respuesta trae content y siguienteCursor.
+ * @param {Object} params - { tamanoPagina, cursor, desde (YYYY-MM-DD, por defecto hoy), estado }, todos opcionales.
+ * @returns {Promise<Object>} La respuesta de la API con la página de ViajePrecioDTO.
  */
-export const obtenerListadoViajesConPrecio = async () => {
+export const obtenerListadoViajesConPrecio = async (params = {}) => {
     try {
-        const response = await apiClient.get('/vendedor/viajes/listado-precios');
+        const response = await apiClient.get('/vendedor/viajes/listado-precios', { params });
         return response;
     } catch (error) {
         console.error("Error en API al obtener el listado de viajes con precios:", error.response?.data || error.message);
@@ -423,6 +424,27 @@ export const obtenerListadoViajesConPrecio = async () => {
     }
 };
 
+/**
+ * Obtiene el listado completo de viajes con precios (exportación NDJSON, solo Vendedores y Administradores).
+ * Ideal para estadísticas sobre todos los viajes.
+ * @returns {Promise<Array>} La lista de ViajePrecioDTO.
+ */
+export const exportarListadoViajesConPrecio = async () => {
+    try {
+        const response = await apiClient.get('/vendedor/viajes/listado-precios/exportar', {
+            params: { formato: 'ndjson' },
+            responseType: 'text'
+        });
+        return response.data
+            .split('\n')
+            .filter(linea => linea.trim() !== '')
+            .map(linea => JSON.parse(linea));
+    } catch (error) {
+        console.error("Error en API al exportar el listado de viajes con precios:", error.response?.data || error.message);
+        throw error;
+    }
+};
+
 export const obtenerEstadisticasOmnibus = async () => {
     try {
         const response = await apiClient.get('/vendedor/omnibus/estadisticas');
@@ -481,8 +503,24 @@ export const comprarMultiplesPasajes = (compraMultipleData) => {
     // Apunta al nuevo endpoint que creamos en el backend
     return apiClient.post('/vendedor/pasajes/comprar-multiple', compraMultipleData);
 };
-export const reservarAsientosTemporalmente = (reservaData) => {
-    return apiClient.post('/vendedor/pasajes/reservar-temporalmente', reservaData);
+/**
+ * Reserva temporalmente los asientos. Si el viaje tiene mucha demanda el backend responde 429 con el
+ * turno de la sala de espera (header X-Turno-Sala-Espera); se reintenta enviando ese mismo token.
+ * @param {Object} reservaData Datos de la reserva (viajeId, clienteId, numerosAsiento).
+ * @param {string} [tokenTurno] Token del turno en la sala de espera, si ya se tiene uno.
+ */
+export const reservarAsientosTemporalmente = (reservaData, tokenTurno) => {
+    const config = tokenTurno ? { headers: { 'X-Turno-Sala-Espera': tokenTurno } } : undefined;
+    return apiClient.post('/vendedor/pasajes/reservar-temporalmente', reservaData, config);
+};
+
+/**
+ * Abandona el turno en la sala de espera de un viaje para no retener el lugar en la cola.
+ * @param {number|string} viajeId El ID del viaje.
+ * @param {string} token Token del turno.
+ */
+export const abandonarTurnoSalaEspera = (viajeId, token) => {
+    return apiClient.delete(`/vendedor/viajes/${viajeId}/sala-espera/${token}`);
 };
 
 /**
@@ -1,7 +1,33 @@
 import { apiClient } from './client';
 
+const BASE64_CHARS = 'ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/';
+
+// Decodifica un bitmap base64 del backend: el asiento n es el bit (n - 1) % 8 del byte (n - 1) / 8.
+const decodeSeatBitmap = (base64, capacity) => {
+  const bytes = [];
+  let buffer = 0;
+  let bits = 0;
+  for (const char of base64 || '') {
+    const value = BASE64_CHARS.indexOf(char);
+    if (value < 0) continue; // padding '='
+    buffer = (buffer << 6) | value;
+    bits += 6;
+    if (bits >= 8) {
+      bits -= 8;
+      bytes.push((buffer >> bits) & 0xff);
+    }
+  }
+  const seats = [];
+  for (let seat = 1; seat <= capacity; seat++) {
+    const idx = seat - 1;
+    if (bytes[idx >> 3] & (1 << (idx & 7))) seats.push(seat);
+  }
+  return seats;
+};
+
 export const tripsService = {
-  async searchTrips(params = {}) {
+  // Devuelve una página de resultados; para la siguiente se vuelve a llamar con los mismos params y cursor: nextCursor.
+  async searchTrips(params = {}, cursor = null) {
     const queryParams = new URLSearchParams();
 
     if (params.origenNombre) queryParams.append('origenNombre', params.origenNombre);
@@ -9,20 +35,33 @@ export const tripsService = {
     if (params.fecha) queryParams.append('fecha', params.fecha);
     if (params.precioMinimo) queryParams.append('precioMinimo', params.precioMinimo.toString());
     if (params.precioMaximo) queryParams.append('precioMaximo', params.precioMaximo.toString());
+    if (cursor) queryParams.append('cursor', cursor);
 
     const response = await apiClient.get(
       `/api/vendedor/viajes/buscar-disponibles?${queryParams.toString()}`,
       true // Requiere autenticación
     );
-    return response;
+    // La búsqueda devuelve una página: { content, tamanoPagina, siguienteCursor }
+    return {
+      trips: response?.content || [],
+      nextCursor: response?.siguienteCursor || null,
+    };
   },
 
   async getTripById(id) {
     // Usar el endpoint de detalles con asientos
+    // Pedimos el mapa compacto (bitmap) para reducir el payload en conexiones lentas
     const response = await apiClient.get(
-      `/api/vendedor/viajes/${id}/detalles-asientos`,
+      `/api/vendedor/viajes/${id}/detalles-asientos?formato=bitmap`,
       true
     );
+    if (response && response.mapaAsientos) {
+      const { capacidad, vendidos, reservados } = response.mapaAsientos;
+      response.numerosAsientoOcupados = [
+        ...decodeSeatBitmap(vendidos, capacidad),
+        ...decodeSeatBitmap(reservados, capacidad),
+      ];
+    }
     return response;
   },
 
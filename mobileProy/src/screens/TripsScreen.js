@@ -8,6 +8,7 @@ import {
   RefreshControl,
   SafeAreaView,
   Alert,
+  ActivityIndicator,
 } from 'react-native';
 import Icon from 'react-native-vector-icons/Ionicons';
 import AsyncStorage from '@react-native-async-storage/async-storage';
@@ -22,6 +23,9 @@ export default function TripsScreen({ navigation }) {
   const [trips, setTrips] = useState([]);
   const [isLoading, setIsLoading] = useState(false);
   const [currentParams, setCurrentParams] = useState({});
+  // Cursor de la página siguiente; null cuando ya no hay más viajes
+  const [nextCursor, setNextCursor] = useState(null);
+  const [isLoadingMore, setIsLoadingMore] = useState(false);
 
   useEffect(() => {
     // Cargar viajes al iniciar la pantalla
@@ -64,16 +68,33 @@ export default function TripsScreen({ navigation }) {
     try {
       setIsLoading(true);
       setCurrentParams(params);
-      const results = await tripsService.searchTrips(params);
+      const { trips: results, nextCursor: cursor } = await tripsService.searchTrips(params);
       setTrips(results || []);
+      setNextCursor(cursor);
     } catch (error) {
       console.error('Error searching trips:', error);
       setTrips([]);
+      setNextCursor(null);
     } finally {
       setIsLoading(false);
     }
   };
 
+  // Al llegar al final de la lista se pide la página siguiente con los mismos filtros
+  const loadMoreTrips = async () => {
+    if (!nextCursor || isLoading || isLoadingMore) return;
+    try {
+      setIsLoadingMore(true);
+      const { trips: results, nextCursor: cursor } = await tripsService.searchTrips(currentParams, nextCursor);
+      setTrips(prev => [...prev, ...(results || [])]);
+      setNextCursor(cursor);
+    } catch (error) {
+      console.error('Error loading more trips:', error);
+    } finally {
+      setIsLoadingMore(false);
+    }
+  };
+
   const handleTripPress = (trip) => {
     navigation.navigate('TripDetail', { tripId: trip.id });
   };
@@ -150,6 +171,11 @@ export default function TripsScreen({ navigation }) {
         refreshControl={
           <RefreshControl refreshing={isLoading} onRefresh={handleRefresh} />
         }
+        onEndReached={loadMoreTrips}
+        onEndReachedThreshold={0.5}
+        ListFooterComponent={
+          isLoadingMore ? <ActivityIndicator style={styles.loadingMore} color="#2563eb" /> : null
+        }
         ListEmptyComponent={
           !isLoading ? (
             <EmptyState
@@ -179,6 +205,9 @@ const styles = StyleSheet.create({
     flex: 1,
     backgroundColor: '#fff',
   },
+  loadingMore: {
+    paddingVertical: 16,
+  },
   header: {
     flexDirection: 'row',
     justifyContent: 'space-between',